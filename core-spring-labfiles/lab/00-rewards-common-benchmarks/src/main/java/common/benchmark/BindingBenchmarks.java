@@ -0,0 +1,113 @@
+package common.benchmark;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import common.datetime.SimpleDate;
+import common.datetime.SimpleDateEditor;
+import common.datetime.SimpleDateFormatter;
+import common.money.MonetaryAmount;
+import common.money.MonetaryAmountEditor;
+import common.money.MonetaryAmountFormatter;
+import common.money.Percentage;
+import common.money.PercentageEditor;
+import common.money.PercentageFormatter;
+
+/**
+ * Compares binding a monetary amount, a percentage and a simple date from text with the property editors, which are
+ * stateful so a new one is created for every binding, against the shared, stateless formatters.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BindingBenchmarks {
+
+	private final MonetaryAmountFormatter amountFormatter = new MonetaryAmountFormatter();
+
+	private final PercentageFormatter percentageFormatter = new PercentageFormatter();
+
+	private final SimpleDateFormatter dateFormatter = new SimpleDateFormatter();
+
+	private String amountText = "$12.50";
+
+	private String percentageText = "8%";
+
+	private String dateText = "December 29, 1977";
+
+	private MonetaryAmount amount = MonetaryAmount.valueOf(amountText);
+
+	private Percentage percentage = Percentage.valueOf(percentageText);
+
+	@Benchmark
+	public Object amountEditorParse() {
+		MonetaryAmountEditor editor = new MonetaryAmountEditor();
+		editor.setAsText(amountText);
+		return editor.getValue();
+	}
+
+	@Benchmark
+	public MonetaryAmount amountFormatterParse() {
+		return amountFormatter.parse(amountText, Locale.US);
+	}
+
+	@Benchmark
+	public String amountEditorPrint() {
+		MonetaryAmountEditor editor = new MonetaryAmountEditor();
+		editor.setValue(amount);
+		return editor.getAsText();
+	}
+
+	@Benchmark
+	public String amountFormatterPrint() {
+		return amountFormatter.print(amount, Locale.US);
+	}
+
+	@Benchmark
+	public Object percentageEditorParse() {
+		PercentageEditor editor = new PercentageEditor();
+		editor.setAsText(percentageText);
+		return editor.getValue();
+	}
+
+	@Benchmark
+	public Percentage percentageFormatterParse() {
+		return percentageFormatter.parse(percentageText, Locale.US);
+	}
+
+	@Benchmark
+	public String percentageEditorPrint() {
+		PercentageEditor editor = new PercentageEditor();
+		editor.setValue(percentage);
+		return editor.getAsText();
+	}
+
+	@Benchmark
+	public String percentageFormatterPrint() {
+		return percentageFormatter.print(percentage, Locale.US);
+	}
+
+	@Benchmark
+	public Object dateEditorParse() {
+		SimpleDateEditor editor = new SimpleDateEditor();
+		editor.setAsText(dateText);
+		return editor.getValue();
+	}
+
+	@Benchmark
+	public SimpleDate dateFormatterParse() {
+		return dateFormatter.parse(dateText, Locale.US);
+	}
+}
@@ -0,0 +1,52 @@
+package common.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import common.money.MonetaryAmount;
+import common.money.Percentage;
+
+/**
+ * Baseline for the MonetaryAmount operations on every reward's path: parsing a dining amount, computing the benefit
+ * and crediting a beneficiary.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MonetaryAmountBenchmarks {
+
+	private String text = "$100.00";
+
+	private MonetaryAmount amount = MonetaryAmount.valueOf("100.00");
+
+	private MonetaryAmount savings = MonetaryAmount.valueOf("1234.56");
+
+	private Percentage percentage = Percentage.valueOf("8%");
+
+	@Benchmark
+	public MonetaryAmount valueOf() {
+		return MonetaryAmount.valueOf(text);
+	}
+
+	@Benchmark
+	public MonetaryAmount add() {
+		return savings.add(amount);
+	}
+
+	@Benchmark
+	public MonetaryAmount multiplyBy() {
+		return amount.multiplyBy(percentage);
+	}
+}
@@ -0,0 +1,57 @@
+package common.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import common.money.Percentage;
+
+/**
+ * Baseline for the Percentage operations used when loading restaurants and validating beneficiary allocations.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PercentageBenchmarks {
+
+	private String percentText = "8%";
+
+	private String decimalText = ".08";
+
+	private double value = 0.08;
+
+	private Percentage half = Percentage.valueOf("50%");
+
+	private Percentage quarter = Percentage.valueOf("25%");
+
+	@Benchmark
+	public Percentage valueOfPercentString() {
+		return Percentage.valueOf(percentText);
+	}
+
+	@Benchmark
+	public Percentage valueOfDecimalString() {
+		return Percentage.valueOf(decimalText);
+	}
+
+	@Benchmark
+	public Percentage valueOfDouble() {
+		return Percentage.valueOf(value);
+	}
+
+	@Benchmark
+	public Percentage add() {
+		return half.add(quarter);
+	}
+}
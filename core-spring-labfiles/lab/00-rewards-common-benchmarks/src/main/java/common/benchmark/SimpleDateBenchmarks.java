@@ -0,0 +1,59 @@
+package common.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import common.datetime.SimpleDate;
+
+/**
+ * Baseline for creating and comparing SimpleDates, as done for every dining and reward.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SimpleDateBenchmarks {
+
+	private int month = 12;
+
+	private int day = 29;
+
+	private int year = 1977;
+
+	private SimpleDate date = new SimpleDate(12, 29, 1977);
+
+	private SimpleDate sameDate = new SimpleDate(12, 29, 1977);
+
+	private SimpleDate laterDate = new SimpleDate(1, 1, 1978);
+
+	@Benchmark
+	public SimpleDate construct() {
+		return new SimpleDate(month, day, year);
+	}
+
+	@Benchmark
+	public SimpleDate today() {
+		return SimpleDate.today();
+	}
+
+	@Benchmark
+	public boolean equalsSameDate() {
+		return date.equals(sameDate);
+	}
+
+	@Benchmark
+	public int compareTo() {
+		return date.compareTo(laterDate);
+	}
+}
@@ -0,0 +1,60 @@
+package common.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.ConfigurationPropertiesBinding;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import common.datetime.DateIntervalFormatter;
+import common.datetime.SimpleDateFormatter;
+import common.datetime.SimpleDateModule;
+import common.money.MonetaryAmountFormatter;
+import common.money.PercentageFormatter;
+
+/**
+ * Registers the formatters for the shared value types in a Spring Boot application that asks for them with
+ * {@link EnableCommonFormatting}. Spring MVC adds all formatter beans to its conversion service, the
+ * {@link ConfigurationPropertiesBinding} qualifier makes them available when binding configuration properties, and
+ * Jackson picks up the module bean. The formatters are stateless, so each application shares one instance of each.
+ *
+ * Each bean backs off when the application defines its own of the same type. The Jackson module only reaches the
+ * ObjectMapper Spring Boot builds: an application that defines its own ObjectMapper bean registers it there itself.
+ */
+@Configuration(proxyBeanMethods = false)
+public class CommonFormattingConfig {
+
+	@ConditionalOnMissingBean(MonetaryAmountFormatter.class)
+	@ConfigurationPropertiesBinding
+	@Bean
+	public MonetaryAmountFormatter monetaryAmountFormatter() {
+		return new MonetaryAmountFormatter();
+	}
+
+	@ConditionalOnMissingBean(PercentageFormatter.class)
+	@ConfigurationPropertiesBinding
+	@Bean
+	public PercentageFormatter percentageFormatter() {
+		return new PercentageFormatter();
+	}
+
+	@ConditionalOnMissingBean(SimpleDateFormatter.class)
+	@ConfigurationPropertiesBinding
+	@Bean
+	public SimpleDateFormatter simpleDateFormatter() {
+		return new SimpleDateFormatter();
+	}
+
+	@ConditionalOnMissingBean(DateIntervalFormatter.class)
+	@ConfigurationPropertiesBinding
+	@Bean
+	public DateIntervalFormatter dateIntervalFormatter() {
+		return new DateIntervalFormatter();
+	}
+
+	@ConditionalOnMissingBean(SimpleDateModule.class)
+	@Bean
+	public SimpleDateModule simpleDateModule() {
+		return new SimpleDateModule();
+	}
+
+}
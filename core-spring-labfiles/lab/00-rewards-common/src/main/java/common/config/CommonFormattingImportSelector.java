@@ -0,0 +1,16 @@
+package common.config;
+
+import org.springframework.context.annotation.DeferredImportSelector;
+import org.springframework.core.type.AnnotationMetadata;
+
+/**
+ * Imports the {@link CommonFormattingConfig} after the application's own configuration, like an auto-configuration,
+ * so its beans can back off when the application defines its own.
+ */
+class CommonFormattingImportSelector implements DeferredImportSelector {
+
+	@Override
+	public String[] selectImports(AnnotationMetadata importingClassMetadata) {
+		return new String[] { CommonFormattingConfig.class.getName() };
+	}
+}
@@ -0,0 +1,23 @@
+package common.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.springframework.context.annotation.Import;
+
+/**
+ * Registers the formatters and the Jackson module of the shared value types, for a configuration class of an
+ * application that wants money, percentages and dates bound and written the same way everywhere. Off unless asked
+ * for, as it changes how those values are bound and written to JSON.
+ * @see CommonFormattingConfig
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Import(CommonFormattingImportSelector.class)
+public @interface EnableCommonFormatting {
+
+}
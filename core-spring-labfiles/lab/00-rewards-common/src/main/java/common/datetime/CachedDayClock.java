@@ -0,0 +1,73 @@
+package common.datetime;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * A day clock that keeps the current date and only works it out again once the underlying clock passes midnight in its
+ * time zone. Reading the date on the same day is a comparison of two longs and does not allocate.
+ *
+ * Thread-safe: the date and the bounds of the day it applies to are replaced together as one immutable object.
+ */
+public class CachedDayClock implements DayClock {
+
+	static final DayClock SYSTEM = new CachedDayClock(Clock.systemDefaultZone());
+
+	private final Clock clock;
+
+	private volatile Day current;
+
+	/**
+	 * Creates a new cached day clock.
+	 * @param clock the clock providing the current instant and the time zone days start and end in
+	 */
+	public CachedDayClock(Clock clock) {
+		this.clock = clock;
+		this.current = dayAt(clock.millis());
+	}
+
+	@Override
+	public SimpleDate today() {
+		long now = clock.millis();
+		Day day = current;
+		if (!day.contains(now)) {
+			day = dayAt(now);
+			current = day;
+		}
+		return day.date;
+	}
+
+	private Day dayAt(long millis) {
+		ZoneId zone = clock.getZone();
+		LocalDate date = LocalDate.ofInstant(Instant.ofEpochMilli(millis), zone);
+		return new Day(SimpleDate.valueOf(date), startOfDay(date, zone), startOfDay(date.plusDays(1), zone));
+	}
+
+	private static long startOfDay(LocalDate date, ZoneId zone) {
+		return date.atStartOfDay(zone).toInstant().toEpochMilli();
+	}
+
+	/**
+	 * A date and the half-open range of milliseconds it is today for.
+	 */
+	private static class Day {
+
+		private final SimpleDate date;
+
+		private final long start;
+
+		private final long end;
+
+		Day(SimpleDate date, long start, long end) {
+			this.date = date;
+			this.start = start;
+			this.end = end;
+		}
+
+		boolean contains(long millis) {
+			return millis >= start && millis < end;
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package common.datetime;
+
+import java.util.Locale;
+
+import org.springframework.format.Formatter;
+
+/**
+ * A Spring formatter for DateInterval properties, using the ISO form 1977-12-29/1978-01-01. Stateless and thread-safe.
+ */
+public class DateIntervalFormatter implements Formatter<DateInterval> {
+
+	@Override
+	public String print(DateInterval interval, Locale locale) {
+		return SimpleDateCodec.print(interval);
+	}
+
+	@Override
+	public DateInterval parse(String text, Locale locale) {
+		return SimpleDateCodec.parseInterval(text);
+	}
+}
@@ -0,0 +1,28 @@
+package common.datetime;
+
+/**
+ * A source of today's date. Lets code that stamps records with the current date be given a fixed or controllable date
+ * in tests.
+ */
+public interface DayClock {
+
+	/**
+	 * Returns today's date.
+	 */
+	SimpleDate today();
+
+	/**
+	 * Returns the shared clock for today's date in the default time zone, as used by {@link SimpleDate#today()}.
+	 */
+	static DayClock system() {
+		return CachedDayClock.SYSTEM;
+	}
+
+	/**
+	 * Returns a clock that always reports the specified date.
+	 * @param date the date to report as today
+	 */
+	static DayClock fixed(SimpleDate date) {
+		return () -> date;
+	}
+}
@@ -1,50 +1,38 @@
 package common.datetime;
 
 import java.io.Serializable;
-import java.util.Calendar;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.Date;
-import java.util.GregorianCalendar;
-import java.text.SimpleDateFormat;
 
 /**
- * A simple wrapper around a calendar for working with dates like 12/29/1977. Does not consider time.
+ * A simple date like 12/29/1977. Does not consider time.
+ *
+ * Held as a count of days since 1970-01-01, so dates are small, immutable and cheap to compare. The
+ * <code>java.util.Date</code> and millisecond conversions interpret a date as midnight in the default time zone.
  */
 public class SimpleDate implements Serializable {
 
-	private static final long serialVersionUID = 2285962420279644602L;
+	private static final long serialVersionUID = -3617296471498326212L;
 
-	private GregorianCalendar base;
+	private final int epochDay;
 
 	/**
-	 * Create a new simple date.
+	 * Create a new simple date. Like a lenient calendar, out of range months and days roll over into the following (or
+	 * preceding) months and years.
 	 * @param month the month
 	 * @param day the day
 	 * @param year the year
 	 */
 	public SimpleDate(int month, int day, int year) {
-		init(new GregorianCalendar(year, month - 1, day));
+		int firstOfMonthYear = year + Math.floorDiv(month - 1, 12);
+		int firstOfMonthMonth = Math.floorMod(month - 1, 12) + 1;
+		this.epochDay = Math.toIntExact(LocalDate.of(firstOfMonthYear, firstOfMonthMonth, 1).toEpochDay() + day - 1);
 	}
 
-	SimpleDate(long time) {
-		GregorianCalendar cal = new GregorianCalendar();
-		cal.setTimeInMillis(time);
-		init(cal);
-	}
-
-	private SimpleDate() {
-		init(new GregorianCalendar());
-	}
-
-	private void init(GregorianCalendar cal) {
-		this.base = trimToDays(cal);
-	}
-
-	private GregorianCalendar trimToDays(GregorianCalendar cal) {
-		cal.set(Calendar.HOUR_OF_DAY, 0);
-		cal.set(Calendar.MINUTE, 0);
-		cal.set(Calendar.SECOND, 0);
-		cal.set(Calendar.MILLISECOND, 0);
-		return cal;
+	private SimpleDate(int epochDay) {
+		this.epochDay = epochDay;
 	}
 
 	/**
@@ -52,7 +40,15 @@ public class SimpleDate implements Serializable {
 	 * @return this simple date as a Date
 	 */
 	public Date asDate() {
-		return base.getTime();
+		return new Date(inMilliseconds());
+	}
+
+	/**
+	 * Returns this simple date as a <code>java.time.LocalDate</code>
+	 * @return this simple date as a LocalDate
+	 */
+	public LocalDate asLocalDate() {
+		return LocalDate.ofEpochDay(epochDay);
 	}
 
 	/**
@@ -60,12 +56,22 @@ public class SimpleDate implements Serializable {
 	 * @return
 	 */
 	public long inMilliseconds() {
-		return asDate().getTime();
+		// like a calendar, resolve a midnight that occurs twice to the later (standard time) one
+		return asLocalDate().atStartOfDay(ZoneId.systemDefault()).withLaterOffsetAtOverlap().toInstant()
+				.toEpochMilli();
+	}
+
+	/**
+	 * Returns this date as the number of days since 1970-01-01.
+	 * @return the epoch day
+	 */
+	public int toEpochDay() {
+		return epochDay;
 	}
 
 	public int compareTo(Object date) {
 		SimpleDate other = (SimpleDate) date;
-		return asDate().compareTo(other.asDate());
+		return Integer.compare(epochDay, other.epochDay);
 	}
 
 	public boolean equals(Object day) {
@@ -73,18 +79,37 @@ public class SimpleDate implements Serializable {
 			return false;
 		}
 		SimpleDate other = (SimpleDate) day;
-		return (base.equals(other.base));
+		return epochDay == other.epochDay;
 	}
 
 	public int hashCode() {
-		return 29 * base.hashCode();
+		return epochDay;
 	}
 
 	/**
 	 * Returns todays date. A convenient static factory method.
+	 * @see DayClock#system()
 	 */
 	public static SimpleDate today() {
-		return new SimpleDate();
+		return DayClock.system().today();
+	}
+
+	/**
+	 * Converts the specified number of days since 1970-01-01 to a SimpleDate.
+	 * @param epochDay the epoch day
+	 * @return the simple date
+	 */
+	public static SimpleDate ofEpochDay(int epochDay) {
+		return new SimpleDate(epochDay);
+	}
+
+	/**
+	 * Converts the specified local date to a SimpleDate.
+	 * @param date the java.time.LocalDate
+	 * @return the simple date
+	 */
+	public static SimpleDate valueOf(LocalDate date) {
+		return new SimpleDate(Math.toIntExact(date.toEpochDay()));
 	}
 
 	/**
@@ -102,12 +127,15 @@ public class SimpleDate implements Serializable {
 	 * @return the time as a SimpleDate
 	 */
 	public static SimpleDate valueOf(long time) {
-		return new SimpleDate(time);
+		return valueOf(LocalDate.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault()));
 	}
-	
+
+	/**
+	 * Returns this date in ISO-8601 format, e.g. 1977-12-29.
+	 */
 	@Override
 	public String toString() {
-        return new SimpleDateFormat().format(base.getTime());
-    }
+		return SimpleDateCodec.print(this, SimpleDateCodec.ISO);
+	}
 
-}
\ No newline at end of file
+}
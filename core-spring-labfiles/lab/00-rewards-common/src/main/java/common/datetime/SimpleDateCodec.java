@@ -0,0 +1,152 @@
+package common.datetime;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Converts simple dates and date intervals to and from text and JDBC values. The single place that knows the formats
+ * used by {@link SimpleDate#toString()}, the JSON module, the Spring formatters and the PropertyEditor.
+ *
+ * Built on immutable <code>java.time</code> formatters that are created once and shared, so every method is
+ * thread-safe and no formatter is allocated per call.
+ */
+public final class SimpleDateCodec {
+
+	/**
+	 * The ISO-8601 format, e.g. 1977-12-29. Used for JSON and by {@link SimpleDate#toString()}.
+	 */
+	public static final DateTimeFormatter ISO = DateTimeFormatter.ISO_LOCAL_DATE;
+
+	/**
+	 * The long English format, e.g. December 29, 1977. Used for data binding user input.
+	 */
+	public static final DateTimeFormatter LONG = DateTimeFormatter.ofPattern("MMMM d, yyyy", Locale.ENGLISH);
+
+	/**
+	 * Separates the start and end of a date interval in its text form, e.g. 1977-12-29/1978-01-01.
+	 */
+	public static final char INTERVAL_SEPARATOR = '/';
+
+	private SimpleDateCodec() {
+	}
+
+	/**
+	 * Prints the date using the specified format.
+	 * @param date the date
+	 * @param format the format, for example {@link #ISO} or {@link #LONG}
+	 * @return the date as text
+	 */
+	public static String print(SimpleDate date, DateTimeFormatter format) {
+		return format.format(date.asLocalDate());
+	}
+
+	/**
+	 * Parses a date in the specified format.
+	 * @param text the date as text
+	 * @param format the format, for example {@link #ISO} or {@link #LONG}
+	 * @return the date
+	 * @throws IllegalArgumentException if the text is not a date in the format
+	 */
+	public static SimpleDate parse(CharSequence text, DateTimeFormatter format) {
+		try {
+			return SimpleDate.valueOf(format.parse(text, LocalDate::from));
+		} catch (DateTimeException e) {
+			throw new IllegalArgumentException("Unable to convert String '" + text + "' to a SimpleDate", e);
+		}
+	}
+
+	/**
+	 * Prints the interval as its start and end dates in ISO format separated by {@link #INTERVAL_SEPARATOR}.
+	 * @param interval the date interval
+	 * @return the interval as text
+	 */
+	public static String print(DateInterval interval) {
+		return print(interval.getStart(), ISO) + INTERVAL_SEPARATOR + print(interval.getEnd(), ISO);
+	}
+
+	/**
+	 * Parses an interval printed by {@link #print(DateInterval)}.
+	 * @param text the interval as text
+	 * @return the date interval
+	 * @throws IllegalArgumentException if the text is not a date interval
+	 */
+	public static DateInterval parseInterval(CharSequence text) {
+		int separator = indexOf(text, INTERVAL_SEPARATOR);
+		if (separator < 0) {
+			throw new IllegalArgumentException("Unable to convert String '" + text + "' to a DateInterval");
+		}
+		return new DateInterval(parse(text.subSequence(0, separator), ISO), parse(text.subSequence(separator + 1,
+				text.length()), ISO));
+	}
+
+	private static int indexOf(CharSequence text, char c) {
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the value to bind for a SQL DATE parameter, for example as a <code>JdbcTemplate</code> argument. The
+	 * value is derived from the epoch day alone, so no calendar or time zone is involved.
+	 * @param date the date, may be null
+	 * @return the JDBC 4.2 date value
+	 */
+	public static LocalDate toJdbcValue(SimpleDate date) {
+		return date == null ? null : date.asLocalDate();
+	}
+
+	/**
+	 * Binds a date to a SQL DATE parameter.
+	 * @param ps the prepared statement
+	 * @param index the parameter index
+	 * @param date the date, may be null
+	 * @throws SQLException if the parameter could not be set
+	 */
+	public static void bind(PreparedStatement ps, int index, SimpleDate date) throws SQLException {
+		ps.setObject(index, toJdbcValue(date));
+	}
+
+	/**
+	 * Binds an interval to two consecutive SQL DATE parameters, its start then its end.
+	 * @param ps the prepared statement
+	 * @param index the index of the start parameter
+	 * @param interval the date interval
+	 * @throws SQLException if the parameters could not be set
+	 */
+	public static void bind(PreparedStatement ps, int index, DateInterval interval) throws SQLException {
+		bind(ps, index, interval.getStart());
+		bind(ps, index + 1, interval.getEnd());
+	}
+
+	/**
+	 * Reads a SQL DATE column as a simple date.
+	 * @param rs the result set with its cursor positioned at the current row
+	 * @param column the column label
+	 * @return the date, or null if the column is null
+	 * @throws SQLException if the column could not be read
+	 */
+	public static SimpleDate read(ResultSet rs, String column) throws SQLException {
+		LocalDate date = rs.getObject(column, LocalDate.class);
+		return date == null ? null : SimpleDate.valueOf(date);
+	}
+
+	/**
+	 * Reads a SQL DATE column as a simple date.
+	 * @param rs the result set with its cursor positioned at the current row
+	 * @param index the column index
+	 * @return the date, or null if the column is null
+	 * @throws SQLException if the column could not be read
+	 */
+	public static SimpleDate read(ResultSet rs, int index) throws SQLException {
+		LocalDate date = rs.getObject(index, LocalDate.class);
+		return date == null ? null : SimpleDate.valueOf(date);
+	}
+}
@@ -0,0 +1,61 @@
+package common.datetime;
+
+import java.time.LocalDate;
+import java.util.Date;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.core.convert.converter.ConverterRegistry;
+
+/**
+ * Stateless Spring converters between SimpleDate and the other date types it meets at the edges of the application.
+ */
+public final class SimpleDateConverters {
+
+	private SimpleDateConverters() {
+	}
+
+	/**
+	 * Registers all the SimpleDate converters with the registry.
+	 * @param registry the converter registry, for example a conversion service
+	 */
+	public static void registerConverters(ConverterRegistry registry) {
+		registry.addConverter(new LocalDateToSimpleDateConverter());
+		registry.addConverter(new SimpleDateToLocalDateConverter());
+		registry.addConverter(new DateToSimpleDateConverter());
+		registry.addConverter(new SimpleDateToDateConverter());
+	}
+
+	public static class LocalDateToSimpleDateConverter implements Converter<LocalDate, SimpleDate> {
+		@Override
+		public SimpleDate convert(LocalDate source) {
+			return SimpleDate.valueOf(source);
+		}
+	}
+
+	public static class SimpleDateToLocalDateConverter implements Converter<SimpleDate, LocalDate> {
+		@Override
+		public LocalDate convert(SimpleDate source) {
+			return source.asLocalDate();
+		}
+	}
+
+	/**
+	 * Trims the time, interpreting the date in the default time zone.
+	 */
+	public static class DateToSimpleDateConverter implements Converter<Date, SimpleDate> {
+		@Override
+		public SimpleDate convert(Date source) {
+			return SimpleDate.valueOf(source);
+		}
+	}
+
+	/**
+	 * Converts to midnight in the default time zone.
+	 */
+	public static class SimpleDateToDateConverter implements Converter<SimpleDate, Date> {
+		@Override
+		public Date convert(SimpleDate source) {
+			return source.asDate();
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package common.datetime;
+
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+import org.springframework.format.Formatter;
+
+/**
+ * A Spring formatter for SimpleDate properties. Stateless and thread-safe, so a single instance can be registered once
+ * for web and configuration binding instead of creating a {@link SimpleDateEditor} per binding.
+ */
+public class SimpleDateFormatter implements Formatter<SimpleDate> {
+
+	private final DateTimeFormatter format;
+
+	/**
+	 * Creates a formatter for the long English format, e.g. December 29, 1977.
+	 */
+	public SimpleDateFormatter() {
+		this(SimpleDateCodec.LONG);
+	}
+
+	/**
+	 * Creates a formatter for the specified format.
+	 * @param format the date format
+	 */
+	public SimpleDateFormatter(DateTimeFormatter format) {
+		this.format = format;
+	}
+
+	@Override
+	public String print(SimpleDate date, Locale locale) {
+		return SimpleDateCodec.print(date, format);
+	}
+
+	@Override
+	public SimpleDate parse(String text, Locale locale) {
+		return SimpleDateCodec.parse(text, format);
+	}
+}
@@ -0,0 +1,19 @@
+package common.datetime;
+
+import org.springframework.format.FormatterRegistrar;
+import org.springframework.format.FormatterRegistry;
+
+/**
+ * Registers the SimpleDate and DateInterval formatters and converters with a formatting conversion service, for
+ * example from <code>WebMvcConfigurer.addFormatters</code>. Spring Boot applications can have the formatters
+ * registered with {@link common.config.EnableCommonFormatting}.
+ */
+public class SimpleDateFormatterRegistrar implements FormatterRegistrar {
+
+	@Override
+	public void registerFormatters(FormatterRegistry registry) {
+		registry.addFormatter(new SimpleDateFormatter());
+		registry.addFormatter(new DateIntervalFormatter());
+		SimpleDateConverters.registerConverters(registry);
+	}
+}
@@ -0,0 +1,109 @@
+package common.datetime;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * A Jackson module that writes a SimpleDate as an ISO-8601 string, e.g. "1977-12-29", and a DateInterval as an object
+ * with ISO "start" and "end" dates. Spring Boot registers any Module bean with its ObjectMapper.
+ */
+public class SimpleDateModule extends SimpleModule {
+
+	private static final long serialVersionUID = 1L;
+
+	public SimpleDateModule() {
+		super("SimpleDateModule");
+		addSerializer(SimpleDate.class, new SimpleDateSerializer());
+		addDeserializer(SimpleDate.class, new SimpleDateDeserializer());
+		addSerializer(DateInterval.class, new DateIntervalSerializer());
+		addDeserializer(DateInterval.class, new DateIntervalDeserializer());
+	}
+
+	public static class SimpleDateSerializer extends StdSerializer<SimpleDate> {
+
+		private static final long serialVersionUID = 1L;
+
+		public SimpleDateSerializer() {
+			super(SimpleDate.class);
+		}
+
+		@Override
+		public void serialize(SimpleDate value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+			gen.writeString(SimpleDateCodec.print(value, SimpleDateCodec.ISO));
+		}
+	}
+
+	public static class SimpleDateDeserializer extends StdDeserializer<SimpleDate> {
+
+		private static final long serialVersionUID = 1L;
+
+		public SimpleDateDeserializer() {
+			super(SimpleDate.class);
+		}
+
+		@Override
+		public SimpleDate deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+			String text = p.getValueAsString();
+			try {
+				return SimpleDateCodec.parse(text, SimpleDateCodec.ISO);
+			} catch (IllegalArgumentException e) {
+				return (SimpleDate) ctxt.handleWeirdStringValue(SimpleDate.class, text, e.getMessage());
+			}
+		}
+	}
+
+	public static class DateIntervalSerializer extends StdSerializer<DateInterval> {
+
+		private static final long serialVersionUID = 1L;
+
+		public DateIntervalSerializer() {
+			super(DateInterval.class);
+		}
+
+		@Override
+		public void serialize(DateInterval value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+			gen.writeStartObject();
+			gen.writeStringField("start", SimpleDateCodec.print(value.getStart(), SimpleDateCodec.ISO));
+			gen.writeStringField("end", SimpleDateCodec.print(value.getEnd(), SimpleDateCodec.ISO));
+			gen.writeEndObject();
+		}
+	}
+
+	public static class DateIntervalDeserializer extends StdDeserializer<DateInterval> {
+
+		private static final long serialVersionUID = 1L;
+
+		public DateIntervalDeserializer() {
+			super(DateInterval.class);
+		}
+
+		@Override
+		public DateInterval deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+			SimpleDate start = null;
+			SimpleDate end = null;
+			if (p.currentToken() != JsonToken.START_OBJECT) {
+				return (DateInterval) ctxt.handleUnexpectedToken(DateInterval.class, p);
+			}
+			while (p.nextToken() == JsonToken.FIELD_NAME) {
+				String field = p.getCurrentName();
+				p.nextToken();
+				if ("start".equals(field)) {
+					start = SimpleDateCodec.parse(p.getValueAsString(), SimpleDateCodec.ISO);
+				} else if ("end".equals(field)) {
+					end = SimpleDateCodec.parse(p.getValueAsString(), SimpleDateCodec.ISO);
+				} else {
+					p.skipChildren();
+				}
+			}
+			return new DateInterval(start, end);
+		}
+	}
+}
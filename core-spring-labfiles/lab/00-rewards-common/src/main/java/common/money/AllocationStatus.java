@@ -0,0 +1,45 @@
+package common.money;
+
+/**
+ * The result of checking that a set of percentage allocations, such as the beneficiary allocations of an account, adds
+ * up to 100%.
+ */
+public enum AllocationStatus {
+
+	/**
+	 * The allocations add up to exactly 100%.
+	 */
+	VALID,
+
+	/**
+	 * The allocations add up to less than 100%.
+	 */
+	UNDER_ALLOCATED,
+
+	/**
+	 * The allocations add up to more than 100%.
+	 */
+	OVER_ALLOCATED;
+
+	/**
+	 * Returns the status of allocations that add up to the specified total.
+	 * @param totalHundredths the sum of the allocations in hundredths, see {@link Percentage#hundredths()}
+	 * @return the allocation status
+	 */
+	public static AllocationStatus ofTotal(int totalHundredths) {
+		if (totalHundredths < 100) {
+			return UNDER_ALLOCATED;
+		} else if (totalHundredths > 100) {
+			return OVER_ALLOCATED;
+		} else {
+			return VALID;
+		}
+	}
+
+	/**
+	 * Returns true only if the allocations add up to exactly 100%.
+	 */
+	public boolean isValid() {
+		return this == VALID;
+	}
+}
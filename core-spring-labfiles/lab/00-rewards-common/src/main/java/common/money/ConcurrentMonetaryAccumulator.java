@@ -0,0 +1,115 @@
+package common.money;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe running total of monetary amounts for totals updated by many threads at once. Like
+ * <code>java.util.concurrent.atomic.LongAdder</code>, the total is striped over several cells, each on its own cache
+ * line, so concurrent adds rarely compete for the same memory. The rare amounts that do not fit in a cell's long
+ * number of cents are kept in a shared BigDecimal instead, so the total never overflows.
+ *
+ * As with LongAdder, {@link #total()} is not an atomic snapshot: adds made while it runs may or may not be included.
+ */
+public final class ConcurrentMonetaryAccumulator {
+
+	/**
+	 * Longs per cell: spaces the cells 64 bytes apart, a common cache line size, to avoid false sharing.
+	 */
+	private static final int CELL_STRIDE = 8;
+
+	private static final int STRIPES = stripeCount(Runtime.getRuntime().availableProcessors());
+
+	private final AtomicLongArray cells = new AtomicLongArray(STRIPES * CELL_STRIDE);
+
+	/**
+	 * The part of the total that did not fit in the cells. Guarded by this.
+	 */
+	private BigDecimal overflow = BigDecimal.ZERO;
+
+	/**
+	 * Returns the smallest power of two at least the number of processors, capped at 64.
+	 */
+	private static int stripeCount(int processors) {
+		return Integer.highestOneBit(Math.max(1, Math.min(processors, 64)) * 2 - 1);
+	}
+
+	/**
+	 * Adds the amount to the total.
+	 * @param amount the amount to add
+	 */
+	public void add(MonetaryAmount amount) {
+		if (amount.isCompact()) {
+			addCents(amount.cents());
+		} else {
+			addOverflow(amount.asBigDecimal());
+		}
+	}
+
+	/**
+	 * Adds the amount in cents to the total.
+	 * @param amount the amount to add in cents
+	 */
+	public void addCents(long amount) {
+		int stripe = stripeOf(Thread.currentThread());
+		while (true) {
+			int index = stripe * CELL_STRIDE;
+			long current = cells.get(index);
+			long sum = current + amount;
+			// overflow iff both operands have the same sign and the result has the other one
+			if (((current ^ sum) & (amount ^ sum)) < 0) {
+				addOverflow(BigDecimal.valueOf(amount, 2));
+				return;
+			}
+			if (cells.compareAndSet(index, current, sum)) {
+				return;
+			}
+			// contended: try the next cell
+			stripe = (stripe + 1) & (STRIPES - 1);
+		}
+	}
+
+	private static int stripeOf(Thread thread) {
+		// spread sequential thread ids over the stripes
+		return (int) ((thread.getId() * 0x9E3779B97F4A7C15L) >>> 32) & (STRIPES - 1);
+	}
+
+	private synchronized void addOverflow(BigDecimal amount) {
+		overflow = overflow.add(amount);
+	}
+
+	/**
+	 * Returns the total of all amounts added so far.
+	 * @return the total
+	 */
+	public MonetaryAmount total() {
+		MonetaryAccumulator total = new MonetaryAccumulator();
+		for (int i = 0; i < STRIPES; i++) {
+			total.addCents(cells.get(i * CELL_STRIDE));
+		}
+		BigDecimal overflow;
+		synchronized (this) {
+			overflow = this.overflow;
+		}
+		if (overflow.signum() != 0) {
+			total.add(new MonetaryAmount(overflow));
+		}
+		return total.total();
+	}
+
+	/**
+	 * Resets the total to zero. Only meaningful when no other thread is adding at the same time.
+	 */
+	public void reset() {
+		for (int i = 0; i < STRIPES; i++) {
+			cells.set(i * CELL_STRIDE, 0);
+		}
+		synchronized (this) {
+			overflow = BigDecimal.ZERO;
+		}
+	}
+
+	public String toString() {
+		return total().toString();
+	}
+}
@@ -0,0 +1,92 @@
+package common.money;
+
+import java.math.BigDecimal;
+
+/**
+ * A mutable running total of monetary amounts. Adding is done in place on a long number of cents, so summing many
+ * amounts does not build a chain of immutable MonetaryAmount objects; a total beyond a long falls back to a
+ * BigDecimal. Call {@link #total()} to get the result as a MonetaryAmount.
+ *
+ * Not thread-safe, and meant to stay local to the code doing the summing. Use a
+ * {@link ConcurrentMonetaryAccumulator} for totals updated by several threads.
+ */
+public final class MonetaryAccumulator {
+
+	private long cents;
+
+	/**
+	 * The total once it no longer fits in a long number of cents, null before.
+	 */
+	private BigDecimal overflow;
+
+	/**
+	 * Creates an accumulator with a zero total.
+	 */
+	public MonetaryAccumulator() {
+	}
+
+	/**
+	 * Creates an accumulator starting from the specified total.
+	 * @param initial the initial total
+	 */
+	public MonetaryAccumulator(MonetaryAmount initial) {
+		add(initial);
+	}
+
+	/**
+	 * Adds the amount to the total.
+	 * @param amount the amount to add
+	 * @return this accumulator
+	 */
+	public MonetaryAccumulator add(MonetaryAmount amount) {
+		if (amount.isCompact()) {
+			return addCents(amount.cents());
+		}
+		overflow = asBigDecimal().add(amount.asBigDecimal());
+		return this;
+	}
+
+	/**
+	 * Adds the amount in cents to the total.
+	 * @param amount the amount to add in cents
+	 * @return this accumulator
+	 */
+	public MonetaryAccumulator addCents(long amount) {
+		if (overflow != null) {
+			overflow = overflow.add(BigDecimal.valueOf(amount, 2));
+			return this;
+		}
+		long sum = cents + amount;
+		// overflow iff both operands have the same sign and the result has the other one
+		if (((cents ^ sum) & (amount ^ sum)) < 0) {
+			overflow = BigDecimal.valueOf(cents, 2).add(BigDecimal.valueOf(amount, 2));
+		} else {
+			cents = sum;
+		}
+		return this;
+	}
+
+	/**
+	 * Returns the total of all amounts added so far.
+	 * @return the total
+	 */
+	public MonetaryAmount total() {
+		return overflow == null ? MonetaryAmount.valueOfCents(cents) : new MonetaryAmount(overflow);
+	}
+
+	/**
+	 * Resets the total to zero, so the accumulator can be reused.
+	 */
+	public void reset() {
+		cents = 0;
+		overflow = null;
+	}
+
+	private BigDecimal asBigDecimal() {
+		return overflow == null ? BigDecimal.valueOf(cents, 2) : overflow;
+	}
+
+	public String toString() {
+		return total().toString();
+	}
+}
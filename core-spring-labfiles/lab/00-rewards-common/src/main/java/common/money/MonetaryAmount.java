@@ -3,22 +3,67 @@ package common.money;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonValue;
 
+import javax.persistence.Access;
+import javax.persistence.AccessType;
 import javax.persistence.Embeddable;
+import javax.persistence.Transient;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 
 /**
  * A representation of money.
- * 
+ *
+ * Amounts are held as a whole number of cents in a <code>long</code>; a <code>BigDecimal</code> is only used for
+ * amounts too large to fit, so the common arithmetic operations do not allocate intermediate decimals.
+ *
  * A value object. Immutable.
  */
 @Embeddable
+@Access(AccessType.PROPERTY)
 public class MonetaryAmount implements Serializable {
 
 	private static final long serialVersionUID = -3734467432803577280L;
 
-	private BigDecimal value;
+	/**
+	 * Keep the serialized form of earlier versions: a single scale 2 <code>BigDecimal</code> named "value".
+	 */
+	private static final ObjectStreamField[] serialPersistentFields = { new ObjectStreamField("value",
+			BigDecimal.class) };
+
+	private static final int SCALE = 2;
+
+	private static final long CENTS_PER_UNIT = 100;
+
+	/**
+	 * The largest number of cents that converts exactly to a double.
+	 */
+	private static final long MAX_EXACT_DOUBLE_CENTS = 1L << 52;
+
+	/**
+	 * Returned by {@link #parseCents} for text it leaves to the general parsing path.
+	 */
+	static final long NOT_PARSED = Long.MIN_VALUE;
+
+	/**
+	 * The most whole units parsed to cents; larger amounts are left to the general parsing path. Leaves room for the
+	 * cents and for rounding up, so the parsed cents cannot overflow.
+	 */
+	private static final long MAX_PARSED_UNITS = (Long.MAX_VALUE - CENTS_PER_UNIT) / CENTS_PER_UNIT;
+
+	/**
+	 * The amount in cents. Only meaningful when {@link #overflow} is null.
+	 */
+	private long cents;
+
+	/**
+	 * The amount at scale 2 when it does not fit in a long number of cents; null otherwise.
+	 */
+	private BigDecimal overflow;
 
 	/**
 	 * Create a new monetary amount from the specified value.
@@ -37,12 +82,24 @@ public class MonetaryAmount implements Serializable {
 		initValue(BigDecimal.valueOf(value));
 	}
 
+	private MonetaryAmount(long cents, BigDecimal overflow) {
+		this.cents = cents;
+		this.overflow = overflow;
+	}
+
 	@SuppressWarnings("unused")
 	private MonetaryAmount() {
 	}
 
 	private void initValue(BigDecimal value) {
-		this.value = value.setScale(2, RoundingMode.HALF_EVEN);
+		BigDecimal scaled = value.setScale(SCALE, RoundingMode.HALF_EVEN);
+		if (scaled.unscaledValue().bitLength() < Long.SIZE) {
+			this.cents = scaled.unscaledValue().longValue();
+			this.overflow = null;
+		} else {
+			this.cents = 0;
+			this.overflow = scaled;
+		}
 	}
 
 	/**
@@ -54,6 +111,10 @@ public class MonetaryAmount implements Serializable {
 		if (string == null || string.length() == 0) {
 			throw new IllegalArgumentException("The monetary amount value is required");
 		}
+		long cents = parseCents(string, 0, string.length());
+		if (cents != NOT_PARSED) {
+			return new MonetaryAmount(cents, null);
+		}
 		if (string.startsWith("$")) {
 			int index = string.indexOf('$');
 			string = string.substring(index + 1);
@@ -62,11 +123,81 @@ public class MonetaryAmount implements Serializable {
 		return new MonetaryAmount(value);
 	}
 
+	/**
+	 * Parses a plain decimal amount such as "$12.50", "12.5" or "-.299" in the specified range of the text straight to
+	 * cents, rounding half even like the constructors. Does not allocate.
+	 * @param text the text holding the amount
+	 * @param start the index of the first character to parse
+	 * @param end the index after the last character to parse
+	 * @return the amount in cents, or {@link #NOT_PARSED} if the text needs the general parsing path
+	 */
+	static long parseCents(CharSequence text, int start, int end) {
+		if (start < end && text.charAt(start) == '$') {
+			start++;
+		}
+		boolean negative = false;
+		if (start < end && (text.charAt(start) == '-' || text.charAt(start) == '+')) {
+			negative = text.charAt(start) == '-';
+			start++;
+		}
+		long units = 0;
+		int index = start;
+		for (; index < end && isDigit(text.charAt(index)); index++) {
+			int digit = text.charAt(index) - '0';
+			if (units > (MAX_PARSED_UNITS - digit) / 10) {
+				return NOT_PARSED;
+			}
+			units = units * 10 + digit;
+		}
+		int unitDigits = index - start;
+		long fraction = 0;
+		int fractionDigits = 0;
+		int roundingDigit = 0;
+		boolean nonZeroAfterRoundingDigit = false;
+		if (index < end && text.charAt(index) == '.') {
+			for (index++; index < end && isDigit(text.charAt(index)); index++) {
+				int digit = text.charAt(index) - '0';
+				if (fractionDigits < SCALE) {
+					fraction = fraction * 10 + digit;
+				} else if (fractionDigits == SCALE) {
+					roundingDigit = digit;
+				} else if (digit != 0) {
+					nonZeroAfterRoundingDigit = true;
+				}
+				fractionDigits++;
+			}
+		}
+		if (index != end || (unitDigits == 0 && fractionDigits == 0)) {
+			return NOT_PARSED;
+		}
+		for (int i = fractionDigits; i < SCALE; i++) {
+			fraction *= 10;
+		}
+		long cents = units * CENTS_PER_UNIT + fraction;
+		if (roundingDigit > 5 || (roundingDigit == 5 && (nonZeroAfterRoundingDigit || (cents & 1) != 0))) {
+			cents++;
+		}
+		return negative ? -cents : cents;
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	/**
+	 * Convert a whole number of cents to a MonetaryAmount object. For example, 1250 is $12.50.
+	 * @param cents the amount in cents
+	 * @return the monetary amount object
+	 */
+	public static MonetaryAmount valueOfCents(long cents) {
+		return new MonetaryAmount(cents, null);
+	}
+
 	/**
 	 * Returns the zero (0.00) monetary amount.
 	 */
 	public static MonetaryAmount zero() {
-		return new MonetaryAmount(0);
+		return new MonetaryAmount(0L, null);
 	}
 
 	/**
@@ -75,7 +206,14 @@ public class MonetaryAmount implements Serializable {
 	 * @return the sum
 	 */
 	public MonetaryAmount add(MonetaryAmount amount) {
-		return new MonetaryAmount(value.add(amount.value));
+		if (isCompact() && amount.isCompact()) {
+			long sum = cents + amount.cents;
+			// overflow only if both operands have the same sign and the sum's sign differs
+			if (((cents ^ sum) & (amount.cents ^ sum)) >= 0) {
+				return valueOfCents(sum);
+			}
+		}
+		return new MonetaryAmount(asBigDecimal().add(amount.asBigDecimal()));
 	}
 
 	/**
@@ -84,7 +222,14 @@ public class MonetaryAmount implements Serializable {
 	 * @return the difference
 	 */
 	public MonetaryAmount subtract(MonetaryAmount amount) {
-		return new MonetaryAmount(value.subtract(amount.value));
+		if (isCompact() && amount.isCompact()) {
+			long difference = cents - amount.cents;
+			// overflow only if the operands have different signs and the difference's sign differs from ours
+			if (((cents ^ amount.cents) & (cents ^ difference)) >= 0) {
+				return valueOfCents(difference);
+			}
+		}
+		return new MonetaryAmount(asBigDecimal().subtract(amount.asBigDecimal()));
 	}
 
 	/**
@@ -93,7 +238,7 @@ public class MonetaryAmount implements Serializable {
 	 * @return the product
 	 */
 	public MonetaryAmount multiplyBy(BigDecimal amount) {
-		return new MonetaryAmount(value.multiply(amount));
+		return new MonetaryAmount(asBigDecimal().multiply(amount));
 	}
 
 	/**
@@ -102,7 +247,7 @@ public class MonetaryAmount implements Serializable {
 	 * @return the quotient
 	 */
 	public BigDecimal divide(MonetaryAmount amount) {
-		return value.divide(amount.value);
+		return asBigDecimal().divide(amount.asBigDecimal());
 	}
 
 	/**
@@ -111,7 +256,7 @@ public class MonetaryAmount implements Serializable {
 	 * @return the quotient
 	 */
 	public MonetaryAmount divideBy(BigDecimal amount) {
-		return new MonetaryAmount(value.divide(amount));
+		return new MonetaryAmount(asBigDecimal().divide(amount));
 	}
 
 	/**
@@ -120,7 +265,10 @@ public class MonetaryAmount implements Serializable {
 	 * @return the percentage amount
 	 */
 	public MonetaryAmount multiplyBy(Percentage percentage) {
-		return new MonetaryAmount(value.multiply(percentage.asBigDecimal()));
+		if (isCompact()) {
+			return valueOfCents(multiplyCents(cents, percentage.hundredths()));
+		}
+		return new MonetaryAmount(asBigDecimal().multiply(percentage.asBigDecimal()));
 	}
 
 	/**
@@ -129,7 +277,10 @@ public class MonetaryAmount implements Serializable {
 	 * @return true or false
 	 */
 	public boolean greaterThan(MonetaryAmount amount) {
-		return value.compareTo(amount.value) > 0;
+		if (isCompact() && amount.isCompact()) {
+			return cents > amount.cents;
+		}
+		return asBigDecimal().compareTo(amount.asBigDecimal()) > 0;
 	}
 
 	/**
@@ -137,7 +288,11 @@ public class MonetaryAmount implements Serializable {
 	 * @return this amount as a double
 	 */
 	public double asDouble() {
-		return value.doubleValue();
+		// same result as BigDecimal.doubleValue() for values exactly representable as a double
+		if (isCompact() && cents < MAX_EXACT_DOUBLE_CENTS && cents > -MAX_EXACT_DOUBLE_CENTS) {
+			return (double) cents / CENTS_PER_UNIT;
+		}
+		return asBigDecimal().doubleValue();
 	}
 
 	/**
@@ -146,22 +301,94 @@ public class MonetaryAmount implements Serializable {
 	 */
 	@JsonValue
 	public BigDecimal asBigDecimal() {
-		return value;
+		return isCompact() ? BigDecimal.valueOf(cents, SCALE) : overflow;
+	}
+
+	/**
+	 * Returns true if this amount is held as a long number of cents. Not a mapped property.
+	 */
+	@Transient
+	boolean isCompact() {
+		return overflow == null;
+	}
+
+	/**
+	 * Returns this amount in cents. Only valid for {@link #isCompact() compact} amounts.
+	 */
+	long cents() {
+		return cents;
+	}
+
+	/**
+	 * Multiplies an amount in cents by a percentage in hundredths, rounding half even. A percentage is at most 100
+	 * hundredths, so the product always fits in a long.
+	 */
+	static long multiplyCents(long cents, int hundredths) {
+		// cents = units * 100 + rest, with units and rest of the same sign, so no intermediate product overflows
+		long units = cents / CENTS_PER_UNIT;
+		long rest = (cents % CENTS_PER_UNIT) * hundredths;
+		long quotient = units * hundredths + rest / CENTS_PER_UNIT;
+		long twice = Math.abs(rest % CENTS_PER_UNIT) * 2;
+		if (twice > CENTS_PER_UNIT || (twice == CENTS_PER_UNIT && (quotient & 1) != 0)) {
+			quotient += cents < 0 ? -1 : 1;
+		}
+		return quotient;
+	}
+
+	// accessors used by JPA to map this embeddable to a single decimal column named "value"
+
+	@SuppressWarnings("unused")
+	private BigDecimal getValue() {
+		return asBigDecimal();
+	}
+
+	@SuppressWarnings("unused")
+	private void setValue(BigDecimal value) {
+		initValue(value);
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("value", asBigDecimal());
+		out.writeFields();
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = in.readFields();
+		initValue((BigDecimal) fields.get("value", null));
 	}
 
 	public boolean equals(Object o) {
 		if (!(o instanceof MonetaryAmount)) {
 			return false;
 		}
-		return value.equals(((MonetaryAmount) o).value);
+		MonetaryAmount other = (MonetaryAmount) o;
+		if (isCompact() && other.isCompact()) {
+			return cents == other.cents;
+		}
+		// amounts that fit in a long are always compact, so a compact amount never equals an overflowed one
+		return asBigDecimal().equals(other.asBigDecimal());
 	}
 
 	public int hashCode() {
-		return value.hashCode();
+		return isCompact() ? Long.hashCode(cents) : overflow.hashCode();
 	}
 
 	public String toString() {
-		return "$" + value.toString();
+		if (!isCompact() || cents == Long.MIN_VALUE) {
+			return "$" + asBigDecimal().toString();
+		}
+		long abs = Math.abs(cents);
+		long fraction = abs % CENTS_PER_UNIT;
+		StringBuilder builder = new StringBuilder(24).append('$');
+		if (cents < 0) {
+			builder.append('-');
+		}
+		builder.append(abs / CENTS_PER_UNIT).append('.');
+		if (fraction < 10) {
+			builder.append('0');
+		}
+		return builder.append(fraction).toString();
 	}
 
-}
\ No newline at end of file
+}
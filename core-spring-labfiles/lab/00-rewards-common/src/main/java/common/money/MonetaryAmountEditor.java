@@ -7,6 +7,10 @@ import org.springframework.util.StringUtils;
 /**
  * A formatter for Monetary amount properties. Converts object values to well-formatted strings and strings back to
  * values. Usable by a data binding framework for binding user input to the model.
+ *
+ * Property editors are stateful, so a new one is needed for every binding. Prefer the thread-safe
+ * {@link MonetaryAmountFormatter}, which Spring Boot applications can have registered with
+ * {@link common.config.EnableCommonFormatting}.
  */
 public class MonetaryAmountEditor extends PropertyEditorSupport {
 
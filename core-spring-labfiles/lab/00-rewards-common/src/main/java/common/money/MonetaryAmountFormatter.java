@@ -0,0 +1,22 @@
+package common.money;
+
+import java.util.Locale;
+
+import org.springframework.format.Formatter;
+
+/**
+ * A Spring formatter for MonetaryAmount properties, e.g. $12.50. Stateless and thread-safe, so a single instance can be
+ * registered once for web and configuration binding instead of creating a {@link MonetaryAmountEditor} per binding.
+ */
+public class MonetaryAmountFormatter implements Formatter<MonetaryAmount> {
+
+	@Override
+	public String print(MonetaryAmount amount, Locale locale) {
+		return amount.toString();
+	}
+
+	@Override
+	public MonetaryAmount parse(String text, Locale locale) {
+		return MonetaryAmount.valueOf(text);
+	}
+}
@@ -0,0 +1,245 @@
+package common.money;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A fixed-size column of monetary amounts, held as cents in a <code>long[]</code>. For batch jobs such as statements,
+ * reconciliation and bulk re-rewarding that apply the same arithmetic to many amounts: the bulk operations work in
+ * place without creating an object per amount, and round half even (banker's rounding) exactly like the corresponding
+ * {@link MonetaryAmount} operations.
+ *
+ * Unlike a MonetaryAmount, a vector is mutable and not thread-safe. Every amount must fit in a long number of cents;
+ * an operation whose result would not throws an <code>ArithmeticException</code>.
+ */
+public final class MonetaryVector {
+
+	private final long[] cents;
+
+	/**
+	 * Creates a vector of the specified size with all amounts zero.
+	 * @param size the number of amounts
+	 */
+	public MonetaryVector(int size) {
+		this.cents = new long[size];
+	}
+
+	private MonetaryVector(long[] cents) {
+		this.cents = cents;
+	}
+
+	/**
+	 * Creates a vector holding a copy of the specified amounts in cents.
+	 * @param cents the amounts in cents
+	 * @return the vector
+	 */
+	public static MonetaryVector ofCents(long... cents) {
+		return new MonetaryVector(cents.clone());
+	}
+
+	/**
+	 * Creates a vector holding the specified amounts, in iteration order.
+	 * @param amounts the monetary amounts
+	 * @return the vector
+	 * @throws ArithmeticException if an amount does not fit in a long number of cents
+	 */
+	public static MonetaryVector valueOf(Collection<MonetaryAmount> amounts) {
+		long[] cents = new long[amounts.size()];
+		int index = 0;
+		for (MonetaryAmount amount : amounts) {
+			cents[index++] = centsOf(amount);
+		}
+		return new MonetaryVector(cents);
+	}
+
+	private static long centsOf(MonetaryAmount amount) {
+		if (!amount.isCompact()) {
+			throw new ArithmeticException("The amount " + amount + " does not fit in a monetary vector");
+		}
+		return amount.cents();
+	}
+
+	/**
+	 * Returns the number of amounts in this vector.
+	 */
+	public int size() {
+		return cents.length;
+	}
+
+	/**
+	 * Returns the amount at the specified index in cents.
+	 * @param index the index
+	 * @return the amount in cents
+	 */
+	public long getCents(int index) {
+		return cents[index];
+	}
+
+	/**
+	 * Returns the amount at the specified index.
+	 * @param index the index
+	 * @return the monetary amount
+	 */
+	public MonetaryAmount get(int index) {
+		return MonetaryAmount.valueOfCents(cents[index]);
+	}
+
+	/**
+	 * Replaces the amount at the specified index.
+	 * @param index the index
+	 * @param cents the new amount in cents
+	 */
+	public void setCents(int index, long cents) {
+		this.cents[index] = cents;
+	}
+
+	/**
+	 * Replaces the amount at the specified index.
+	 * @param index the index
+	 * @param amount the new amount
+	 * @throws ArithmeticException if the amount does not fit in a long number of cents
+	 */
+	public void set(int index, MonetaryAmount amount) {
+		this.cents[index] = centsOf(amount);
+	}
+
+	/**
+	 * Multiplies every amount in this vector by the percentage, in place.
+	 * @param percentage the percentage
+	 * @return this vector
+	 */
+	public MonetaryVector multiplyBy(Percentage percentage) {
+		int hundredths = percentage.hundredths();
+		for (int i = 0; i < cents.length; i++) {
+			cents[i] = MonetaryAmount.multiplyCents(cents[i], hundredths);
+		}
+		return this;
+	}
+
+	/**
+	 * Multiplies every amount in this vector by the percentage at the same index, in place. Useful when each amount
+	 * has its own rate, like dinings at different restaurants.
+	 * @param percentages the percentages, one per amount
+	 * @return this vector
+	 * @throws IllegalArgumentException if there is not one percentage per amount
+	 */
+	public MonetaryVector multiplyBy(Percentage[] percentages) {
+		if (percentages.length != cents.length) {
+			throw new IllegalArgumentException("Expected " + cents.length + " percentages but got "
+					+ percentages.length);
+		}
+		for (int i = 0; i < cents.length; i++) {
+			cents[i] = MonetaryAmount.multiplyCents(cents[i], percentages[i].hundredths());
+		}
+		return this;
+	}
+
+	/**
+	 * Adds the amount at the same index of the other vector to every amount in this vector, in place.
+	 * @param vector the amounts to add
+	 * @return this vector
+	 * @throws IllegalArgumentException if the vectors are not the same size
+	 * @throws ArithmeticException if a sum does not fit in a long number of cents
+	 */
+	public MonetaryVector add(MonetaryVector vector) {
+		if (vector.cents.length != cents.length) {
+			throw new IllegalArgumentException("Cannot add a vector of size " + vector.cents.length
+					+ " to a vector of size " + cents.length);
+		}
+		for (int i = 0; i < cents.length; i++) {
+			cents[i] = Math.addExact(cents[i], vector.cents[i]);
+		}
+		return this;
+	}
+
+	/**
+	 * Returns the sum of all amounts in this vector. Never overflows: a total beyond a long number of cents is
+	 * returned as a BigDecimal based amount.
+	 * @return the total
+	 */
+	public MonetaryAmount sum() {
+		MonetaryAccumulator total = new MonetaryAccumulator();
+		for (long amount : cents) {
+			total.addCents(amount);
+		}
+		return total.total();
+	}
+
+	/**
+	 * Returns the smallest amount in this vector.
+	 * @return the minimum
+	 * @throws NoSuchElementException if this vector is empty
+	 */
+	public MonetaryAmount min() {
+		if (cents.length == 0) {
+			throw new NoSuchElementException("An empty monetary vector has no minimum");
+		}
+		long min = cents[0];
+		for (int i = 1; i < cents.length; i++) {
+			min = Math.min(min, cents[i]);
+		}
+		return MonetaryAmount.valueOfCents(min);
+	}
+
+	/**
+	 * Returns the largest amount in this vector.
+	 * @return the maximum
+	 * @throws NoSuchElementException if this vector is empty
+	 */
+	public MonetaryAmount max() {
+		if (cents.length == 0) {
+			throw new NoSuchElementException("An empty monetary vector has no maximum");
+		}
+		long max = cents[0];
+		for (int i = 1; i < cents.length; i++) {
+			max = Math.max(max, cents[i]);
+		}
+		return MonetaryAmount.valueOfCents(max);
+	}
+
+	/**
+	 * Returns an independent copy of this vector.
+	 */
+	public MonetaryVector copy() {
+		return new MonetaryVector(cents.clone());
+	}
+
+	/**
+	 * Returns a copy of the amounts in cents.
+	 */
+	public long[] toCentsArray() {
+		return cents.clone();
+	}
+
+	/**
+	 * Returns the amounts as a list of monetary amounts, in index order.
+	 */
+	public List<MonetaryAmount> toList() {
+		List<MonetaryAmount> amounts = new ArrayList<>(cents.length);
+		for (long amount : cents) {
+			amounts.add(MonetaryAmount.valueOfCents(amount));
+		}
+		return amounts;
+	}
+
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof MonetaryVector)) {
+			return false;
+		}
+		return Arrays.equals(cents, ((MonetaryVector) o).cents);
+	}
+
+	public int hashCode() {
+		return Arrays.hashCode(cents);
+	}
+
+	public String toString() {
+		return toList().toString();
+	}
+}
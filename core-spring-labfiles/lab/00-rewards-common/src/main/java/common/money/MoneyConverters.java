@@ -0,0 +1,55 @@
+package common.money;
+
+import java.math.BigDecimal;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.core.convert.converter.ConverterRegistry;
+
+/**
+ * Stateless Spring converters between the money types and BigDecimal, for numeric values such as JSON numbers and
+ * decimal columns.
+ */
+public final class MoneyConverters {
+
+	private MoneyConverters() {
+	}
+
+	/**
+	 * Registers all the money converters with the registry.
+	 * @param registry the converter registry, for example a conversion service
+	 */
+	public static void registerConverters(ConverterRegistry registry) {
+		registry.addConverter(new BigDecimalToMonetaryAmountConverter());
+		registry.addConverter(new MonetaryAmountToBigDecimalConverter());
+		registry.addConverter(new BigDecimalToPercentageConverter());
+		registry.addConverter(new PercentageToBigDecimalConverter());
+	}
+
+	public static class BigDecimalToMonetaryAmountConverter implements Converter<BigDecimal, MonetaryAmount> {
+		@Override
+		public MonetaryAmount convert(BigDecimal source) {
+			return new MonetaryAmount(source);
+		}
+	}
+
+	public static class MonetaryAmountToBigDecimalConverter implements Converter<MonetaryAmount, BigDecimal> {
+		@Override
+		public BigDecimal convert(MonetaryAmount source) {
+			return source.asBigDecimal();
+		}
+	}
+
+	public static class BigDecimalToPercentageConverter implements Converter<BigDecimal, Percentage> {
+		@Override
+		public Percentage convert(BigDecimal source) {
+			return Percentage.valueOf(source);
+		}
+	}
+
+	public static class PercentageToBigDecimalConverter implements Converter<Percentage, BigDecimal> {
+		@Override
+		public BigDecimal convert(Percentage source) {
+			return source.asBigDecimal();
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package common.money;
+
+import org.springframework.format.FormatterRegistrar;
+import org.springframework.format.FormatterRegistry;
+
+/**
+ * Registers the MonetaryAmount and Percentage formatters and converters with a formatting conversion service, for
+ * example from <code>WebMvcConfigurer.addFormatters</code>. Spring Boot applications can have them registered with
+ * {@link common.config.EnableCommonFormatting}.
+ */
+public class MoneyFormatterRegistrar implements FormatterRegistrar {
+
+	@Override
+	public void registerFormatters(FormatterRegistry registry) {
+		registry.addFormatter(new MonetaryAmountFormatter());
+		registry.addFormatter(new PercentageFormatter());
+		MoneyConverters.registerConverters(registry);
+	}
+}
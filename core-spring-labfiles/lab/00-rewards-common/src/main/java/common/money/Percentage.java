@@ -3,22 +3,59 @@ package common.money;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonValue;
 
+import javax.persistence.Access;
+import javax.persistence.AccessType;
 import javax.persistence.Embeddable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 
 /**
  * A percentage. Represented as a decimal value with scale 2 between 0.00 and 1.00.
- * 
+ *
+ * There are only 101 such values, so the static factory methods return shared canonical instances from a precomputed
+ * table. Instances created through the public constructors are equal to, but not the same as, the canonical ones.
+ *
  * A value object. Immutable.
  */
 @Embeddable
+@Access(AccessType.PROPERTY)
 public class Percentage implements Serializable {
 
 	private static final long serialVersionUID = 8077279865855620752L;
 
-	private BigDecimal value;
+	/**
+	 * Keep the serialized form of earlier versions: a single scale 2 <code>BigDecimal</code> named "value".
+	 */
+	private static final ObjectStreamField[] serialPersistentFields = { new ObjectStreamField("value",
+			BigDecimal.class) };
+
+	private static final int SCALE = 2;
+
+	private static final int MAX_HUNDREDTHS = 100;
+
+	private static final BigDecimal[] DECIMALS = new BigDecimal[MAX_HUNDREDTHS + 1];
+
+	private static final String[] LABELS = new String[MAX_HUNDREDTHS + 1];
+
+	private static final Percentage[] CANONICAL = new Percentage[MAX_HUNDREDTHS + 1];
+
+	static {
+		for (int i = 0; i <= MAX_HUNDREDTHS; i++) {
+			DECIMALS[i] = BigDecimal.valueOf(i, SCALE);
+			LABELS[i] = i + "%";
+			CANONICAL[i] = new Percentage(i);
+		}
+	}
+
+	/**
+	 * The percentage in hundredths: the unscaled value at scale 2, also the index into the canonical table.
+	 */
+	private int hundredths;
 
 	/**
 	 * Create a new percentage from the specified value. Value must be between 0 and 1. For example, value .45
@@ -27,7 +64,6 @@ public class Percentage implements Serializable {
 	 * @param the percentage value
 	 * @throws IllegalArgumentException if the value is not between 0 and 1
 	 */
-	@JsonCreator
 	public Percentage(BigDecimal value) {
 		initValue(value);
 	}
@@ -43,16 +79,60 @@ public class Percentage implements Serializable {
 		initValue(BigDecimal.valueOf(value));
 	}
 
+	private Percentage(int hundredths) {
+		this.hundredths = hundredths;
+	}
+
 	@SuppressWarnings("unused")
 	private Percentage() {
 	}
 
 	private void initValue(BigDecimal value) {
-		value = value.setScale(2, RoundingMode.HALF_UP);
+		value = value.setScale(SCALE, RoundingMode.HALF_UP);
 		if (value.compareTo(BigDecimal.ZERO) == -1 || value.compareTo(BigDecimal.ONE) == 1) {
 			throw new IllegalArgumentException("Percentage value must be between 0 and 1; your value was " + value);
 		}
-		this.value = value;
+		this.hundredths = value.unscaledValue().intValue();
+	}
+
+	/**
+	 * Returns the canonical percentage for the specified number of hundredths. For example, 45 returns 45%.
+	 * @param hundredths the percentage in hundredths, between 0 and 100
+	 * @return the canonical percentage
+	 * @throws IllegalArgumentException if the value is not between 0 and 100
+	 */
+	public static Percentage valueOfHundredths(int hundredths) {
+		if (hundredths < 0 || hundredths > MAX_HUNDREDTHS) {
+			throw new IllegalArgumentException("Percentage value must be between 0 and 1; your value was "
+					+ BigDecimal.valueOf(hundredths, SCALE));
+		}
+		return CANONICAL[hundredths];
+	}
+
+	/**
+	 * Convert a decimal value (e.g. .45) to the canonical Percentage object, rounding it up to two digits past the
+	 * decimal point.
+	 * @param value the percentage value
+	 * @return the percentage object
+	 * @throws IllegalArgumentException if the value is not between 0 and 1
+	 */
+	@JsonCreator
+	public static Percentage valueOf(BigDecimal value) {
+		return CANONICAL[new Percentage(value).hundredths];
+	}
+
+	/**
+	 * Convert a double value (e.g. .45) to the canonical Percentage object, rounding it up to two digits past the
+	 * decimal point exactly as {@link #Percentage(double)} does.
+	 * @param value the percentage value as a double
+	 * @return the percentage object
+	 * @throws IllegalArgumentException if the value is not between 0 and 1
+	 */
+	public static Percentage valueOf(double value) {
+		// Double.toString gives the same digits BigDecimal.valueOf(double) would use
+		String string = Double.toString(value);
+		int hundredths = parseHundredths(string, 0, string.length());
+		return hundredths >= 0 ? CANONICAL[hundredths] : valueOf(BigDecimal.valueOf(value));
 	}
 
 	/**
@@ -64,6 +144,14 @@ public class Percentage implements Serializable {
 		if (string == null || string.length() == 0) {
 			throw new IllegalArgumentException("The percentage value is required");
 		}
+		int hundredths = parseHundredths(string, 0, string.length());
+		return hundredths >= 0 ? CANONICAL[hundredths] : parseSlow(string);
+	}
+
+	/**
+	 * The general parsing path, used for input the fast path does not handle and to report invalid input.
+	 */
+	private static Percentage parseSlow(String string) {
 		boolean percent = string.endsWith("%");
 		if (percent) {
 			int index = string.lastIndexOf('%');
@@ -73,21 +161,81 @@ public class Percentage implements Serializable {
 		if (percent) {
 			value = value.divide(new BigDecimal(100));
 		}
-		return new Percentage(value);
+		return valueOf(value);
+	}
+
+	/**
+	 * Parses a plain decimal percentage such as "8%", "12.5%", ".45" or "1.00" in the specified range of the text
+	 * straight to hundredths, rounding half up like the constructors. Does not allocate.
+	 * @param text the text holding the percentage
+	 * @param start the index of the first character to parse
+	 * @param end the index after the last character to parse
+	 * @return the percentage in hundredths, or -1 if the text is not a plain decimal between 0% and 100%
+	 */
+	static int parseHundredths(CharSequence text, int start, int end) {
+		boolean percent = end > start && text.charAt(end - 1) == '%';
+		if (percent) {
+			end--;
+		}
+		boolean negative = false;
+		if (start < end && (text.charAt(start) == '-' || text.charAt(start) == '+')) {
+			negative = text.charAt(start) == '-';
+			start++;
+		}
+		// whole part: number of percent points for "%" values, number of units otherwise
+		int whole = 0;
+		int index = start;
+		for (; index < end && isDigit(text.charAt(index)); index++) {
+			whole = whole * 10 + (text.charAt(index) - '0');
+			if (whole > MAX_HUNDREDTHS) {
+				return -1;
+			}
+		}
+		int wholeDigits = index - start;
+		int fractionDigitsKept = percent ? 0 : SCALE;
+		int fraction = 0;
+		int fractionDigits = 0;
+		boolean roundUp = false;
+		if (index < end && text.charAt(index) == '.') {
+			for (index++; index < end && isDigit(text.charAt(index)); index++) {
+				int digit = text.charAt(index) - '0';
+				if (fractionDigits < fractionDigitsKept) {
+					fraction = fraction * 10 + digit;
+				} else if (fractionDigits == fractionDigitsKept) {
+					roundUp = digit >= 5;
+				}
+				fractionDigits++;
+			}
+		}
+		if (index != end || (wholeDigits == 0 && fractionDigits == 0)) {
+			return -1;
+		}
+		for (int i = fractionDigits; i < fractionDigitsKept; i++) {
+			fraction *= 10;
+		}
+		int hundredths = (percent ? whole : whole * 100 + fraction) + (roundUp ? 1 : 0);
+		if (hundredths > MAX_HUNDREDTHS || (negative && hundredths != 0)) {
+			return -1;
+		}
+		return hundredths;
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
 	}
 
 	/**
 	 * Returns zero percent.
 	 */
 	public static Percentage zero() {
-		return new Percentage(0);
+		return CANONICAL[0];
 	}
 
 	/**
 	 * Returns one hundred percent.
 	 */
 	public static Percentage oneHundred() {
-		return new Percentage(1);
+		return CANONICAL[MAX_HUNDREDTHS];
 	}
 
 	/**
@@ -97,7 +245,7 @@ public class Percentage implements Serializable {
 	 * @throws IllegalArgumentException if the new percentage exceeds 1
 	 */
 	public Percentage add(Percentage percentage) throws IllegalArgumentException {
-		return new Percentage(value.add(percentage.value));
+		return valueOfHundredths(hundredths + percentage.hundredths);
 	}
 
 	/**
@@ -105,7 +253,7 @@ public class Percentage implements Serializable {
 	 * @return this percentage as a double
 	 */
 	public double asDouble() {
-		return value.doubleValue();
+		return hundredths / 100.0;
 	}
 
 	/**
@@ -115,21 +263,65 @@ public class Percentage implements Serializable {
 	 */
 	@JsonValue
 	public BigDecimal asBigDecimal() {
-		return value;
+		return DECIMALS[hundredths];
+	}
+
+	/**
+	 * Returns this percentage in hundredths, the unscaled value at scale 2. For example, 45% is 45. Useful for summing
+	 * percentages as integers.
+	 * @return this percentage in hundredths, between 0 and 100
+	 */
+	public int hundredths() {
+		return hundredths;
+	}
+
+	// accessors used by JPA to map this embeddable to a single decimal column named "value"
+
+	@SuppressWarnings("unused")
+	private BigDecimal getValue() {
+		return asBigDecimal();
+	}
+
+	@SuppressWarnings("unused")
+	private void setValue(BigDecimal value) {
+		int previous = hundredths;
+		initValue(value);
+		if (CANONICAL[previous] == this && hundredths != previous) {
+			hundredths = previous;
+			throw new IllegalStateException("The canonical percentage " + this + " cannot be changed");
+		}
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("value", asBigDecimal());
+		out.writeFields();
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = in.readFields();
+		initValue((BigDecimal) fields.get("value", null));
+	}
+
+	private Object readResolve() {
+		return CANONICAL[hundredths];
 	}
 
 	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
 		if (!(o instanceof Percentage)) {
 			return false;
 		}
-		return value.equals(((Percentage) o).value);
+		return hundredths == ((Percentage) o).hundredths;
 	}
 
 	public int hashCode() {
-		return value.hashCode();
+		return hundredths;
 	}
 
 	public String toString() {
-		return value.multiply(new BigDecimal("100")).setScale(0) + "%";
+		return LABELS[hundredths];
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,22 @@
+package common.money;
+
+import java.util.Locale;
+
+import org.springframework.format.Formatter;
+
+/**
+ * A Spring formatter for Percentage properties, e.g. 8%. Stateless and thread-safe, so a single instance can be
+ * registered once for web and configuration binding instead of creating a {@link PercentageEditor} per binding.
+ */
+public class PercentageFormatter implements Formatter<Percentage> {
+
+	@Override
+	public String print(Percentage percentage, Locale locale) {
+		return percentage.toString();
+	}
+
+	@Override
+	public Percentage parse(String text, Locale locale) {
+		return Percentage.valueOf(text);
+	}
+}
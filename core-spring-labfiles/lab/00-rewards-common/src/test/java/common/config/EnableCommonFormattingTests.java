@@ -0,0 +1,64 @@
+package common.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import common.datetime.SimpleDateModule;
+import common.money.MonetaryAmountFormatter;
+
+/**
+ * Tests that the shared formatters are only registered when asked for, and back off for the application's own.
+ */
+public class EnableCommonFormattingTests {
+
+	@Test
+	public void testNothingIsRegisteredUnlessEnabled() {
+		try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(PlainConfig.class)) {
+			assertEquals(0, context.getBeanNamesForType(MonetaryAmountFormatter.class).length);
+			assertEquals(0, context.getBeanNamesForType(SimpleDateModule.class).length);
+		}
+	}
+
+	@Test
+	public void testFormattersAreRegisteredWhenEnabled() {
+		try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(
+				EnabledConfig.class)) {
+			assertEquals(1, context.getBeanNamesForType(MonetaryAmountFormatter.class).length);
+			assertEquals(1, context.getBeanNamesForType(SimpleDateModule.class).length);
+		}
+	}
+
+	@Test
+	public void testApplicationModuleIsKept() {
+		try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(
+				CustomizedConfig.class)) {
+			assertSame(CustomizedConfig.MODULE, context.getBean(SimpleDateModule.class));
+		}
+	}
+
+	@Configuration
+	static class PlainConfig {
+	}
+
+	@Configuration
+	@EnableCommonFormatting
+	static class EnabledConfig {
+	}
+
+	@Configuration
+	@EnableCommonFormatting
+	static class CustomizedConfig {
+
+		static final SimpleDateModule MODULE = new SimpleDateModule();
+
+		@Bean
+		public SimpleDateModule customSimpleDateModule() {
+			return MODULE;
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package common.datetime;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Unit tests for the day clock that caches today's date until midnight.
+ */
+public class CachedDayClockTests {
+
+	private static final ZoneId ZONE = ZoneId.of("America/New_York");
+
+	private MovableClock clock = new MovableClock(LocalDateTime.of(1977, 12, 29, 23, 59, 59));
+
+	private CachedDayClock dayClock = new CachedDayClock(clock);
+
+	@Test
+	public void testTodayIsCachedWithinTheDay() {
+		SimpleDate today = dayClock.today();
+		assertEquals(new SimpleDate(12, 29, 1977), today);
+		clock.set(LocalDateTime.of(1977, 12, 29, 0, 0));
+		assertSame(today, dayClock.today());
+	}
+
+	@Test
+	public void testTodayRollsOverAtMidnight() {
+		dayClock.today();
+		clock.set(LocalDateTime.of(1977, 12, 30, 0, 0));
+		assertEquals(new SimpleDate(12, 30, 1977), dayClock.today());
+	}
+
+	@Test
+	public void testTodayFollowsClockBackwards() {
+		clock.set(LocalDateTime.of(1977, 12, 28, 23, 59));
+		assertEquals(new SimpleDate(12, 28, 1977), dayClock.today());
+	}
+
+	@Test
+	public void testFixedDayClock() {
+		SimpleDate date = new SimpleDate(12, 29, 1977);
+		assertSame(date, DayClock.fixed(date).today());
+	}
+
+	@Test
+	public void testSystemDayClock() {
+		assertEquals(SimpleDate.valueOf(System.currentTimeMillis()), DayClock.system().today());
+	}
+
+	/**
+	 * A clock whose time is set by the test.
+	 */
+	private static class MovableClock extends Clock {
+
+		private Instant instant;
+
+		MovableClock(LocalDateTime dateTime) {
+			set(dateTime);
+		}
+
+		void set(LocalDateTime dateTime) {
+			this.instant = dateTime.atZone(ZONE).toInstant();
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZONE;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Instant instant() {
+			return instant;
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package common.datetime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Locale;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Unit tests for the text, Spring and JSON conversions of SimpleDate and DateInterval.
+ */
+public class SimpleDateCodecTests {
+
+	private SimpleDate date = new SimpleDate(12, 29, 1977);
+
+	private DateInterval interval = new DateInterval(date, new SimpleDate(1, 1, 1978));
+
+	@Test
+	public void testPrintAndParse() {
+		assertEquals("1977-12-29", SimpleDateCodec.print(date, SimpleDateCodec.ISO));
+		assertEquals("December 29, 1977", SimpleDateCodec.print(date, SimpleDateCodec.LONG));
+		assertEquals(date, SimpleDateCodec.parse("1977-12-29", SimpleDateCodec.ISO));
+		assertEquals(date, SimpleDateCodec.parse("December 29, 1977", SimpleDateCodec.LONG));
+	}
+
+	@Test
+	public void testParseBogus() {
+		assertThrows(IllegalArgumentException.class, () -> {
+			SimpleDateCodec.parse("12/29/1977", SimpleDateCodec.ISO);
+		});
+	}
+
+	@Test
+	public void testToString() {
+		assertEquals("1977-12-29", date.toString());
+	}
+
+	@Test
+	public void testIntervalPrintAndParse() {
+		assertEquals("1977-12-29/1978-01-01", SimpleDateCodec.print(interval));
+		DateInterval parsed = SimpleDateCodec.parseInterval("1977-12-29/1978-01-01");
+		assertEquals(interval.getStart(), parsed.getStart());
+		assertEquals(interval.getEnd(), parsed.getEnd());
+	}
+
+	@Test
+	public void testFormatter() throws Exception {
+		SimpleDateFormatter formatter = new SimpleDateFormatter();
+		assertEquals("December 29, 1977", formatter.print(date, Locale.US));
+		assertEquals(date, formatter.parse("December 29, 1977", Locale.US));
+	}
+
+	@Test
+	public void testJson() throws Exception {
+		ObjectMapper mapper = new ObjectMapper().registerModule(new SimpleDateModule());
+		assertEquals("\"1977-12-29\"", mapper.writeValueAsString(date));
+		assertEquals(date, mapper.readValue("\"1977-12-29\"", SimpleDate.class));
+
+		String json = mapper.writeValueAsString(interval);
+		assertEquals("{\"start\":\"1977-12-29\",\"end\":\"1978-01-01\"}", json);
+		DateInterval parsed = mapper.readValue(json, DateInterval.class);
+		assertEquals(interval.getStart(), parsed.getStart());
+		assertEquals(interval.getEnd(), parsed.getEnd());
+	}
+}
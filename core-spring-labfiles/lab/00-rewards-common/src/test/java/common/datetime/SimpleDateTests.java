@@ -2,6 +2,7 @@ package common.datetime;
 
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Calendar;
 import java.util.Date;
@@ -39,4 +40,26 @@ public class SimpleDateTests {
 		SimpleDate today2 = SimpleDate.valueOf(time);
 		assertEquals(today, today2);
 	}
+
+	@Test
+	public void testEpochDay() {
+		SimpleDate date = new SimpleDate(1, 2, 1970);
+		assertEquals(1, date.toEpochDay());
+		assertEquals(date, SimpleDate.ofEpochDay(1));
+	}
+
+	@Test
+	public void testOutOfRangeFieldsRollOver() {
+		assertEquals(new SimpleDate(1, 9, 1978), new SimpleDate(12, 40, 1977));
+		assertEquals(new SimpleDate(12, 31, 1976), new SimpleDate(1, 0, 1977));
+	}
+
+	@Test
+	public void testCompareTo() {
+		SimpleDate earlier = new SimpleDate(12, 29, 1977);
+		SimpleDate later = new SimpleDate(1, 1, 1978);
+		assertTrue(earlier.compareTo(later) < 0);
+		assertTrue(later.compareTo(earlier) > 0);
+		assertEquals(0, earlier.compareTo(new SimpleDate(12, 29, 1977)));
+	}
 }
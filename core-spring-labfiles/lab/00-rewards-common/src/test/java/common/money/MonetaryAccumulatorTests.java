@@ -0,0 +1,69 @@
+package common.money;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the MonetaryAccumulator and ConcurrentMonetaryAccumulator classes.
+ */
+public class MonetaryAccumulatorTests {
+
+	@Test
+	public void testAdd() {
+		MonetaryAccumulator accumulator = new MonetaryAccumulator(MonetaryAmount.valueOf("100.00"));
+		accumulator.add(MonetaryAmount.valueOf("8.00")).add(MonetaryAmount.valueOf("-0.50")).addCents(1);
+		assertEquals(MonetaryAmount.valueOf("107.51"), accumulator.total());
+		accumulator.reset();
+		assertEquals(MonetaryAmount.zero(), accumulator.total());
+	}
+
+	@Test
+	public void testAddBeyondLongCents() {
+		MonetaryAccumulator accumulator = new MonetaryAccumulator();
+		accumulator.addCents(Long.MAX_VALUE).addCents(Long.MAX_VALUE).addCents(2);
+		assertEquals(new BigDecimal("184467440737095516.16"), accumulator.total().asBigDecimal());
+		accumulator.addCents(-Long.MAX_VALUE);
+		assertEquals(MonetaryAmount.valueOfCents(Long.MAX_VALUE).add(MonetaryAmount.valueOf("0.02")),
+				accumulator.total());
+	}
+
+	@Test
+	public void testConcurrentAdd() throws Exception {
+		ConcurrentMonetaryAccumulator accumulator = new ConcurrentMonetaryAccumulator();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Callable<Object>> tasks = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				tasks.add(Executors.callable(() -> {
+					for (int j = 0; j < 10000; j++) {
+						accumulator.add(MonetaryAmount.valueOf("0.25"));
+					}
+				}));
+			}
+			executor.invokeAll(tasks);
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(MonetaryAmount.valueOf("10000.00"), accumulator.total());
+	}
+
+	@Test
+	public void testConcurrentAddBeyondLongCents() {
+		ConcurrentMonetaryAccumulator accumulator = new ConcurrentMonetaryAccumulator();
+		accumulator.addCents(Long.MAX_VALUE);
+		accumulator.addCents(Long.MAX_VALUE);
+		accumulator.add(new MonetaryAmount(new BigDecimal("1E+20")));
+		assertEquals(new BigDecimal("100000000000000000000.00").add(new BigDecimal("184467440737095516.14")),
+				accumulator.total().asBigDecimal());
+		accumulator.reset();
+		assertEquals(MonetaryAmount.zero(), accumulator.total());
+	}
+}
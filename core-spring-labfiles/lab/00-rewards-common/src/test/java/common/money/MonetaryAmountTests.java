@@ -58,4 +58,49 @@ public class MonetaryAmountTests {
 		MonetaryAmount amt = MonetaryAmount.valueOf(".1");
 		assertEquals(new BigDecimal(".10"), amt.asBigDecimal());
 	}
+
+	@Test
+	public void testMonetarySubtract() {
+		MonetaryAmount amt = MonetaryAmount.valueOf("5.00");
+		assertEquals("$-2.50", amt.subtract(MonetaryAmount.valueOf("7.50")).toString());
+	}
+
+	@Test
+	public void testMultiplyByPercentageRoundsHalfEven() {
+		assertEquals(MonetaryAmount.valueOf("0.02"), MonetaryAmount.valueOf("0.05").multiplyBy(Percentage.valueOf("50%")));
+		assertEquals(MonetaryAmount.valueOf("0.08"), MonetaryAmount.valueOf("0.15").multiplyBy(Percentage.valueOf("50%")));
+	}
+
+	@Test
+	public void testValueOfCents() {
+		assertEquals(MonetaryAmount.valueOf("12.50"), MonetaryAmount.valueOfCents(1250));
+	}
+
+	@Test
+	public void testAddBeyondLongCents() {
+		MonetaryAmount max = MonetaryAmount.valueOfCents(Long.MAX_VALUE);
+		MonetaryAmount sum = max.add(MonetaryAmount.valueOf("0.01"));
+		assertEquals(new BigDecimal("92233720368547758.08"), sum.asBigDecimal());
+		assertEquals(max, sum.subtract(MonetaryAmount.valueOf("0.01")));
+	}
+
+	@Test
+	public void testValueOfStringRoundsHalfEven() {
+		assertEquals(MonetaryAmount.valueOfCents(1000), MonetaryAmount.valueOf("$10.005"));
+		assertEquals(MonetaryAmount.valueOfCents(1002), MonetaryAmount.valueOf("10.015"));
+		assertEquals(MonetaryAmount.valueOfCents(1001), MonetaryAmount.valueOf("10.0050001"));
+		assertEquals(MonetaryAmount.valueOfCents(-50), MonetaryAmount.valueOf("-.5"));
+		assertEquals(new BigDecimal("1000.00"), MonetaryAmount.valueOf("1E+3").asBigDecimal());
+	}
+
+	@Test
+	public void testValueOfStringBeyondParsedUnits() {
+		// the largest amount parsed straight to cents, and the smallest left to the general parsing path
+		assertEquals(9223372036854775799L, MonetaryAmount.parseCents("92233720368547757.99", 0, 20));
+		assertEquals(MonetaryAmount.NOT_PARSED, MonetaryAmount.parseCents("92233720368547758", 0, 17));
+		assertEquals(MonetaryAmount.valueOfCents(Long.MAX_VALUE), MonetaryAmount.valueOf("92233720368547758.07"));
+		assertEquals(new BigDecimal("100000000000000000.00"), MonetaryAmount.valueOf("100000000000000000").asBigDecimal());
+		assertEquals(new BigDecimal("-99999999999999999999.00"), MonetaryAmount.valueOf("-99999999999999999999")
+			.asBigDecimal());
+	}
 }
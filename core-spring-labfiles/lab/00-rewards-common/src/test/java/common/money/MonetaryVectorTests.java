@@ -0,0 +1,78 @@
+package common.money;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests that make sure the MonetaryVector class works in isolation.
+ */
+public class MonetaryVectorTests {
+
+	@Test
+	public void testMultiplyByPercentageMatchesMonetaryAmount() {
+		List<MonetaryAmount> amounts = Arrays.asList(MonetaryAmount.valueOf("100.00"), MonetaryAmount.valueOf("0.05"),
+				MonetaryAmount.valueOf("0.15"), MonetaryAmount.valueOf("-0.15"));
+		MonetaryVector vector = MonetaryVector.valueOf(amounts).multiplyBy(Percentage.valueOf("50%"));
+		for (int i = 0; i < amounts.size(); i++) {
+			assertEquals(amounts.get(i).multiplyBy(Percentage.valueOf("50%")), vector.get(i));
+		}
+	}
+
+	@Test
+	public void testMultiplyByPercentages() {
+		MonetaryVector vector = MonetaryVector.ofCents(10000, 10000);
+		vector.multiplyBy(new Percentage[] { Percentage.valueOf("8%"), Percentage.valueOf("10%") });
+		assertEquals(MonetaryVector.ofCents(800, 1000), vector);
+		assertThrows(IllegalArgumentException.class, () -> {
+			vector.multiplyBy(new Percentage[] { Percentage.valueOf("8%") });
+		});
+	}
+
+	@Test
+	public void testAdd() {
+		MonetaryVector vector = MonetaryVector.ofCents(100, 200).add(MonetaryVector.ofCents(1, -300));
+		assertEquals(MonetaryVector.ofCents(101, -100), vector);
+		assertThrows(ArithmeticException.class, () -> {
+			MonetaryVector.ofCents(Long.MAX_VALUE).add(MonetaryVector.ofCents(1));
+		});
+	}
+
+	@Test
+	public void testSumMinMax() {
+		MonetaryVector vector = MonetaryVector.ofCents(1250, -300, 800);
+		assertEquals(MonetaryAmount.valueOf("17.50"), vector.sum());
+		assertEquals(MonetaryAmount.valueOf("-3.00"), vector.min());
+		assertEquals(MonetaryAmount.valueOf("12.50"), vector.max());
+		assertEquals(MonetaryAmount.zero(), new MonetaryVector(0).sum());
+		assertThrows(NoSuchElementException.class, () -> {
+			new MonetaryVector(0).min();
+		});
+	}
+
+	@Test
+	public void testSumBeyondLongCents() {
+		MonetaryVector vector = MonetaryVector.ofCents(Long.MAX_VALUE, 1, 1);
+		assertEquals(new BigDecimal("92233720368547758.09"), vector.sum().asBigDecimal());
+	}
+
+	@Test
+	public void testConversions() {
+		List<MonetaryAmount> amounts = Arrays.asList(MonetaryAmount.valueOf("1.00"), MonetaryAmount.valueOf("2.50"));
+		MonetaryVector vector = MonetaryVector.valueOf(amounts);
+		assertEquals(amounts, vector.toList());
+		assertEquals(250, vector.toCentsArray()[1]);
+		MonetaryVector copy = vector.copy();
+		copy.setCents(0, 0);
+		assertEquals(MonetaryAmount.valueOf("1.00"), vector.get(0));
+		assertThrows(ArithmeticException.class, () -> {
+			vector.set(0, new MonetaryAmount(new BigDecimal("1E+30")));
+		});
+	}
+}
@@ -0,0 +1,51 @@
+package common.money;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.format.support.DefaultFormattingConversionService;
+
+/**
+ * Unit tests for the Spring formatters and converters of MonetaryAmount and Percentage.
+ */
+public class MoneyFormatterRegistrarTests {
+
+	private DefaultFormattingConversionService conversionService = createConversionService();
+
+	private static DefaultFormattingConversionService createConversionService() {
+		DefaultFormattingConversionService conversionService = new DefaultFormattingConversionService();
+		new MoneyFormatterRegistrar().registerFormatters(conversionService);
+		return conversionService;
+	}
+
+	@Test
+	public void testFormatMonetaryAmount() {
+		assertEquals(MonetaryAmount.valueOfCents(1250), conversionService.convert("$12.50", MonetaryAmount.class));
+		assertEquals(MonetaryAmount.valueOfCents(1250), conversionService.convert("12.5", MonetaryAmount.class));
+		assertEquals("$12.50", conversionService.convert(MonetaryAmount.valueOfCents(1250), String.class));
+		assertNull(conversionService.convert("", MonetaryAmount.class));
+	}
+
+	@Test
+	public void testFormatPercentage() {
+		assertSame(Percentage.valueOfHundredths(8), conversionService.convert("8%", Percentage.class));
+		assertSame(Percentage.valueOfHundredths(8), conversionService.convert(".08", Percentage.class));
+		assertEquals("8%", conversionService.convert(Percentage.valueOfHundredths(8), String.class));
+		assertNull(conversionService.convert(" ", Percentage.class));
+	}
+
+	@Test
+	public void testConvertBigDecimal() {
+		assertEquals(MonetaryAmount.valueOfCents(1250),
+				conversionService.convert(new BigDecimal("12.50"), MonetaryAmount.class));
+		assertEquals(new BigDecimal("12.50"),
+				conversionService.convert(MonetaryAmount.valueOfCents(1250), BigDecimal.class));
+		assertSame(Percentage.valueOfHundredths(8), conversionService.convert(new BigDecimal(".08"), Percentage.class));
+		assertEquals(new BigDecimal("0.08"),
+				conversionService.convert(Percentage.valueOfHundredths(8), BigDecimal.class));
+	}
+}
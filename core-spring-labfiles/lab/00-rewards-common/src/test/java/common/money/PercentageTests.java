@@ -2,6 +2,8 @@ package common.money;
 
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
  * Unit tests that make sure the Percentage class works in isolation.
@@ -38,4 +40,37 @@ public class PercentageTests {
 		Percentage p = new Percentage(.255555);
 		assertEquals("26%", p.toString());
 	}
+
+	@Test
+	public void testValueOfReturnsCanonicalInstance() {
+		assertSame(Percentage.valueOf("50%"), Percentage.valueOf("0.5"));
+		assertSame(Percentage.valueOf("50%"), Percentage.valueOf(.5));
+		assertSame(Percentage.oneHundred(), Percentage.valueOf("50%").add(Percentage.valueOf("50%")));
+	}
+
+	@Test
+	public void testValueOfStringWithRounding() {
+		assertEquals(Percentage.valueOf("13%"), Percentage.valueOf("12.5%"));
+		assertEquals(Percentage.valueOf("26%"), Percentage.valueOf(".255"));
+	}
+
+	@Test
+	public void testConstructedPercentageEqualsCanonical() {
+		assertEquals(Percentage.valueOf("25%"), new Percentage(.25));
+		assertEquals(Percentage.valueOf("25%").hashCode(), new Percentage(.25).hashCode());
+	}
+
+	@Test
+	public void testAddOver100() {
+		assertThrows(IllegalArgumentException.class, () -> {
+			Percentage.valueOf("60%").add(Percentage.valueOf("50%"));
+		});
+	}
+
+	@Test
+	public void testValueOfOutOfRange() {
+		assertThrows(IllegalArgumentException.class, () -> {
+			Percentage.valueOf("101%");
+		});
+	}
 }
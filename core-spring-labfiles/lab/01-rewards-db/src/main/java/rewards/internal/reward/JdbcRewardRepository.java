@@ -7,7 +7,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 
-import common.datetime.SimpleDate;
+import common.datetime.DayClock;
+import common.datetime.SimpleDateCodec;
 import rewards.AccountContribution;
 import rewards.Dining;
 import rewards.RewardConfirmation;
@@ -24,12 +25,22 @@ public class JdbcRewardRepository implements RewardRepository {
 
 	private JdbcTemplate jdbcTemplate;
 
+	private DayClock dayClock = DayClock.system();
+
 	@Autowired
 	public JdbcRewardRepository(DataSource dataSource) {
 		this.jdbcTemplate = new JdbcTemplate(dataSource);
 		logger.info("Created JdbcRewardRepository");
 	}
 
+	/**
+	 * Sets the clock that provides the reward date. Defaults to today's date
+	 * in the default time zone.
+	 */
+	public void setDayClock(DayClock dayClock) {
+		this.dayClock = dayClock;
+	}
+
 	@Override
 	public String getInfo() {
 		return TYPE;
@@ -40,8 +51,9 @@ public class JdbcRewardRepository implements RewardRepository {
 		String sql = "insert into T_REWARD (CONFIRMATION_NUMBER, REWARD_AMOUNT, REWARD_DATE, ACCOUNT_NUMBER, DINING_MERCHANT_NUMBER, DINING_DATE, DINING_AMOUNT) values (?, ?, ?, ?, ?, ?, ?)";
 		String confirmationNumber = nextConfirmationNumber();
 		jdbcTemplate.update(sql, confirmationNumber, contribution.getAmount().asBigDecimal(),
-				SimpleDate.today().asDate(), contribution.getAccountNumber(), dining.getMerchantNumber(),
-				dining.getDate().asDate(), dining.getAmount().asBigDecimal());
+				SimpleDateCodec.toJdbcValue(dayClock.today()), contribution.getAccountNumber(),
+				dining.getMerchantNumber(), SimpleDateCodec.toJdbcValue(dining.getDate()),
+				dining.getAmount().asBigDecimal());
 		return new RewardConfirmation(confirmationNumber, contribution);
 	}
 
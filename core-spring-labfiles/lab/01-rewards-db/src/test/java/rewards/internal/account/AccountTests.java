@@ -1,5 +1,6 @@
 package rewards.internal.account;
 
+import common.money.AllocationStatus;
 import common.money.MonetaryAmount;
 import common.money.Percentage;
 import org.junit.jupiter.api.Test;
@@ -41,6 +42,16 @@ public class AccountTests {
 		assertFalse(account.isValid());
 	}
 
+	@Test
+	public void allocationStatusReportsOverAndUnderAllocation() {
+		assertEquals(AllocationStatus.UNDER_ALLOCATED, account.checkAllocations());
+		account.addBeneficiary("Annabelle", Percentage.valueOf("50%"));
+		account.addBeneficiary("Corgan", Percentage.valueOf("50%"));
+		assertEquals(AllocationStatus.VALID, account.checkAllocations());
+		account.addBeneficiary("Keri", Percentage.valueOf("1%"));
+		assertEquals(AllocationStatus.OVER_ALLOCATED, account.checkAllocations());
+	}
+
 	@Test
 	public void makeContribution() {
 		account.addBeneficiary("Annabelle", Percentage.valueOf("50%"));
@@ -0,0 +1,111 @@
+package rewards.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+
+import rewards.internal.account.Account;
+import rewards.internal.account.AccountRowReader;
+import rewards.internal.account.Beneficiary;
+
+import common.money.MonetaryAmount;
+import common.money.Percentage;
+
+/**
+ * Compares mapping the rows of the account join by column label, with savings and percentages read as strings and
+ * parsed, against mapping them with an {@link AccountRowReader}. Both map every row of the join over a generated
+ * dataset, one row per account, credit card and beneficiary, so the time of the query itself is the same for both.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccountMappingBenchmarks {
+
+	private static final String SQL = "select a.ID as ID, a.NUMBER as ACCOUNT_NUMBER, a.NAME as ACCOUNT_NAME, c.NUMBER as CREDIT_CARD_NUMBER, b.NAME as BENEFICIARY_NAME, b.ALLOCATION_PERCENTAGE as BENEFICIARY_ALLOCATION_PERCENTAGE, b.SAVINGS as BENEFICIARY_SAVINGS from T_ACCOUNT a, T_ACCOUNT_BENEFICIARY b, T_ACCOUNT_CREDIT_CARD c where ID = b.ACCOUNT_ID and ID = c.ACCOUNT_ID";
+
+	@Param({ "10000" })
+	private int accounts;
+
+	private EmbeddedDatabase database;
+
+	private JdbcTemplate jdbcTemplate;
+
+	@Setup
+	public void setUp() {
+		database = new EmbeddedDatabaseBuilder()
+			.setName("rewards")
+			.addScript("/rewards/testdb/schema.sql")
+			.build();
+		new RewardsDataset(42, accounts, 100).load(database);
+		jdbcTemplate = new JdbcTemplate(database);
+	}
+
+	@TearDown
+	public void tearDown() {
+		database.shutdown();
+	}
+
+	@Benchmark
+	public List<Beneficiary> byLabel() {
+		Map<Long, Account> accountsById = new HashMap<Long, Account>();
+		List<Beneficiary> beneficiaries = new ArrayList<Beneficiary>();
+		jdbcTemplate.query(SQL, (RowCallbackHandler) rs -> {
+			Long id = rs.getLong("ID");
+			if (!accountsById.containsKey(id)) {
+				Account account = new Account(rs.getString("ACCOUNT_NUMBER"), rs.getString("ACCOUNT_NAME"));
+				account.setEntityId(id);
+				accountsById.put(id, account);
+			}
+			rs.getString("CREDIT_CARD_NUMBER");
+			String name = rs.getString("BENEFICIARY_NAME");
+			MonetaryAmount savings = MonetaryAmount.valueOf(rs.getString("BENEFICIARY_SAVINGS"));
+			Percentage allocationPercentage = Percentage.valueOf(rs.getString("BENEFICIARY_ALLOCATION_PERCENTAGE"));
+			Beneficiary beneficiary = new Beneficiary(name, allocationPercentage);
+			beneficiary.credit(savings);
+			beneficiaries.add(beneficiary);
+		});
+		return beneficiaries;
+	}
+
+	@Benchmark
+	public List<Beneficiary> byIndex() {
+		Map<Long, Account> accountsById = new HashMap<Long, Account>();
+		List<Beneficiary> beneficiaries = new ArrayList<Beneficiary>();
+		jdbcTemplate.query(SQL, (ResultSetExtractor<Void>) rs -> {
+			AccountRowReader reader = new AccountRowReader(rs);
+			while (rs.next()) {
+				Long id = reader.getAccountId(rs);
+				if (!accountsById.containsKey(id)) {
+					accountsById.put(id, reader.mapAccount(rs));
+				}
+				reader.getCreditCardNumber(rs);
+				beneficiaries.add(reader.mapBeneficiary(rs));
+			}
+			return null;
+		});
+		return beneficiaries;
+	}
+}
@@ -0,0 +1,165 @@
+package rewards.benchmark;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rewards.AccountContribution;
+import rewards.Dining;
+import rewards.RewardConfirmation;
+import rewards.internal.RewardNetworkImpl;
+import rewards.internal.account.Account;
+import rewards.internal.account.AccountRepository;
+import rewards.internal.restaurant.Restaurant;
+import rewards.internal.restaurant.RestaurantRepository;
+import rewards.internal.reward.RewardRepository;
+
+import common.money.Percentage;
+
+/**
+ * Compares the latency of a reward with the account and restaurant looked up one after the other against looking
+ * them up concurrently. The repositories simulate a database round trip of the given duration per call, so a
+ * sequential reward takes four round trips and a concurrent one three.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LookupFanOutBenchmarks {
+
+	@Param({ "200", "1000" })
+	private long roundTripMicros;
+
+	private ExecutorService lookupExecutor;
+
+	private RewardNetworkImpl sequentialNetwork;
+
+	private RewardNetworkImpl concurrentNetwork;
+
+	private Dining dining = Dining.createDining("100.00", "1234123412341234", "1234567890");
+
+	@Setup
+	public void setUp() {
+		long roundTripNanos = TimeUnit.MICROSECONDS.toNanos(roundTripMicros);
+		sequentialNetwork = new RewardNetworkImpl(new SlowAccountRepository(roundTripNanos),
+				new SlowRestaurantRepository(roundTripNanos), new SlowRewardRepository(roundTripNanos));
+		concurrentNetwork = new RewardNetworkImpl(new SlowAccountRepository(roundTripNanos),
+				new SlowRestaurantRepository(roundTripNanos), new SlowRewardRepository(roundTripNanos));
+		lookupExecutor = Executors.newFixedThreadPool(4);
+		concurrentNetwork.setLookupExecutor(lookupExecutor);
+	}
+
+	@TearDown
+	public void tearDown() {
+		lookupExecutor.shutdown();
+	}
+
+	@Benchmark
+	public RewardConfirmation sequentialLookups() {
+		return sequentialNetwork.rewardAccountFor(dining);
+	}
+
+	@Benchmark
+	public RewardConfirmation concurrentLookups() {
+		return concurrentNetwork.rewardAccountFor(dining);
+	}
+
+	private static void roundTrip(long nanos) {
+		LockSupport.parkNanos(nanos);
+	}
+
+	private static class SlowAccountRepository implements AccountRepository {
+
+		private long roundTripNanos;
+
+		SlowAccountRepository(long roundTripNanos) {
+			this.roundTripNanos = roundTripNanos;
+		}
+
+		public Account findByCreditCard(String creditCardNumber) {
+			roundTrip(roundTripNanos);
+			Account account = new Account("123456789", "Keith and Keri Donald");
+			account.addBeneficiary("Annabelle", Percentage.valueOf("50%"));
+			account.addBeneficiary("Corgan", Percentage.valueOf("50%"));
+			return account;
+		}
+
+		public Map<String, Account> findByCreditCards(Collection<String> creditCardNumbers) {
+			throw new UnsupportedOperationException();
+		}
+
+		public void updateBeneficiaries(Account account) {
+			roundTrip(roundTripNanos);
+		}
+
+		public void updateBeneficiaries(Collection<Account> accounts) {
+			throw new UnsupportedOperationException();
+		}
+
+		public void creditBeneficiaries(Account account, AccountContribution contribution) {
+			roundTrip(roundTripNanos);
+		}
+
+		public void creditBeneficiaries(List<Account> accounts, List<AccountContribution> contributions) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	private static class SlowRestaurantRepository implements RestaurantRepository {
+
+		private long roundTripNanos;
+
+		SlowRestaurantRepository(long roundTripNanos) {
+			this.roundTripNanos = roundTripNanos;
+		}
+
+		public Restaurant findByMerchantNumber(String merchantNumber) {
+			roundTrip(roundTripNanos);
+			Restaurant restaurant = new Restaurant(merchantNumber, "Apple Bees");
+			restaurant.setBenefitPercentage(Percentage.valueOf("8%"));
+			restaurant.setBenefitAvailabilityPolicy((account, dining) -> true);
+			return restaurant;
+		}
+
+		public Map<String, Restaurant> findByMerchantNumbers(Collection<String> merchantNumbers) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	private static class SlowRewardRepository implements RewardRepository {
+
+		private long roundTripNanos;
+
+		SlowRewardRepository(long roundTripNanos) {
+			this.roundTripNanos = roundTripNanos;
+		}
+
+		public RewardConfirmation confirmReward(AccountContribution contribution, Dining dining) {
+			roundTrip(roundTripNanos);
+			return new RewardConfirmation("1", contribution);
+		}
+
+		public List<RewardConfirmation> confirmRewards(List<AccountContribution> contributions, List<Dining> dinings) {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
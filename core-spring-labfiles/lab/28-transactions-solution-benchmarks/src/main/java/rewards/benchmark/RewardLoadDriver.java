@@ -0,0 +1,260 @@
+package rewards.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import rewards.Dining;
+import rewards.RewardNetwork;
+import rewards.internal.RewardNetworkImpl;
+import rewards.internal.account.JdbcAccountRepository;
+import rewards.internal.restaurant.JdbcRestaurantRepository;
+import rewards.internal.reward.JdbcRewardRepository;
+
+/**
+ * Loads a {@link RewardsDataset} into the embedded database and pushes its dinings through a {@link RewardNetwork},
+ * each reward in its own transaction, then reports the throughput and latency percentiles.
+ *
+ * In a closed loop every thread starts the next reward as soon as the previous one completes, which measures the most
+ * the network can do. At a fixed rate the rewards are scheduled at even intervals whatever the network does, and each
+ * latency is measured from when its reward was due rather than from when a thread got to it, so a stall is charged to
+ * every reward queued behind it instead of hiding them.
+ *
+ * Options are given as <code>name=value</code> arguments, for example
+ * <code>java -cp target/benchmarks.jar rewards.benchmark.RewardLoadDriver accounts=1000000 rate=2000</code>:
+ * <ul>
+ * <li><code>accounts</code>, <code>restaurants</code> and <code>seed</code>: the dataset</li>
+ * <li><code>threads</code>: the number of threads making rewards</li>
+ * <li><code>rate</code>: rewards per second, or 0 for a closed loop</li>
+ * <li><code>warmup</code> and <code>duration</code>: the seconds to run before and while measuring</li>
+ * </ul>
+ */
+public class RewardLoadDriver {
+
+	private RewardNetwork rewardNetwork;
+
+	private TransactionTemplate transactionTemplate;
+
+	private RewardsDataset dataset;
+
+	private int threads;
+
+	private long intervalNanos;
+
+	private AtomicLong nextDining = new AtomicLong();
+
+	public RewardLoadDriver(RewardNetwork rewardNetwork, TransactionTemplate transactionTemplate,
+			RewardsDataset dataset, int threads, double rate) {
+		this.rewardNetwork = rewardNetwork;
+		this.transactionTemplate = transactionTemplate;
+		this.dataset = dataset;
+		this.threads = threads;
+		this.intervalNanos = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / rate) : 0;
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		Map<String, String> options = new HashMap<String, String>();
+		for (String arg : args) {
+			int equals = arg.indexOf('=');
+			if (equals < 0) {
+				throw new IllegalArgumentException("Expected name=value but got '" + arg + "'");
+			}
+			options.put(arg.substring(0, equals), arg.substring(equals + 1));
+		}
+		RewardsDataset dataset = new RewardsDataset(Long.parseLong(options.getOrDefault("seed", "42")),
+				Integer.parseInt(options.getOrDefault("accounts", "100000")),
+				Integer.parseInt(options.getOrDefault("restaurants", "1000")));
+		int threads = Integer.parseInt(options.getOrDefault("threads", "4"));
+		double rate = Double.parseDouble(options.getOrDefault("rate", "0"));
+		int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+		int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+
+		EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+			.setName("rewards")
+			.addScript("/rewards/testdb/schema.sql")
+			.build();
+		try {
+			long start = System.nanoTime();
+			long rows = dataset.load(database);
+			System.out.printf("Loaded %,d rows for %,d accounts and %,d restaurants in %,d ms%n", rows,
+					dataset.getAccountCount(), dataset.getRestaurantCount(),
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+			JdbcAccountRepository accountRepository = new JdbcAccountRepository();
+			accountRepository.setDataSource(database);
+			JdbcRestaurantRepository restaurantRepository = new JdbcRestaurantRepository();
+			restaurantRepository.setDataSource(database);
+			JdbcRewardRepository rewardRepository = new JdbcRewardRepository();
+			rewardRepository.setDataSource(database);
+			RewardNetwork rewardNetwork = new RewardNetworkImpl(accountRepository, restaurantRepository,
+					rewardRepository);
+			TransactionTemplate transactionTemplate = new TransactionTemplate(
+					new DataSourceTransactionManager(database));
+
+			RewardLoadDriver driver = new RewardLoadDriver(rewardNetwork, transactionTemplate, dataset, threads, rate);
+			driver.run(TimeUnit.SECONDS.toNanos(warmup));
+			Result result = driver.run(TimeUnit.SECONDS.toNanos(duration));
+			System.out.println(result);
+		} finally {
+			database.shutdown();
+		}
+	}
+
+	/**
+	 * Makes rewards for the given time and returns what was measured. Successive runs continue with the next dinings
+	 * of the dataset.
+	 * @param durationNanos how long to make rewards
+	 * @return the throughput and latencies
+	 */
+	public Result run(long durationNanos) throws InterruptedException {
+		long start = System.nanoTime();
+		long end = start + durationNanos;
+		long firstDining = nextDining.get();
+		List<Worker> workers = new ArrayList<Worker>(threads);
+		for (int i = 0; i < threads; i++) {
+			Worker worker = new Worker(start, end, firstDining);
+			workers.add(worker);
+			worker.thread.start();
+		}
+		for (Worker worker : workers) {
+			worker.thread.join();
+		}
+		long elapsed = System.nanoTime() - start;
+		int count = 0;
+		long failures = 0;
+		for (Worker worker : workers) {
+			count += worker.count;
+			failures += worker.failures;
+		}
+		long[] latencies = new long[count];
+		int offset = 0;
+		for (Worker worker : workers) {
+			System.arraycopy(worker.latencies, 0, latencies, offset, worker.count);
+			offset += worker.count;
+		}
+		Arrays.sort(latencies);
+		return new Result(latencies, failures, elapsed);
+	}
+
+	/**
+	 * A thread making rewards and recording their latencies.
+	 */
+	private class Worker implements Runnable {
+
+		private Thread thread = new Thread(this, "reward-load");
+
+		private long start;
+
+		private long end;
+
+		private long firstDining;
+
+		private long[] latencies = new long[1024];
+
+		private int count;
+
+		private long failures;
+
+		Worker(long start, long end, long firstDining) {
+			this.start = start;
+			this.end = end;
+			this.firstDining = firstDining;
+		}
+
+		public void run() {
+			while (true) {
+				long n = nextDining.getAndIncrement();
+				long due = System.nanoTime();
+				if (intervalNanos > 0) {
+					due = start + (n - firstDining) * intervalNanos;
+					long wait = due - System.nanoTime();
+					if (wait > 0) {
+						LockSupport.parkNanos(wait);
+					}
+				}
+				if (due >= end) {
+					return;
+				}
+				Dining dining = dataset.dining(n);
+				try {
+					transactionTemplate.executeWithoutResult(status -> rewardNetwork.rewardAccountFor(dining));
+				} catch (RuntimeException e) {
+					failures++;
+				}
+				record(System.nanoTime() - due);
+			}
+		}
+
+		private void record(long latency) {
+			if (count == latencies.length) {
+				latencies = Arrays.copyOf(latencies, count * 2);
+			}
+			latencies[count++] = latency;
+		}
+	}
+
+	/**
+	 * The throughput and latency percentiles of a run.
+	 */
+	public static class Result {
+
+		private long[] sortedLatencies;
+
+		private long failures;
+
+		private long elapsedNanos;
+
+		Result(long[] sortedLatencies, long failures, long elapsedNanos) {
+			this.sortedLatencies = sortedLatencies;
+			this.failures = failures;
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		/**
+		 * Returns the number of rewards made, including failed ones.
+		 */
+		public int getCount() {
+			return sortedLatencies.length;
+		}
+
+		public long getFailures() {
+			return failures;
+		}
+
+		/**
+		 * Returns the rewards made per second.
+		 */
+		public double getThroughput() {
+			return sortedLatencies.length * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+		}
+
+		/**
+		 * Returns the latency in nanoseconds that the given fraction of rewards did not exceed.
+		 * @param fraction the fraction, e.g. 0.99 for the 99th percentile
+		 */
+		public long getPercentile(double fraction) {
+			if (sortedLatencies.length == 0) {
+				return 0;
+			}
+			int index = (int) Math.ceil(fraction * sortedLatencies.length) - 1;
+			return sortedLatencies[Math.max(0, Math.min(index, sortedLatencies.length - 1))];
+		}
+
+		public String toString() {
+			return String.format("%,d rewards (%,d failed) at %,.0f/s; latency p50 %,d us, p99 %,d us, p99.9 %,d us",
+					getCount(), failures, getThroughput(), TimeUnit.NANOSECONDS.toMicros(getPercentile(0.5)),
+					TimeUnit.NANOSECONDS.toMicros(getPercentile(0.99)),
+					TimeUnit.NANOSECONDS.toMicros(getPercentile(0.999)));
+		}
+	}
+}
@@ -0,0 +1,345 @@
+package rewards.benchmark;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import rewards.Dining;
+
+import common.datetime.SimpleDate;
+import common.money.MonetaryAmount;
+
+/**
+ * A synthetic rewards dataset of any size, matching <code>rewards/testdb/schema.sql</code>: accounts with their credit
+ * cards and beneficiaries, restaurants, and an endless stream of dinings at those restaurants charged to those cards.
+ *
+ * The dataset is a pure function of its seed and sizes. Every account, restaurant and dining is generated from a random
+ * generator seeded with the dataset seed and its own index, so any row can be generated on its own, in any order, and
+ * the same seed always gives the same rows. Nothing is held in memory, so datasets of millions of accounts can be
+ * written or loaded in constant space.
+ *
+ * Account <code>i</code> has account number <code>i</code> and database id <code>i</code>, one to
+ * {@value #MAX_CREDIT_CARDS} credit cards and one to {@value #MAX_BENEFICIARIES} beneficiaries whose allocations add up
+ * to 100%. Restaurant <code>j</code> has merchant number <code>j</code>; one in ten never grants a benefit.
+ */
+public class RewardsDataset {
+
+	/**
+	 * The most credit cards of an account.
+	 */
+	public static final int MAX_CREDIT_CARDS = 3;
+
+	/**
+	 * The most beneficiaries of an account.
+	 */
+	public static final int MAX_BENEFICIARIES = 4;
+
+	/**
+	 * The rows inserted per JDBC batch when loading.
+	 */
+	private static final int BATCH_SIZE = 10000;
+
+	private static final long FIRST_CREDIT_CARD_NUMBER = 4000000000000000L;
+
+	private static final int FIRST_DINING_DAY = (int) LocalDate.of(2022, 1, 1).toEpochDay();
+
+	private static final int DINING_DAYS = 365;
+
+	private static final String[] FIRST_NAMES = { "Keith", "Keri", "Dollie", "Cornelia", "Coral", "Chad", "Michael",
+			"John", "Ida", "Laina", "Wesley", "Leslie", "Pietronella", "Glenda", "Willemina", "Antje", "Julia", "Mark",
+			"Christine", "Annabelle", "Corgan", "Eric", "Sam", "Noor" };
+
+	private static final String[] LAST_NAMES = { "Donald", "Adams", "Andresen", "Betancourt", "Cobbs", "Feller",
+			"Grover", "Howard", "Ketterer", "Lucero", "Mayo", "Mcclary", "Mudra", "Nielsen", "Oleary", "Smith",
+			"Thygesen", "Vogt", "Weber", "Williams", "Wilson" };
+
+	private static final String[] RESTAURANT_NAMES = { "AppleBees", "Bistro", "Brasserie", "Cantina", "Diner",
+			"Grill", "Noodle Bar", "Osteria", "Pizzeria", "Steakhouse", "Sushi Bar", "Taqueria" };
+
+	private static final long ACCOUNTS = 0x6163636f756e7473L;
+
+	private static final long RESTAURANTS = 0x7265737461757261L;
+
+	private static final long DININGS = 0x64696e696e677321L;
+
+	private long seed;
+
+	private int accountCount;
+
+	private int restaurantCount;
+
+	/**
+	 * Creates a dataset.
+	 * @param seed the seed all rows are generated from
+	 * @param accountCount the number of accounts
+	 * @param restaurantCount the number of restaurants
+	 */
+	public RewardsDataset(long seed, int accountCount, int restaurantCount) {
+		if (accountCount < 1 || restaurantCount < 1) {
+			throw new IllegalArgumentException("A dataset needs at least one account and one restaurant");
+		}
+		this.seed = seed;
+		this.accountCount = accountCount;
+		this.restaurantCount = restaurantCount;
+	}
+
+	/**
+	 * Writes the SQL script of a dataset to a file, for example
+	 * <code>java -cp target/benchmarks.jar rewards.benchmark.RewardsDataset 42 1000000 10000 data.sql</code>.
+	 * @param args the seed, the number of accounts, the number of restaurants and the file to write
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 4) {
+			throw new IllegalArgumentException("Expected: seed accounts restaurants file");
+		}
+		RewardsDataset dataset = new RewardsDataset(Long.parseLong(args[0]), Integer.parseInt(args[1]),
+				Integer.parseInt(args[2]));
+		try (Writer out = Files.newBufferedWriter(Paths.get(args[3]), StandardCharsets.UTF_8)) {
+			dataset.writeScript(out);
+		}
+	}
+
+	public int getAccountCount() {
+		return accountCount;
+	}
+
+	public int getRestaurantCount() {
+		return restaurantCount;
+	}
+
+	/**
+	 * Returns the account number of account <code>i</code>.
+	 */
+	public static String accountNumber(int i) {
+		return String.format("%09d", i);
+	}
+
+	/**
+	 * Returns the number of credit card <code>c</code> of account <code>i</code>.
+	 */
+	public static String creditCardNumber(int i, int c) {
+		return String.valueOf(FIRST_CREDIT_CARD_NUMBER + (long) i * MAX_CREDIT_CARDS + c);
+	}
+
+	/**
+	 * Returns the merchant number of restaurant <code>j</code>.
+	 */
+	public static String merchantNumber(int j) {
+		return String.format("%010d", j);
+	}
+
+	/**
+	 * Returns the number of credit cards of account <code>i</code>.
+	 */
+	public int creditCardCount(int i) {
+		return 1 + (int) Long.remainderUnsigned(mix(seed ^ ACCOUNTS, ~i), MAX_CREDIT_CARDS);
+	}
+
+	/**
+	 * Returns dining <code>n</code> of the dataset: an amount between 5.00 and 200.00, charged to a random credit card
+	 * at a random restaurant on a day in 2022.
+	 */
+	public Dining dining(long n) {
+		SplittableRandom random = random(DININGS, n);
+		int account = random.nextInt(accountCount);
+		String creditCardNumber = creditCardNumber(account, random.nextInt(creditCardCount(account)));
+		String merchantNumber = merchantNumber(random.nextInt(restaurantCount));
+		MonetaryAmount amount = MonetaryAmount.valueOfCents(random.nextLong(500, 20001));
+		SimpleDate date = SimpleDate.ofEpochDay(FIRST_DINING_DAY + random.nextInt(DINING_DAYS));
+		return new Dining(amount, creditCardNumber, merchantNumber, date);
+	}
+
+	/**
+	 * Writes the dataset as an SQL script in the format of <code>rewards/testdb/data.sql</code>, to be run after the
+	 * schema script.
+	 * @param out where to write the script
+	 * @throws IOException the script could not be written
+	 */
+	public void writeScript(Writer out) throws IOException {
+		for (int i = 0; i < accountCount; i++) {
+			Account account = account(i);
+			out.write("insert into T_ACCOUNT (ID, NUMBER, NAME) values (" + i + ", '" + accountNumber(i) + "', '"
+					+ account.name + "');\n");
+		}
+		out.write("\n");
+		for (int i = 0; i < accountCount; i++) {
+			for (int c = 0; c < creditCardCount(i); c++) {
+				out.write("insert into T_ACCOUNT_CREDIT_CARD (ACCOUNT_ID, NUMBER) values (" + i + ", '"
+						+ creditCardNumber(i, c) + "');\n");
+			}
+		}
+		out.write("\n");
+		for (int i = 0; i < accountCount; i++) {
+			Account account = account(i);
+			for (int b = 0; b < account.beneficiaryNames.size(); b++) {
+				out.write("insert into T_ACCOUNT_BENEFICIARY (ACCOUNT_ID, NAME, ALLOCATION_PERCENTAGE, SAVINGS) values ("
+						+ i + ", '" + account.beneficiaryNames.get(b) + "', " + account.allocations.get(b) + ", "
+						+ account.savings.get(b) + ");\n");
+			}
+		}
+		out.write("\n");
+		for (int j = 0; j < restaurantCount; j++) {
+			Restaurant restaurant = restaurant(j);
+			out.write("insert into T_RESTAURANT (MERCHANT_NUMBER, NAME, BENEFIT_PERCENTAGE, BENEFIT_AVAILABILITY_POLICY)\n"
+					+ "\tvalues ('" + merchantNumber(j) + "', '" + restaurant.name + "', "
+					+ restaurant.benefitPercentage + ", '" + restaurant.policy + "');\n");
+		}
+	}
+
+	/**
+	 * Inserts the dataset into a database with the rewards schema and no data, in JDBC batches.
+	 * @param dataSource the database
+	 * @return the number of rows inserted
+	 */
+	public long load(DataSource dataSource) {
+		BatchInserter accounts = new BatchInserter(dataSource,
+				"insert into T_ACCOUNT (ID, NUMBER, NAME) values (?, ?, ?)");
+		BatchInserter creditCards = new BatchInserter(dataSource,
+				"insert into T_ACCOUNT_CREDIT_CARD (ACCOUNT_ID, NUMBER) values (?, ?)");
+		BatchInserter beneficiaries = new BatchInserter(dataSource,
+				"insert into T_ACCOUNT_BENEFICIARY (ACCOUNT_ID, NAME, ALLOCATION_PERCENTAGE, SAVINGS) values (?, ?, ?, ?)");
+		BatchInserter restaurants = new BatchInserter(dataSource,
+				"insert into T_RESTAURANT (MERCHANT_NUMBER, NAME, BENEFIT_PERCENTAGE, BENEFIT_AVAILABILITY_POLICY) values (?, ?, ?, ?)");
+		// one table at a time, so every account is inserted before the rows referring to it
+		for (int i = 0; i < accountCount; i++) {
+			accounts.add(i, accountNumber(i), account(i).name);
+		}
+		long inserted = accounts.finish();
+		for (int i = 0; i < accountCount; i++) {
+			for (int c = 0; c < creditCardCount(i); c++) {
+				creditCards.add(i, creditCardNumber(i, c));
+			}
+		}
+		inserted += creditCards.finish();
+		for (int i = 0; i < accountCount; i++) {
+			Account account = account(i);
+			for (int b = 0; b < account.beneficiaryNames.size(); b++) {
+				beneficiaries.add(i, account.beneficiaryNames.get(b), account.allocations.get(b),
+						account.savings.get(b));
+			}
+		}
+		inserted += beneficiaries.finish();
+		for (int j = 0; j < restaurantCount; j++) {
+			Restaurant restaurant = restaurant(j);
+			restaurants.add(merchantNumber(j), restaurant.name, restaurant.benefitPercentage, restaurant.policy);
+		}
+		return inserted + restaurants.finish();
+	}
+
+	private Account account(int i) {
+		SplittableRandom random = random(ACCOUNTS, i);
+		Account account = new Account();
+		account.name = pick(random, FIRST_NAMES) + " " + pick(random, LAST_NAMES);
+		int beneficiaryCount = 1 + random.nextInt(MAX_BENEFICIARIES);
+		// split 100 hundredths at distinct random points, so every beneficiary gets at least 1%
+		int[] cuts = random.ints(1, 100).distinct().limit(beneficiaryCount - 1).sorted().toArray();
+		// consecutive first names, so the names are distinct within the account
+		int firstName = random.nextInt(FIRST_NAMES.length);
+		int previous = 0;
+		for (int b = 0; b < beneficiaryCount; b++) {
+			int next = b < cuts.length ? cuts[b] : 100;
+			account.beneficiaryNames.add(FIRST_NAMES[(firstName + b) % FIRST_NAMES.length]);
+			account.allocations.add(BigDecimal.valueOf(next - previous, 2));
+			account.savings.add(BigDecimal.valueOf(random.nextLong(100000), 2));
+			previous = next;
+		}
+		return account;
+	}
+
+	private Restaurant restaurant(int j) {
+		SplittableRandom random = random(RESTAURANTS, j);
+		Restaurant restaurant = new Restaurant();
+		restaurant.name = pick(random, RESTAURANT_NAMES) + " " + j;
+		restaurant.benefitPercentage = BigDecimal.valueOf(1 + random.nextInt(10), 2);
+		restaurant.policy = random.nextInt(10) == 0 ? "N" : "A";
+		return restaurant;
+	}
+
+	private SplittableRandom random(long kind, long index) {
+		return new SplittableRandom(mix(seed ^ kind, index));
+	}
+
+	private static String pick(SplittableRandom random, String[] values) {
+		return values[random.nextInt(values.length)];
+	}
+
+	/**
+	 * Mixes a seed and an index into a well distributed 64 bit value, with the finalizer of SplittableRandom.
+	 */
+	private static long mix(long seed, long index) {
+		long z = seed + index * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	private static class Account {
+
+		private String name;
+
+		private List<String> beneficiaryNames = new ArrayList<String>(MAX_BENEFICIARIES);
+
+		private List<BigDecimal> allocations = new ArrayList<BigDecimal>(MAX_BENEFICIARIES);
+
+		private List<BigDecimal> savings = new ArrayList<BigDecimal>(MAX_BENEFICIARIES);
+	}
+
+	private static class Restaurant {
+
+		private String name;
+
+		private BigDecimal benefitPercentage;
+
+		private String policy;
+	}
+
+	/**
+	 * Collects the rows of one insert statement and writes them a batch at a time.
+	 */
+	private static class BatchInserter {
+
+		private JdbcTemplate jdbcTemplate;
+
+		private String sql;
+
+		private List<Object[]> batch = new ArrayList<Object[]>(BATCH_SIZE);
+
+		private long inserted;
+
+		BatchInserter(DataSource dataSource, String sql) {
+			this.jdbcTemplate = new JdbcTemplate(dataSource);
+			this.sql = sql;
+		}
+
+		void add(Object... row) {
+			batch.add(row);
+			if (batch.size() == BATCH_SIZE) {
+				flush();
+			}
+		}
+
+		long finish() {
+			flush();
+			return inserted;
+		}
+
+		private void flush() {
+			if (!batch.isEmpty()) {
+				jdbcTemplate.batchUpdate(sql, batch);
+				inserted += batch.size();
+				batch.clear();
+			}
+		}
+	}
+}
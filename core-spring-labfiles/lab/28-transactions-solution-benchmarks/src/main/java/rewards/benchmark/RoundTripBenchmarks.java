@@ -0,0 +1,178 @@
+package rewards.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+
+import rewards.Dining;
+import rewards.RewardConfirmation;
+import rewards.internal.RewardNetworkImpl;
+import rewards.internal.StoredProcedureRewardNetwork;
+import rewards.internal.account.JdbcAccountRepository;
+import rewards.internal.restaurant.JdbcRestaurantRepository;
+import rewards.internal.reward.JdbcRewardRepository;
+
+/**
+ * Compares the latency of a reward made with the JDBC repositories against a reward made by a single stored procedure
+ * call, on the embedded test database. Each statement executed is made to wait for the given round trip first, so
+ * the difference in statements shows as it would against a database across the network; the statements made per
+ * reward are printed after each iteration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoundTripBenchmarks {
+
+	@Param({ "0", "200" })
+	private long roundTripMicros;
+
+	private EmbeddedDatabase database;
+
+	private RoundTripDataSource dataSource;
+
+	private RewardNetworkImpl rewardNetworkImpl;
+
+	private StoredProcedureRewardNetwork storedProcedureRewardNetwork;
+
+	private Dining dining = Dining.createDining("100.00", "1234123412341234", "1234567890");
+
+	private long rewards;
+
+	@Setup
+	public void setUp() {
+		database = new EmbeddedDatabaseBuilder()
+			.setName("rewards")
+			.addScript("/rewards/testdb/schema.sql")
+			.addScript("/rewards/testdb/data.sql")
+			.build();
+		dataSource = new RoundTripDataSource(database, TimeUnit.MICROSECONDS.toNanos(roundTripMicros));
+		JdbcAccountRepository accountRepository = new JdbcAccountRepository();
+		accountRepository.setDataSource(dataSource);
+		JdbcRestaurantRepository restaurantRepository = new JdbcRestaurantRepository();
+		restaurantRepository.setDataSource(dataSource);
+		JdbcRewardRepository rewardRepository = new JdbcRewardRepository();
+		rewardRepository.setDataSource(dataSource);
+		rewardNetworkImpl = new RewardNetworkImpl(accountRepository, restaurantRepository, rewardRepository);
+		storedProcedureRewardNetwork = new StoredProcedureRewardNetwork(dataSource, rewardNetworkImpl);
+	}
+
+	@TearDown
+	public void tearDown() {
+		database.shutdown();
+	}
+
+	@Setup(Level.Iteration)
+	public void resetCounts() {
+		dataSource.roundTrips.set(0);
+		rewards = 0;
+	}
+
+	@TearDown(Level.Iteration)
+	public void printRoundTrips() {
+		if (rewards > 0) {
+			System.out.printf("%n%.2f round trips per reward%n", (double) dataSource.roundTrips.get() / rewards);
+		}
+	}
+
+	@Benchmark
+	public RewardConfirmation rewardNetworkImpl() {
+		rewards++;
+		return rewardNetworkImpl.rewardAccountFor(dining);
+	}
+
+	@Benchmark
+	public RewardConfirmation storedProcedure() {
+		rewards++;
+		return storedProcedureRewardNetwork.rewardAccountFor(dining);
+	}
+
+	/**
+	 * Counts the statements executed on its connections, batches counting as one, and waits for a round trip before
+	 * each.
+	 */
+	private static class RoundTripDataSource extends DelegatingDataSource {
+
+		private long roundTripNanos;
+
+		private AtomicLong roundTrips = new AtomicLong();
+
+		RoundTripDataSource(DataSource dataSource, long roundTripNanos) {
+			super(dataSource);
+			this.roundTripNanos = roundTripNanos;
+		}
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			Connection connection = super.getConnection();
+			return proxy(Connection.class, connection, (target, method, args) -> {
+				Object result = method.invoke(target, args);
+				if (result instanceof CallableStatement) {
+					return proxy(CallableStatement.class, result, this::execute);
+				} else if (result instanceof PreparedStatement) {
+					return proxy(PreparedStatement.class, result, this::execute);
+				} else if (result instanceof Statement) {
+					return proxy(Statement.class, result, this::execute);
+				}
+				return result;
+			});
+		}
+
+		private Object execute(Object statement, Method method, Object[] args) throws Throwable {
+			if (method.getName().startsWith("execute")) {
+				roundTrips.incrementAndGet();
+				if (roundTripNanos > 0) {
+					LockSupport.parkNanos(roundTripNanos);
+				}
+			}
+			return method.invoke(statement, args);
+		}
+
+		private static <T> T proxy(Class<T> type, Object target, Interceptor interceptor) {
+			InvocationHandler handler = (proxy, method, args) -> {
+				try {
+					return interceptor.invoke(target, method, args);
+				} catch (InvocationTargetException e) {
+					throw e.getCause();
+				}
+			};
+			return type.cast(Proxy.newProxyInstance(RoundTripBenchmarks.class.getClassLoader(),
+					new Class<?>[] { type }, handler));
+		}
+	}
+
+	private interface Interceptor {
+
+		Object invoke(Object target, Method method, Object[] args) throws Throwable;
+	}
+}
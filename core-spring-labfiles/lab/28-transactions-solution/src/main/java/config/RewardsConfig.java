@@ -2,13 +2,21 @@ package config;
 
 import javax.sql.DataSource;
 
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
+import rewards.AsyncRewardNetwork;
 import rewards.RewardNetwork;
+import rewards.internal.AsyncRewardNetworkImpl;
+import rewards.internal.LockingRewardNetwork;
 import rewards.internal.RewardNetworkImpl;
+import rewards.internal.StripedLockManager;
 import rewards.internal.account.AccountRepository;
 import rewards.internal.account.JdbcAccountRepository;
 import rewards.internal.restaurant.JdbcRestaurantRepository;
@@ -21,17 +29,53 @@ import rewards.internal.reward.RewardRepository;
 @EnableTransactionManagement
 public class RewardsConfig {
 
+	/**
+	 * The most rewards run at once when the connection pool size cannot be determined: the default pool size of
+	 * HikariCP, the pool Spring Boot uses by default.
+	 */
+	private static final int DEFAULT_MAX_CONNECTIONS = 10;
+
 	@Autowired
 	DataSource dataSource;
+
+	/**
+	 * Times the stages of each reward when the application has a meter registry, e.g. from Spring Boot Actuator.
+	 */
+	@Autowired(required = false)
+	MeterRegistry meterRegistry;
 		
 	@Bean
 	public RewardNetwork rewardNetwork(){
-		return new RewardNetworkImpl(
+		RewardNetworkImpl rewardNetwork = new RewardNetworkImpl(
 			accountRepository(), 
 			restaurantRepository(), 
 			rewardRepository());
+		rewardNetwork.setMeterRegistry(meterRegistry);
+		return rewardNetwork;
 	}
 	
+	/**
+	 * Runs rewards asynchronously, at most one per pooled database connection at a time. Rewards for the same credit
+	 * card are applied in the order they were submitted: they run one at a time on the stripe of the lock manager, so
+	 * a hot card holds at most one worker while its other rewards wait in the stripe's queue. Its queue depth and
+	 * rewards in flight are published to the meter registry, if there is one.
+	 */
+	@Bean
+	public AsyncRewardNetwork asyncRewardNetwork(){
+		AsyncRewardNetworkImpl asyncRewardNetwork = new AsyncRewardNetworkImpl(
+				new LockingRewardNetwork(rewardNetwork(), rewardLockManager()), maxConnections(dataSource),
+				Integer.MAX_VALUE, rewardLockManager());
+		if (meterRegistry != null) {
+			asyncRewardNetwork.bindTo(meterRegistry);
+		}
+		return asyncRewardNetwork;
+	}
+
+	@Bean
+	public StripedLockManager rewardLockManager(){
+		return new StripedLockManager();
+	}
+
 	@Bean
 	public AccountRepository accountRepository(){
 		JdbcAccountRepository repository = new JdbcAccountRepository();
@@ -52,5 +96,22 @@ public class RewardsConfig {
 		repository.setDataSource(dataSource);
 		return repository;
 	}
-	
+
+	/**
+	 * Returns the size of the connection pool behind the data source, read from the pool size property of the
+	 * common pools (HikariCP, Commons DBCP 2 and Tomcat JDBC) without depending on any of them.
+	 */
+	private static int maxConnections(DataSource dataSource) {
+		BeanWrapper pool = PropertyAccessorFactory.forBeanPropertyAccess(dataSource);
+		for (String property : new String[] { "maximumPoolSize", "maxTotal", "maxActive" }) {
+			if (pool.isReadableProperty(property)) {
+				Object size = pool.getPropertyValue(property);
+				if (size instanceof Integer && (Integer) size > 0) {
+					return (Integer) size;
+				}
+			}
+		}
+		return DEFAULT_MAX_CONNECTIONS;
+	}
+
 }
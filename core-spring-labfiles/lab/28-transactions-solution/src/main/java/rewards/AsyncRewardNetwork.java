@@ -0,0 +1,20 @@
+package rewards;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Rewards a member account for dining without blocking the caller. The non-blocking counterpart of
+ * {@link RewardNetwork}: each reward still runs in its own transaction, just on a thread of the network instead of the
+ * caller's.
+ */
+public interface AsyncRewardNetwork {
+
+	/**
+	 * Reward an account for dining. The same eligibility rules as {@link RewardNetwork#rewardAccountFor(Dining)}
+	 * apply; a dining that is not eligible completes the returned future exceptionally.
+	 * 
+	 * @param dining a charge made to a credit card for dining at a restaurant
+	 * @return a future completed with confirmation of the reward
+	 */
+	public CompletableFuture<RewardConfirmation> rewardAccountFor(Dining dining);
+}
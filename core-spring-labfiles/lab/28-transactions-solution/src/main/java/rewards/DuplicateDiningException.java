@@ -0,0 +1,27 @@
+package rewards;
+
+/**
+ * Thrown when a dining is not rewarded because the same dining was already submitted for reward recently, for example
+ * when a merchant sends its records again.
+ */
+@SuppressWarnings("serial")
+public class DuplicateDiningException extends RuntimeException {
+
+	private Dining dining;
+
+	/**
+	 * Creates a new duplicate dining exception.
+	 * @param dining the dining that was submitted again
+	 */
+	public DuplicateDiningException(Dining dining) {
+		super("Already rewarded recently: " + dining);
+		this.dining = dining;
+	}
+
+	/**
+	 * Returns the dining that was submitted again.
+	 */
+	public Dining getDining() {
+		return dining;
+	}
+}
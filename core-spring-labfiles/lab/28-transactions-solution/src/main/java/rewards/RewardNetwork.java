@@ -1,5 +1,7 @@
 package rewards;
 
+import java.util.List;
+
 /**
  * Rewards a member account for dining at a restaurant.
  * 
@@ -25,4 +27,15 @@ public interface RewardNetwork {
 	 * @return confirmation of the reward
 	 */
 	public RewardConfirmation rewardAccountFor(Dining dining);
-}
\ No newline at end of file
+
+	/**
+	 * Reward accounts for a batch of dinings, such as a merchant settlement file.
+	 * 
+	 * Each dining is subject to the same eligibility rules as {@link #rewardAccountFor(Dining)}. A dining that is not
+	 * eligible is reported as failed in its result without aborting the rest of the batch.
+	 * 
+	 * @param dinings the charges made to credit cards for dining at restaurants
+	 * @return the result for each dining, in the same order as the dinings
+	 */
+	public List<RewardResult> rewardAccountsFor(List<Dining> dinings);
+}
@@ -0,0 +1,74 @@
+package rewards;
+
+/**
+ * The outcome of rewarding a single dining as part of a batch: either the reward confirmation, or the reason the
+ * dining could not be rewarded. A failed dining does not stop the rest of the batch from being rewarded.
+ * 
+ * A value object. Immutable.
+ */
+public class RewardResult {
+
+	private Dining dining;
+
+	private RewardConfirmation confirmation;
+
+	private RuntimeException failure;
+
+	private RewardResult(Dining dining, RewardConfirmation confirmation, RuntimeException failure) {
+		this.dining = dining;
+		this.confirmation = confirmation;
+		this.failure = failure;
+	}
+
+	/**
+	 * Creates the result of a dining that was rewarded.
+	 * @param dining the dining
+	 * @param confirmation confirmation of the reward
+	 * @return the result
+	 */
+	public static RewardResult confirmed(Dining dining, RewardConfirmation confirmation) {
+		return new RewardResult(dining, confirmation, null);
+	}
+
+	/**
+	 * Creates the result of a dining that could not be rewarded.
+	 * @param dining the dining
+	 * @param failure why the dining could not be rewarded, e.g. an unknown credit card
+	 * @return the result
+	 */
+	public static RewardResult failed(Dining dining, RuntimeException failure) {
+		return new RewardResult(dining, null, failure);
+	}
+
+	/**
+	 * Returns the dining this is the result for.
+	 */
+	public Dining getDining() {
+		return dining;
+	}
+
+	/**
+	 * Returns true if the dining was rewarded.
+	 */
+	public boolean isRewarded() {
+		return confirmation != null;
+	}
+
+	/**
+	 * Returns confirmation of the reward, or null if the dining could not be rewarded.
+	 */
+	public RewardConfirmation getConfirmation() {
+		return confirmation;
+	}
+
+	/**
+	 * Returns why the dining could not be rewarded, or null if it was rewarded.
+	 */
+	public RuntimeException getFailure() {
+		return failure;
+	}
+
+	public String toString() {
+		return isRewarded() ? "Rewarded " + confirmation : "Failed " + dining + ": " + failure;
+	}
+}
@@ -0,0 +1,270 @@
+package rewards.internal;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import rewards.AsyncRewardNetwork;
+import rewards.Dining;
+import rewards.RewardConfirmation;
+import rewards.RewardNetwork;
+
+/**
+ * Rewards accounts asynchronously by running each reward transaction of a {@link RewardNetwork} on a bounded pool of
+ * worker threads.
+ * 
+ * Every running reward holds a database connection for its transaction, so the number of rewards running at once is
+ * limited, typically to the size of the connection pool. Rewards beyond the limit wait in a queue; once the optional
+ * queue limit is reached too, new rewards are rejected with a future completed by a
+ * {@link RejectedExecutionException}. The queue depth, the number of rewards in flight and the number completed are
+ * exposed for monitoring, and published as meters when bound to a {@link MeterRegistry}.
+ *
+ * Rewards may be ordered by credit card: given the stripes of a {@link StripedLockManager}, the rewards of each stripe
+ * run one at a time in the order they were submitted, and only the one running takes a worker thread. The others wait
+ * in the stripe's own queue, so a burst of rewards for a hot card never ties up more than one worker.
+ */
+public class AsyncRewardNetworkImpl implements AsyncRewardNetwork, MeterBinder {
+
+	private RewardNetwork rewardNetwork;
+
+	private ThreadPoolExecutor executor;
+
+	private int maxQueueDepth;
+
+	/**
+	 * The queue of each stripe when rewards are ordered by credit card, otherwise null.
+	 */
+	private SerialStripe[] stripes;
+
+	private StripedLockManager lockManager;
+
+	private AtomicInteger inFlight = new AtomicInteger();
+
+	private LongAdder completed = new LongAdder();
+
+	/**
+	 * The number of rewards waiting in the queue of a stripe rather than in the executor's.
+	 */
+	private AtomicInteger waitingInStripes = new AtomicInteger();
+
+	/**
+	 * Creates a new asynchronous reward network with an unbounded queue.
+	 * @param rewardNetwork the transactional reward network that rewards each dining
+	 * @param maxConcurrency the most rewards to run at once, e.g. the database connection pool size
+	 */
+	public AsyncRewardNetworkImpl(RewardNetwork rewardNetwork, int maxConcurrency) {
+		this(rewardNetwork, maxConcurrency, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a new asynchronous reward network.
+	 * @param rewardNetwork the transactional reward network that rewards each dining
+	 * @param maxConcurrency the most rewards to run at once, e.g. the database connection pool size
+	 * @param maxQueueDepth the most rewards waiting to run before new ones are rejected
+	 */
+	public AsyncRewardNetworkImpl(RewardNetwork rewardNetwork, int maxConcurrency, int maxQueueDepth) {
+		this.rewardNetwork = rewardNetwork;
+		this.maxQueueDepth = maxQueueDepth;
+		this.executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 0, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>(maxQueueDepth), new RewardThreadFactory());
+	}
+
+	/**
+	 * Creates a new asynchronous reward network that runs the rewards of each stripe of credit card numbers in the
+	 * order they were submitted.
+	 * @param rewardNetwork the transactional reward network that rewards each dining
+	 * @param maxConcurrency the most rewards to run at once, e.g. the database connection pool size
+	 * @param maxQueueDepth the most rewards waiting to run before new ones are rejected
+	 * @param lockManager the lock manager whose stripes to order rewards by, typically the one of the
+	 * {@link LockingRewardNetwork} the rewards run through
+	 */
+	public AsyncRewardNetworkImpl(RewardNetwork rewardNetwork, int maxConcurrency, int maxQueueDepth,
+			StripedLockManager lockManager) {
+		this.rewardNetwork = rewardNetwork;
+		this.maxQueueDepth = maxQueueDepth;
+		// at most one reward per stripe is ever queued here, the queue limit applies to the stripe queues
+		this.executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 0, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>(), new RewardThreadFactory());
+		this.lockManager = lockManager;
+		this.stripes = new SerialStripe[lockManager.getStripeCount()];
+		for (int i = 0; i < stripes.length; i++) {
+			stripes[i] = new SerialStripe();
+		}
+	}
+
+	public CompletableFuture<RewardConfirmation> rewardAccountFor(Dining dining) {
+		if (stripes == null) {
+			try {
+				return CompletableFuture.supplyAsync(() -> reward(dining), executor);
+			} catch (RejectedExecutionException e) {
+				return CompletableFuture.failedFuture(e);
+			}
+		}
+		if (executor.isShutdown() || getQueueDepth() >= maxQueueDepth) {
+			return CompletableFuture.failedFuture(new RejectedExecutionException("Reward for " + dining
+					+ " rejected: " + (executor.isShutdown() ? "shut down" : "the queue is full")));
+		}
+		CompletableFuture<RewardConfirmation> future = new CompletableFuture<RewardConfirmation>();
+		try {
+			stripes[lockManager.stripeOf(dining.getCreditCardNumber())].submit(() -> {
+				try {
+					future.complete(reward(dining));
+				} catch (Throwable e) {
+					future.completeExceptionally(e);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	private RewardConfirmation reward(Dining dining) {
+		inFlight.incrementAndGet();
+		try {
+			return rewardNetwork.rewardAccountFor(dining);
+		} finally {
+			inFlight.decrementAndGet();
+			completed.increment();
+		}
+	}
+
+	/**
+	 * Returns the number of rewards waiting for a worker thread.
+	 */
+	public int getQueueDepth() {
+		return executor.getQueue().size() + waitingInStripes.get();
+	}
+
+	/**
+	 * Returns the number of rewards running right now.
+	 */
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	/**
+	 * Returns the number of rewards completed so far, successfully or not.
+	 */
+	public long getCompletedCount() {
+		return completed.sum();
+	}
+
+	/**
+	 * Returns the most rewards run at once.
+	 */
+	public int getMaxConcurrency() {
+		return executor.getMaximumPoolSize();
+	}
+
+	/**
+	 * Publishes the queue depth, the rewards in flight, the most rewards run at once and the rewards completed, so
+	 * back-pressure can be watched alongside the connection pool.
+	 */
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("rewards.async.queue.depth", this, AsyncRewardNetworkImpl::getQueueDepth)
+				.description("The number of rewards waiting for a worker thread")
+				.register(registry);
+		Gauge.builder("rewards.async.in.flight", this, AsyncRewardNetworkImpl::getInFlight)
+				.description("The number of rewards running right now")
+				.register(registry);
+		Gauge.builder("rewards.async.max.concurrency", this, AsyncRewardNetworkImpl::getMaxConcurrency)
+				.description("The most rewards run at once")
+				.register(registry);
+		FunctionCounter.builder("rewards.async.completed", this, AsyncRewardNetworkImpl::getCompletedCount)
+				.description("The number of rewards completed, successfully or not")
+				.register(registry);
+	}
+
+	/**
+	 * Stops accepting rewards. Rewards already accepted still run.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	/**
+	 * The rewards of one stripe, run one at a time in submission order. The stripe hands itself to the executor to run
+	 * its next reward, so it takes a worker thread only while a reward is running and its rewards take turns with
+	 * those of other stripes.
+	 */
+	private class SerialStripe {
+
+		private final ArrayDeque<Runnable> rewards = new ArrayDeque<Runnable>();
+
+		private boolean scheduled;
+
+		void submit(Runnable reward) {
+			synchronized (this) {
+				if (scheduled) {
+					rewards.add(reward);
+					waitingInStripes.incrementAndGet();
+					return;
+				}
+				scheduled = true;
+			}
+			try {
+				executor.execute(() -> runThenScheduleNext(reward));
+			} catch (RejectedExecutionException e) {
+				// shut down meanwhile: rewards queued behind this one were accepted, so they still run
+				Runnable next;
+				synchronized (this) {
+					next = rewards.poll();
+					scheduled = next != null;
+				}
+				if (next != null) {
+					waitingInStripes.decrementAndGet();
+					runThenScheduleNext(next);
+				}
+				throw e;
+			}
+		}
+
+		private void runThenScheduleNext(Runnable reward) {
+			while (true) {
+				reward.run();
+				Runnable next;
+				synchronized (this) {
+					next = rewards.poll();
+					if (next == null) {
+						scheduled = false;
+						return;
+					}
+				}
+				waitingInStripes.decrementAndGet();
+				try {
+					executor.execute(() -> runThenScheduleNext(next));
+					return;
+				} catch (RejectedExecutionException e) {
+					// shut down: the rewards already accepted still run, on this thread
+					reward = next;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates named daemon worker threads, so they show up clearly in thread dumps and never keep the JVM alive.
+	 */
+	private static class RewardThreadFactory implements ThreadFactory {
+
+		private AtomicInteger threadCount = new AtomicInteger();
+
+		public Thread newThread(Runnable task) {
+			Thread thread = new Thread(task, "reward-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package rewards.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import rewards.Dining;
+import rewards.DuplicateDiningException;
+import rewards.RewardConfirmation;
+import rewards.RewardNetwork;
+import rewards.RewardResult;
+
+/**
+ * Rejects dinings submitted again within a time window before they reach the reward transaction, so a merchant
+ * resending its records costs an in-memory check instead of a database round trip per record. A duplicate fails with a
+ * {@link DuplicateDiningException}.
+ *
+ * A dining counts as submitted as soon as it is checked, so a duplicate arriving while the original is still being
+ * rewarded is rejected too. A dining that then fails to be rewarded is forgotten again, so it can be resent once the
+ * cause is fixed.
+ */
+public class DeduplicatingRewardNetwork implements RewardNetwork {
+
+	private RewardNetwork rewardNetwork;
+
+	private DiningDeduplicator deduplicator;
+
+	/**
+	 * Creates a new deduplicating reward network.
+	 * @param rewardNetwork the reward network that rewards dinings that are not duplicates
+	 * @param deduplicator the deduplicator that remembers recent dinings
+	 */
+	public DeduplicatingRewardNetwork(RewardNetwork rewardNetwork, DiningDeduplicator deduplicator) {
+		this.rewardNetwork = rewardNetwork;
+		this.deduplicator = deduplicator;
+	}
+
+	public RewardConfirmation rewardAccountFor(Dining dining) {
+		if (deduplicator.isDuplicate(dining)) {
+			throw new DuplicateDiningException(dining);
+		}
+		try {
+			return rewardNetwork.rewardAccountFor(dining);
+		} catch (RuntimeException e) {
+			deduplicator.forget(dining);
+			throw e;
+		}
+	}
+
+	/**
+	 * Rewards the dinings that are not duplicates in one batch; duplicates, including dinings repeated within the batch,
+	 * get a failed result.
+	 */
+	public List<RewardResult> rewardAccountsFor(List<Dining> dinings) {
+		RewardResult[] results = new RewardResult[dinings.size()];
+		List<Integer> newIndexes = new ArrayList<Integer>();
+		List<Dining> newDinings = new ArrayList<Dining>();
+		for (int i = 0; i < dinings.size(); i++) {
+			Dining dining = dinings.get(i);
+			if (deduplicator.isDuplicate(dining)) {
+				results[i] = RewardResult.failed(dining, new DuplicateDiningException(dining));
+			} else {
+				newIndexes.add(i);
+				newDinings.add(dining);
+			}
+		}
+		List<RewardResult> newResults;
+		try {
+			newResults = rewardNetwork.rewardAccountsFor(newDinings);
+		} catch (RuntimeException e) {
+			for (Dining dining : newDinings) {
+				deduplicator.forget(dining);
+			}
+			throw e;
+		}
+		for (int i = 0; i < newResults.size(); i++) {
+			RewardResult result = newResults.get(i);
+			if (!result.isRewarded()) {
+				deduplicator.forget(result.getDining());
+			}
+			results[newIndexes.get(i)] = result;
+		}
+		return Arrays.asList(results);
+	}
+
+	/**
+	 * Returns the deduplicator, e.g. to monitor the duplicate and false positive counts.
+	 */
+	public DiningDeduplicator getDeduplicator() {
+		return deduplicator;
+	}
+}
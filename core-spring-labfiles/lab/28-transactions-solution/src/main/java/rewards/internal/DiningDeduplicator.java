@@ -0,0 +1,240 @@
+package rewards.internal;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import rewards.Dining;
+
+/**
+ * Recognizes dinings seen within a sliding time window, such as records a merchant sends again, in memory. Dinings are
+ * the same when they are equal: same amount, credit card, merchant and date.
+ *
+ * A time-windowed Bloom filter answers first: the window is split into generations, each with its own bit set, and the
+ * oldest generation is cleared and reused as the window slides. A dining the filter has not seen is new, which is the
+ * common case and costs a few bit lookups. A dining the filter may have seen is checked against an exact set of the
+ * most recent dinings; only a dining found there is reported as a duplicate. So a new dining is never rejected: a
+ * filter false positive merely costs the exact check, and is counted. A duplicate is missed only when it has already
+ * been evicted from the exact set to stay within the memory budget.
+ *
+ * Thread-safe.
+ */
+public class DiningDeduplicator {
+
+	/**
+	 * The number of generations the window is split into: a dining is remembered for between (n - 1) / n and all of
+	 * the window.
+	 */
+	private static final int GENERATIONS = 4;
+
+	/**
+	 * The rough heap size of an entry in the exact set, including the dining it refers to.
+	 */
+	private static final int ESTIMATED_ENTRY_BYTES = 192;
+
+	private final Clock clock;
+
+	private final long windowMillis;
+
+	private final long generationMillis;
+
+	private final long[][] generations;
+
+	private final int bitsPerGeneration;
+
+	private final int hashes;
+
+	private int current;
+
+	private long currentGenerationStart;
+
+	private final int exactCapacity;
+
+	private final LinkedHashMap<Dining, Long> recent = new LinkedHashMap<Dining, Long>();
+
+	private long checked;
+
+	private long duplicates;
+
+	private long falsePositives;
+
+	/**
+	 * Creates a deduplicator using the system clock.
+	 * @param window how long a dining is remembered
+	 * @param memoryBudgetBytes the approximate heap to use, split evenly between the Bloom filter and the exact set
+	 */
+	public DiningDeduplicator(Duration window, long memoryBudgetBytes) {
+		this(window, memoryBudgetBytes, Clock.systemUTC());
+	}
+
+	/**
+	 * Creates a deduplicator.
+	 * @param window how long a dining is remembered
+	 * @param memoryBudgetBytes the approximate heap to use, split evenly between the Bloom filter and the exact set
+	 * @param clock the clock the window slides with
+	 */
+	public DiningDeduplicator(Duration window, long memoryBudgetBytes, Clock clock) {
+		if (window.toMillis() < GENERATIONS) {
+			throw new IllegalArgumentException("The window must be at least " + GENERATIONS + " ms; it was " + window);
+		}
+		if (memoryBudgetBytes < 2 * GENERATIONS * ESTIMATED_ENTRY_BYTES) {
+			throw new IllegalArgumentException("A memory budget of " + memoryBudgetBytes + " bytes is too small");
+		}
+		this.clock = clock;
+		this.windowMillis = window.toMillis();
+		this.generationMillis = windowMillis / GENERATIONS;
+		long filterBits = Math.min(memoryBudgetBytes / 2 * 8, (long) Integer.MAX_VALUE * GENERATIONS);
+		int words = (int) Math.max(1, filterBits / GENERATIONS / 64);
+		this.generations = new long[GENERATIONS][words];
+		this.bitsPerGeneration = words * 64;
+		this.exactCapacity = (int) Math.min(Integer.MAX_VALUE, memoryBudgetBytes / 2 / ESTIMATED_ENTRY_BYTES);
+		// the optimal number of hashes for the dinings one generation holds when the exact set is full
+		double bitsPerDining = (double) bitsPerGeneration * GENERATIONS / exactCapacity;
+		this.hashes = (int) Math.max(1, Math.min(16, Math.round(bitsPerDining * Math.log(2))));
+		this.currentGenerationStart = clock.millis();
+	}
+
+	/**
+	 * Checks whether the dining was seen within the window, and remembers it if it was not.
+	 * @param dining the dining
+	 * @return true if the dining is a duplicate of one seen within the window
+	 */
+	public synchronized boolean isDuplicate(Dining dining) {
+		long now = clock.millis();
+		slide(now);
+		checked++;
+		long hash = hash(dining);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		if (mightContain(h1, h2)) {
+			Long seen = recent.get(dining);
+			if (seen != null && now - seen < windowMillis) {
+				duplicates++;
+				return true;
+			}
+			falsePositives++;
+		}
+		add(h1, h2);
+		remember(dining, now);
+		return false;
+	}
+
+	/**
+	 * Forgets the dining, so it is no longer reported as a duplicate. For a dining that was not rewarded after all and
+	 * may be sent again.
+	 * @param dining the dining
+	 */
+	public synchronized void forget(Dining dining) {
+		recent.remove(dining);
+	}
+
+	private void slide(long now) {
+		long elapsed = now - currentGenerationStart;
+		if (elapsed < generationMillis) {
+			return;
+		}
+		long steps = Math.min(GENERATIONS, elapsed / generationMillis);
+		for (int i = 0; i < steps; i++) {
+			current = (current + 1) % GENERATIONS;
+			Arrays.fill(generations[current], 0L);
+		}
+		currentGenerationStart += elapsed / generationMillis * generationMillis;
+	}
+
+	private boolean mightContain(int h1, int h2) {
+		for (long[] bits : generations) {
+			if (containsAll(bits, h1, h2)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean containsAll(long[] bits, int h1, int h2) {
+		for (int i = 0; i < hashes; i++) {
+			int bit = Math.floorMod(h1 + i * h2, bitsPerGeneration);
+			if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void add(int h1, int h2) {
+		long[] bits = generations[current];
+		for (int i = 0; i < hashes; i++) {
+			int bit = Math.floorMod(h1 + i * h2, bitsPerGeneration);
+			bits[bit >>> 6] |= 1L << bit;
+		}
+	}
+
+	private void remember(Dining dining, long now) {
+		recent.remove(dining);
+		recent.put(dining, now);
+		Iterator<Map.Entry<Dining, Long>> oldest = recent.entrySet().iterator();
+		while (oldest.hasNext()) {
+			Map.Entry<Dining, Long> entry = oldest.next();
+			if (recent.size() <= exactCapacity && now - entry.getValue() < windowMillis) {
+				break;
+			}
+			oldest.remove();
+		}
+	}
+
+	/**
+	 * Hashes the fields dinings are compared by to 64 bits.
+	 */
+	private static long hash(Dining dining) {
+		long hash = dining.getCreditCardNumber().hashCode();
+		hash = hash * 0x9E3779B97F4A7C15L + dining.getMerchantNumber().hashCode();
+		hash = hash * 0x9E3779B97F4A7C15L + dining.getAmount().hashCode();
+		hash = hash * 0x9E3779B97F4A7C15L + dining.getDate().hashCode();
+		// the finalizer of MurmurHash3, so every input bit affects every output bit
+		hash ^= hash >>> 33;
+		hash *= 0xFF51AFD7ED558CCDL;
+		hash ^= hash >>> 33;
+		hash *= 0xC4CEB9FE1A85EC53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	/**
+	 * Returns the number of dinings checked.
+	 */
+	public synchronized long getCheckedCount() {
+		return checked;
+	}
+
+	/**
+	 * Returns the number of dinings reported as duplicates.
+	 */
+	public synchronized long getDuplicateCount() {
+		return duplicates;
+	}
+
+	/**
+	 * Returns the number of dinings the Bloom filter took for possible duplicates that the exact set then cleared:
+	 * mostly new dinings, plus the odd forgotten or evicted one.
+	 */
+	public synchronized long getFalsePositiveCount() {
+		return falsePositives;
+	}
+
+	/**
+	 * Returns the share of new dinings the Bloom filter mistook for possible duplicates.
+	 */
+	public synchronized double getFalsePositiveRate() {
+		long unique = checked - duplicates;
+		return unique == 0 ? 0 : (double) falsePositives / unique;
+	}
+
+	/**
+	 * Returns the most dinings the exact set holds.
+	 */
+	public int getExactCapacity() {
+		return exactCapacity;
+	}
+}
@@ -0,0 +1,58 @@
+package rewards.internal;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import rewards.Dining;
+import rewards.RewardConfirmation;
+import rewards.RewardNetwork;
+import rewards.RewardResult;
+
+/**
+ * Orders the rewards of each credit card in process: a reward waits until earlier rewards for the same credit card
+ * have been committed, while rewards for other credit cards go ahead in parallel. Useful when bursts of rewards for
+ * hot accounts, such as corporate cards, must be applied in arrival order.
+ *
+ * Wraps the transactional reward network, so each lock is held until the reward's transaction has completed. Rewards
+ * are keyed by credit card because the account is not known before it is looked up; rewards made with different
+ * credit cards of the same account are not ordered relative to each other.
+ */
+public class LockingRewardNetwork implements RewardNetwork {
+
+	private RewardNetwork rewardNetwork;
+
+	private StripedLockManager lockManager;
+
+	/**
+	 * Creates a new locking reward network.
+	 * @param rewardNetwork the transactional reward network that rewards each dining
+	 * @param lockManager the locks to order rewards by credit card with
+	 */
+	public LockingRewardNetwork(RewardNetwork rewardNetwork, StripedLockManager lockManager) {
+		this.rewardNetwork = rewardNetwork;
+		this.lockManager = lockManager;
+	}
+
+	public RewardConfirmation rewardAccountFor(Dining dining) {
+		return lockManager.withLock(dining.getCreditCardNumber(), () -> rewardNetwork.rewardAccountFor(dining));
+	}
+
+	/**
+	 * Rewards the batch holding the locks of all its credit cards at once.
+	 */
+	public List<RewardResult> rewardAccountsFor(List<Dining> dinings) {
+		Set<String> creditCardNumbers = new LinkedHashSet<String>();
+		for (Dining dining : dinings) {
+			creditCardNumbers.add(dining.getCreditCardNumber());
+		}
+		return lockManager.withLocks(creditCardNumbers, () -> rewardNetwork.rewardAccountsFor(dinings));
+	}
+
+	/**
+	 * Returns the lock manager, e.g. to monitor contention.
+	 */
+	public StripedLockManager getLockManager() {
+		return lockManager;
+	}
+}
@@ -0,0 +1,245 @@
+package rewards.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import rewards.AsyncRewardNetwork;
+import rewards.Dining;
+import rewards.RewardConfirmation;
+import rewards.RewardNetwork;
+import rewards.RewardResult;
+
+/**
+ * Rewards accounts on a fixed set of single-writer partitions. Each dining is hashed by credit card number to one
+ * partition, so all rewards for a credit card are made by the same worker thread, in the order they were submitted,
+ * without any locking between partitions.
+ *
+ * Dinings are handed to a partition through a bounded ring buffer. The worker takes whatever has accumulated, up to
+ * the batch size, and rewards it with a single {@link RewardNetwork#rewardAccountsFor(List)} call: one transaction,
+ * one lookup per batch of accounts and restaurants, and batched writes. The busier a partition, the larger its
+ * batches. A dining submitted while its partition's buffer is full completes exceptionally with a
+ * {@link RejectedExecutionException}.
+ *
+ * Partitions own credit cards rather than accounts, as the account is only known after it is looked up; two credit
+ * cards of the same account may be rewarded by different partitions at the same time, which the delta savings updates
+ * of the account repository keep correct.
+ *
+ * Each partition holds a database connection while it rewards a batch, so the connection pool must have at least one
+ * connection per partition, besides those the rest of the application needs; otherwise partitions wait on each other
+ * for connections.
+ */
+public class PartitionedRewardNetwork implements AsyncRewardNetwork {
+
+	/**
+	 * The most dinings rewarded in one transaction when no batch size is specified.
+	 */
+	public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+
+	/**
+	 * The capacity of each partition's ring buffer when none is specified.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 1024;
+
+	private RewardNetwork rewardNetwork;
+
+	private Partition[] partitions;
+
+	private int maxBatchSize;
+
+	private volatile boolean running = true;
+
+	/**
+	 * Creates a partitioned reward network with one partition per available processor. Only suitable when the
+	 * connection pool has more connections than there are processors; otherwise specify the partition count.
+	 * @param rewardNetwork the transactional reward network each partition rewards its batches with
+	 */
+	public PartitionedRewardNetwork(RewardNetwork rewardNetwork) {
+		this(rewardNetwork, Runtime.getRuntime().availableProcessors(), DEFAULT_BUFFER_SIZE, DEFAULT_MAX_BATCH_SIZE);
+	}
+
+	/**
+	 * Creates a partitioned reward network.
+	 * @param rewardNetwork the transactional reward network each partition rewards its batches with
+	 * @param partitionCount the number of partitions, each with its own worker thread and database connection
+	 * @param bufferSize the most dinings waiting in each partition
+	 * @param maxBatchSize the most dinings rewarded in one transaction
+	 */
+	public PartitionedRewardNetwork(RewardNetwork rewardNetwork, int partitionCount, int bufferSize,
+			int maxBatchSize) {
+		if (partitionCount < 1 || bufferSize < 1 || maxBatchSize < 1) {
+			throw new IllegalArgumentException("The partition count, buffer size and batch size must be positive");
+		}
+		this.rewardNetwork = rewardNetwork;
+		this.maxBatchSize = maxBatchSize;
+		this.partitions = new Partition[partitionCount];
+		for (int i = 0; i < partitionCount; i++) {
+			partitions[i] = new Partition(i, bufferSize);
+			partitions[i].worker.start();
+		}
+	}
+
+	public CompletableFuture<RewardConfirmation> rewardAccountFor(Dining dining) {
+		PendingReward reward = new PendingReward(dining);
+		Partition partition = partitions[partitionOf(dining.getCreditCardNumber())];
+		if (!running) {
+			reward.reject("The reward network is shut down");
+		} else if (!partition.buffer.offer(reward)) {
+			reward.reject("The partition for credit card " + dining.getCreditCardNumber() + " is full");
+		} else if (!running && partition.buffer.remove(reward)) {
+			// shut down while offering: the worker may already have ended without seeing the reward
+			reward.reject("The reward network is shut down");
+		}
+		return reward.future;
+	}
+
+	int partitionOf(String creditCardNumber) {
+		int hash = creditCardNumber.hashCode();
+		return Math.floorMod(hash ^ (hash >>> 16), partitions.length);
+	}
+
+	/**
+	 * Returns the number of partitions.
+	 */
+	public int getPartitionCount() {
+		return partitions.length;
+	}
+
+	/**
+	 * Returns the number of dinings waiting in all partitions.
+	 */
+	public int getQueueDepth() {
+		int depth = 0;
+		for (Partition partition : partitions) {
+			depth += partition.buffer.size();
+		}
+		return depth;
+	}
+
+	/**
+	 * Returns the number of dinings processed so far, successfully or not.
+	 */
+	public long getCompletedCount() {
+		long completed = 0;
+		for (Partition partition : partitions) {
+			completed += partition.completed.get();
+		}
+		return completed;
+	}
+
+	/**
+	 * Returns the number of batches rewarded so far; together with {@link #getCompletedCount()} it gives the average
+	 * batch size.
+	 */
+	public long getBatchCount() {
+		long batches = 0;
+		for (Partition partition : partitions) {
+			batches += partition.batches.get();
+		}
+		return batches;
+	}
+
+	/**
+	 * Stops accepting rewards. Rewards already accepted still run, after which the worker threads end. A reward
+	 * submitted concurrently is either run or completes exceptionally with a {@link RejectedExecutionException}.
+	 */
+	public void shutdown() {
+		running = false;
+	}
+
+	/**
+	 * A dining waiting in a partition, with the future to complete once it is rewarded.
+	 */
+	private static class PendingReward {
+
+		private Dining dining;
+
+		private CompletableFuture<RewardConfirmation> future = new CompletableFuture<RewardConfirmation>();
+
+		PendingReward(Dining dining) {
+			this.dining = dining;
+		}
+
+		void reject(String message) {
+			future.completeExceptionally(new RejectedExecutionException(message));
+		}
+	}
+
+	/**
+	 * A ring buffer of dinings and the single worker thread that rewards them.
+	 */
+	private class Partition implements Runnable {
+
+		private ArrayBlockingQueue<PendingReward> buffer;
+
+		private Thread worker;
+
+		private AtomicLong completed = new AtomicLong();
+
+		private AtomicLong batches = new AtomicLong();
+
+		Partition(int index, int bufferSize) {
+			this.buffer = new ArrayBlockingQueue<PendingReward>(bufferSize);
+			this.worker = new Thread(this, "reward-partition-" + index);
+			this.worker.setDaemon(true);
+		}
+
+		public void run() {
+			try {
+				List<PendingReward> batch = new ArrayList<PendingReward>(maxBatchSize);
+				while (running || !buffer.isEmpty()) {
+					PendingReward first;
+					try {
+						first = buffer.poll(100, TimeUnit.MILLISECONDS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return;
+					}
+					if (first == null) {
+						continue;
+					}
+					batch.add(first);
+					buffer.drainTo(batch, maxBatchSize - 1);
+					reward(batch);
+					completed.addAndGet(batch.size());
+					batches.incrementAndGet();
+					batch.clear();
+				}
+			} finally {
+				// fail whatever was offered after this worker last looked, so no future is left pending
+				for (PendingReward reward = buffer.poll(); reward != null; reward = buffer.poll()) {
+					reward.reject("The reward network is shut down");
+				}
+			}
+		}
+
+		private void reward(List<PendingReward> batch) {
+			List<Dining> dinings = new ArrayList<Dining>(batch.size());
+			for (PendingReward reward : batch) {
+				dinings.add(reward.dining);
+			}
+			List<RewardResult> results;
+			try {
+				results = rewardNetwork.rewardAccountsFor(dinings);
+			} catch (RuntimeException e) {
+				// the batch transaction rolled back: nothing in it was rewarded
+				for (PendingReward reward : batch) {
+					reward.future.completeExceptionally(e);
+				}
+				return;
+			}
+			for (int i = 0; i < batch.size(); i++) {
+				RewardResult result = results.get(i);
+				if (result.isRewarded()) {
+					batch.get(i).future.complete(result.getConfirmation());
+				} else {
+					batch.get(i).future.completeExceptionally(result.getFailure());
+				}
+			}
+		}
+	}
+}
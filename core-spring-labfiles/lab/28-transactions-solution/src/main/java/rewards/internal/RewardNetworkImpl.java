@@ -1,11 +1,29 @@
 package rewards.internal;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.transaction.annotation.Transactional;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
 import rewards.AccountContribution;
 import rewards.Dining;
 import rewards.RewardConfirmation;
 import rewards.RewardNetwork;
+import rewards.RewardResult;
 import rewards.internal.account.Account;
 import rewards.internal.account.AccountRepository;
 import rewards.internal.restaurant.Restaurant;
@@ -24,12 +42,31 @@ import common.money.MonetaryAmount;
  */
 public class RewardNetworkImpl implements RewardNetwork {
 
+	/**
+	 * The name of the timers of the reward stages, told apart by their <code>stage</code> tag.
+	 */
+	public static final String STAGE_TIMER = "rewards.stage";
+
 	private AccountRepository accountRepository;
 
 	private RestaurantRepository restaurantRepository;
 
 	private RewardRepository rewardRepository;
 
+	private Executor lookupExecutor;
+
+	private Timer accountLookupTimer;
+
+	private Timer restaurantLookupTimer;
+
+	private Timer calculateBenefitTimer;
+
+	private Timer makeContributionTimer;
+
+	private Timer creditBeneficiariesTimer;
+
+	private Timer confirmRewardTimer;
+
 	/**
 	 * Creates a new reward network.
 	 * @param accountRepository the repository for loading accounts to reward
@@ -43,13 +80,268 @@ public class RewardNetworkImpl implements RewardNetwork {
 		this.rewardRepository = rewardRepository;
 	}
 
+	/**
+	 * Sets the executor for looking up the restaurant of a dining while the account is looked up, so a reward waits
+	 * for one lookup round trip instead of two. By default the lookups run one after the other.
+	 * 
+	 * Transactions are bound to a thread, so a restaurant read on the executor is not part of the reward transaction:
+	 * it runs in a transaction of its own, on a second connection from the pool, and sees the restaurant as last
+	 * committed rather than at the isolation level and snapshot of the reward. Restaurants are reference data that a
+	 * reward only reads and that changes rarely, so this is only safe for as long as no reward transaction writes a
+	 * restaurant before reading it. A lookup the executor has not started by the time the account is found is taken
+	 * back and made in the reward transaction instead, so a reward never waits on a busy executor.
+	 * 
+	 * The pool must be sized for the extra connections: one for each reward running at once plus one for each thread
+	 * of the executor. The executor must have a fixed number of threads, fewer than the connections in the pool: then
+	 * however many rewards hold a connection, at most that many wait on a lookup that needs one more, and the others
+	 * can still finish and release theirs.
+	 * @param lookupExecutor the executor for restaurant lookups, or null to look up sequentially
+	 */
+	public void setLookupExecutor(Executor lookupExecutor) {
+		this.lookupExecutor = lookupExecutor;
+	}
+
+	/**
+	 * Sets the registry to time each stage of a reward in: the account and restaurant lookups, the benefit calculation,
+	 * the contribution, the savings update and the reward confirmation. The timers publish percentile histograms and
+	 * are tagged with the stage and with the repository implementation involved (<code>jdbc</code>, <code>stub</code>,
+	 * ...), so implementations can be compared. By default nothing is timed, which costs no more than a null check per
+	 * stage.
+	 * @param meterRegistry the registry to register the stage timers in, or null to time nothing
+	 */
+	public void setMeterRegistry(MeterRegistry meterRegistry) {
+		if (meterRegistry == null) {
+			accountLookupTimer = null;
+			restaurantLookupTimer = null;
+			calculateBenefitTimer = null;
+			makeContributionTimer = null;
+			creditBeneficiariesTimer = null;
+			confirmRewardTimer = null;
+			return;
+		}
+		accountLookupTimer = stageTimer(meterRegistry, "findAccount", accountRepository);
+		restaurantLookupTimer = stageTimer(meterRegistry, "findRestaurant", restaurantRepository);
+		calculateBenefitTimer = stageTimer(meterRegistry, "calculateBenefitFor", restaurantRepository);
+		makeContributionTimer = stageTimer(meterRegistry, "makeContribution", accountRepository);
+		creditBeneficiariesTimer = stageTimer(meterRegistry, "creditBeneficiaries", accountRepository);
+		confirmRewardTimer = stageTimer(meterRegistry, "confirmReward", rewardRepository);
+	}
+
+	private static Timer stageTimer(MeterRegistry meterRegistry, String stage, Object repository) {
+		return Timer.builder(STAGE_TIMER)
+				.description("The time taken by one stage of rewarding an account for dining")
+				.tag("stage", stage)
+				.tag("repository", repositoryType(repository))
+				.publishPercentileHistogram()
+				.register(meterRegistry);
+	}
+
+	/**
+	 * Returns the implementation of a repository as the prefix of its class name, e.g. <code>jdbc</code> for a
+	 * <code>JdbcAccountRepository</code>.
+	 */
+	static String repositoryType(Object repository) {
+		String name = repository.getClass().getSimpleName();
+		for (int i = 1; i < name.length(); i++) {
+			if (Character.isUpperCase(name.charAt(i))) {
+				return name.substring(0, i).toLowerCase();
+			}
+		}
+		return name.toLowerCase();
+	}
+
 	@Transactional
 	public RewardConfirmation rewardAccountFor(Dining dining) {
-		Account account = accountRepository.findByCreditCard(dining.getCreditCardNumber());
-		Restaurant restaurant = restaurantRepository.findByMerchantNumber(dining.getMerchantNumber());
+		long start = startTiming();
+		Account account;
+		Restaurant restaurant;
+		if (lookupExecutor == null) {
+			account = accountRepository.findByCreditCard(dining.getCreditCardNumber());
+			stopTiming(accountLookupTimer, start);
+			restaurant = findRestaurant(dining);
+		} else {
+			RestaurantLookup restaurantLookup = new RestaurantLookup(dining);
+			try {
+				lookupExecutor.execute(restaurantLookup);
+			} catch (RejectedExecutionException e) {
+				// left to this thread
+			}
+			try {
+				account = accountRepository.findByCreditCard(dining.getCreditCardNumber());
+			} catch (RuntimeException e) {
+				restaurantLookup.cancel();
+				throw e;
+			}
+			stopTiming(accountLookupTimer, start);
+			// read in this transaction if the executor has not started it, otherwise as committed on its own connection
+			restaurant = restaurantLookup.claim() ? findRestaurant(dining) : join(restaurantLookup.result);
+		}
+		start = startTiming();
 		MonetaryAmount amount = restaurant.calculateBenefitFor(account, dining);
+		start = stopTiming(calculateBenefitTimer, start);
 		AccountContribution contribution = account.makeContribution(amount);
-		accountRepository.updateBeneficiaries(account);
-		return rewardRepository.confirmReward(contribution, dining);
+		start = stopTiming(makeContributionTimer, start);
+		accountRepository.creditBeneficiaries(account, contribution);
+		start = stopTiming(creditBeneficiariesTimer, start);
+		RewardConfirmation confirmation = rewardRepository.confirmReward(contribution, dining);
+		stopTiming(confirmRewardTimer, start);
+		return confirmation;
+	}
+
+	/**
+	 * Rewards the dinings in one transaction. Accounts and restaurants are loaded with one query per batch of credit
+	 * card and merchant numbers instead of one per dining, and the savings increments and reward records are written
+	 * as JDBC batches.
+	 * 
+	 * A dining whose account or restaurant is not found, or whose account cannot take contributions, gets a failed
+	 * result; the others are still rewarded. A failure to write the batch rolls back the whole transaction.
+	 */
+	@Transactional
+	public List<RewardResult> rewardAccountsFor(List<Dining> dinings) {
+		Set<String> creditCardNumbers = new LinkedHashSet<String>();
+		Set<String> merchantNumbers = new LinkedHashSet<String>();
+		for (Dining dining : dinings) {
+			creditCardNumbers.add(dining.getCreditCardNumber());
+			merchantNumbers.add(dining.getMerchantNumber());
+		}
+		long start = startTiming();
+		Map<String, Account> accounts = accountRepository.findByCreditCards(creditCardNumbers);
+		start = stopTiming(accountLookupTimer, start);
+		Map<String, Restaurant> restaurants = restaurantRepository.findByMerchantNumbers(merchantNumbers);
+		stopTiming(restaurantLookupTimer, start);
+
+		RewardResult[] results = new RewardResult[dinings.size()];
+		List<Account> creditedAccounts = new ArrayList<Account>();
+		List<Integer> rewardedIndexes = new ArrayList<Integer>();
+		List<Dining> rewardedDinings = new ArrayList<Dining>();
+		List<AccountContribution> contributions = new ArrayList<AccountContribution>();
+		for (int i = 0; i < dinings.size(); i++) {
+			Dining dining = dinings.get(i);
+			Account account = accounts.get(dining.getCreditCardNumber());
+			Restaurant restaurant = restaurants.get(dining.getMerchantNumber());
+			if (account == null) {
+				results[i] = RewardResult.failed(dining, new EmptyResultDataAccessException(
+						"No account for credit card " + dining.getCreditCardNumber(), 1));
+				continue;
+			}
+			if (restaurant == null) {
+				results[i] = RewardResult.failed(dining, new EmptyResultDataAccessException(
+						"No restaurant with merchant number " + dining.getMerchantNumber(), 1));
+				continue;
+			}
+			try {
+				start = startTiming();
+				MonetaryAmount amount = restaurant.calculateBenefitFor(account, dining);
+				start = stopTiming(calculateBenefitTimer, start);
+				contributions.add(account.makeContribution(amount));
+				stopTiming(makeContributionTimer, start);
+			} catch (IllegalStateException e) {
+				// the account has invalid beneficiary allocations
+				results[i] = RewardResult.failed(dining, e);
+				continue;
+			}
+			creditedAccounts.add(account);
+			rewardedIndexes.add(i);
+			rewardedDinings.add(dining);
+		}
+
+		start = startTiming();
+		accountRepository.creditBeneficiaries(creditedAccounts, contributions);
+		start = stopTiming(creditBeneficiariesTimer, start);
+		List<RewardConfirmation> confirmations = rewardRepository.confirmRewards(contributions, rewardedDinings);
+		stopTiming(confirmRewardTimer, start);
+		for (int i = 0; i < confirmations.size(); i++) {
+			int index = rewardedIndexes.get(i);
+			results[index] = RewardResult.confirmed(dinings.get(index), confirmations.get(i));
+		}
+		return Arrays.asList(results);
+	}
+
+	/**
+	 * Returns the start time of a stage, or zero when stages are not timed.
+	 */
+	private long startTiming() {
+		return accountLookupTimer == null ? 0 : System.nanoTime();
+	}
+
+	/**
+	 * Records the time since the start of a stage in its timer, if stages are timed.
+	 * @return the start time of the next stage
+	 */
+	private static long stopTiming(Timer timer, long start) {
+		if (timer == null) {
+			return 0;
+		}
+		long now = System.nanoTime();
+		timer.record(now - start, TimeUnit.NANOSECONDS);
+		return now;
+	}
+
+	/**
+	 * Looks up the restaurant of a dining, timing the lookup.
+	 */
+	private Restaurant findRestaurant(Dining dining) {
+		long start = startTiming();
+		Restaurant restaurant = restaurantRepository.findByMerchantNumber(dining.getMerchantNumber());
+		stopTiming(restaurantLookupTimer, start);
+		return restaurant;
+	}
+
+	/**
+	 * A restaurant lookup handed to the lookup executor. Whichever of the executor and the reward thread claims it
+	 * first makes the lookup; the other one does nothing, or waits for the result. Made by the executor, the lookup is
+	 * outside the reward transaction, see {@link RewardNetworkImpl#setLookupExecutor(Executor)}.
+	 */
+	private class RestaurantLookup implements Runnable {
+
+		private final Dining dining;
+
+		private final AtomicBoolean claimed = new AtomicBoolean();
+
+		private final CompletableFuture<Restaurant> result = new CompletableFuture<Restaurant>();
+
+		RestaurantLookup(Dining dining) {
+			this.dining = dining;
+		}
+
+		/**
+		 * Claims the lookup, returning true if it was not started yet.
+		 */
+		boolean claim() {
+			return claimed.compareAndSet(false, true);
+		}
+
+		/**
+		 * Makes sure a lookup not started yet never runs, and stops waiting for one that has.
+		 */
+		void cancel() {
+			claim();
+			result.cancel(false);
+		}
+
+		public void run() {
+			if (!claim()) {
+				return;
+			}
+			try {
+				result.complete(findRestaurant(dining));
+			} catch (RuntimeException e) {
+				result.completeExceptionally(e);
+			}
+		}
+	}
+
+	/**
+	 * Waits for the lookup, rethrowing its failure as is, just like a lookup made on this thread.
+	 */
+	private static <T> T join(CompletableFuture<T> lookup) {
+		try {
+			return lookup.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
 	}
-}
\ No newline at end of file
+}
@@ -1,5 +1,8 @@
 package rewards.internal;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -7,6 +10,7 @@ import rewards.AccountContribution;
 import rewards.Dining;
 import rewards.RewardConfirmation;
 import rewards.RewardNetwork;
+import rewards.RewardResult;
 import rewards.internal.account.Account;
 import rewards.internal.account.AccountRepository;
 import rewards.internal.restaurant.Restaurant;
@@ -50,7 +54,31 @@ public class RewardNetworkImplRequiresNew implements RewardNetwork {
 		Restaurant restaurant = restaurantRepository.findByMerchantNumber(dining.getMerchantNumber());
 		MonetaryAmount amount = restaurant.calculateBenefitFor(account, dining);
 		AccountContribution contribution = account.makeContribution(amount);
-		accountRepository.updateBeneficiaries(account);
+		accountRepository.creditBeneficiaries(account, contribution);
 		return rewardRepository.confirmReward(contribution, dining);
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Rewards the dinings one at a time in a single new transaction. A dining whose account or restaurant cannot be
+	 * found, or whose account cannot take contributions, gets a failed result; the others are still rewarded.
+	 */
+	@Transactional(propagation=Propagation.REQUIRES_NEW)
+	public List<RewardResult> rewardAccountsFor(List<Dining> dinings) {
+		List<RewardResult> results = new ArrayList<RewardResult>(dinings.size());
+		for (Dining dining : dinings) {
+			Account account;
+			AccountContribution contribution;
+			try {
+				account = accountRepository.findByCreditCard(dining.getCreditCardNumber());
+				Restaurant restaurant = restaurantRepository.findByMerchantNumber(dining.getMerchantNumber());
+				contribution = account.makeContribution(restaurant.calculateBenefitFor(account, dining));
+			} catch (RuntimeException e) {
+				results.add(RewardResult.failed(dining, e));
+				continue;
+			}
+			accountRepository.creditBeneficiaries(account, contribution);
+			results.add(RewardResult.confirmed(dining, rewardRepository.confirmReward(contribution, dining)));
+		}
+		return results;
+	}
+}
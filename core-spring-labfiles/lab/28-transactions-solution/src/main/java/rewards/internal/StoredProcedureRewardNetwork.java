@@ -0,0 +1,305 @@
+package rewards.internal;
+
+import java.sql.CallableStatement;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.CallableStatementCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.transaction.annotation.Transactional;
+
+import rewards.AccountContribution;
+import rewards.AccountContribution.Distribution;
+import rewards.Dining;
+import rewards.RewardConfirmation;
+import rewards.RewardNetwork;
+import rewards.RewardResult;
+import rewards.internal.reward.ConfirmationNumberAllocator;
+import rewards.internal.reward.JdbcRewardRepository;
+
+import common.datetime.DayClock;
+import common.datetime.SimpleDateCodec;
+import common.money.MonetaryAmount;
+import common.money.Percentage;
+
+/**
+ * Rewards an account for dining in a single database round trip, by calling a stored procedure that looks up the
+ * account and restaurant, calculates the benefit, credits the beneficiaries and records the reward. Where
+ * {@link RewardNetworkImpl} makes at least five statements per reward, this network makes one, plus a sequence query
+ * for every block of confirmation numbers.
+ *
+ * The procedure repeats the rules of the domain objects in SQL: the benefit availability policies of
+ * {@link rewards.internal.restaurant.JdbcRestaurantRepository}, the valid allocation check of
+ * {@link rewards.internal.account.Account} and the rounding of {@link MonetaryAmount}, half even to the cent. Its
+ * results are the same as those of a RewardNetworkImpl, and so are its failures: an unknown credit card or merchant
+ * number raises an {@link EmptyResultDataAccessException}, an account with no beneficiaries or invalid allocations an
+ * {@link IllegalStateException}. Changes to those rules must be made in both places.
+ *
+ * The procedure is installed in HSQLDB, the database of the rewards application, by the first network to find it
+ * missing; networks created later, in this or another application instance, use it as it is. A changed procedure
+ * must therefore be given a new name, or the old one dropped by a schema migration. On any other database every call
+ * is delegated to the fallback reward network, which should be a RewardNetworkImpl. Batches are always delegated: the
+ * fallback already rewards a batch in a few round trips.
+ */
+public class StoredProcedureRewardNetwork implements RewardNetwork {
+
+	private static final String HSQLDB_PRODUCT_NAME = "HSQL Database Engine";
+
+	private static final String PROCEDURE_NAME = "REWARD_ACCOUNT_FOR";
+
+	private static final String FUNCTION_NAME = "REWARD_ROUND_CENTS";
+
+	private static final String ROUTINE_COUNT_SQL = "select count(*) from INFORMATION_SCHEMA.ROUTINES "
+			+ "where ROUTINE_SCHEMA = CURRENT_SCHEMA and ROUTINE_NAME = ?";
+
+	/**
+	 * Rounds an amount half even to the cent, the rounding of {@link MonetaryAmount}. HSQLDB types abs(X) * 100 as an
+	 * integer, dropping the fraction of a cent, so the product is taken before the absolute value.
+	 */
+	private static final String CREATE_FUNCTION_SQL = "create function REWARD_ROUND_CENTS(X decimal(18,4)) returns decimal(18,2) "
+			+ "deterministic contains sql "
+			+ "begin atomic "
+			+ "  declare CENTS decimal(20,4); "
+			+ "  declare WHOLE_CENTS decimal(20,0); "
+			+ "  set CENTS = abs(X * 100); "
+			+ "  set WHOLE_CENTS = floor(CENTS); "
+			+ "  if CENTS - WHOLE_CENTS > 0.5 or (CENTS - WHOLE_CENTS = 0.5 and mod(WHOLE_CENTS, 2) = 1) then "
+			+ "    set WHOLE_CENTS = WHOLE_CENTS + 1; "
+			+ "  end if; "
+			+ "  return sign(X) * WHOLE_CENTS * 0.01; "
+			+ "end";
+
+	/**
+	 * Rewards an account for dining and returns its beneficiaries with their distributions and new savings. The
+	 * checks are made in the order RewardNetworkImpl makes them, and all before the first write. The account is looked
+	 * up before its allocations are summed, so an account with no beneficiaries is told apart from a missing one, and
+	 * fails the allocation check like any other invalid account. A cursor cannot refer
+	 * to the local variables of the procedure, so the result is queried through the reward row just inserted.
+	 */
+	private static final String CREATE_PROCEDURE_SQL = "create procedure REWARD_ACCOUNT_FOR(in P_CREDIT_CARD_NUMBER varchar(16), "
+			+ "in P_MERCHANT_NUMBER varchar(10), in P_DINING_AMOUNT decimal(10,2), in P_DINING_DATE date, "
+			+ "in P_REWARD_DATE date, in P_CONFIRMATION_NUMBER varchar(25)) "
+			+ "modifies sql data dynamic result sets 1 "
+			+ "begin atomic "
+			+ "  declare V_ACCOUNT_ID integer; "
+			+ "  declare V_ACCOUNT_NUMBER varchar(9); "
+			+ "  declare V_TOTAL_ALLOCATION decimal(10,2); "
+			+ "  declare V_BENEFIT_PERCENTAGE decimal(3,2); "
+			+ "  declare V_POLICY varchar(1); "
+			+ "  declare V_REWARD_AMOUNT decimal(10,2); "
+			+ "  declare RESULT cursor with return for "
+			+ "    select b.NAME as BENEFICIARY_NAME, b.ALLOCATION_PERCENTAGE as BENEFICIARY_ALLOCATION_PERCENTAGE, "
+			+ "      REWARD_ROUND_CENTS(r.REWARD_AMOUNT * b.ALLOCATION_PERCENTAGE) as DISTRIBUTION_AMOUNT, "
+			+ "      b.SAVINGS as BENEFICIARY_SAVINGS, r.ACCOUNT_NUMBER as ACCOUNT_NUMBER, r.REWARD_AMOUNT as REWARD_AMOUNT "
+			+ "    from T_REWARD r, T_ACCOUNT a, T_ACCOUNT_BENEFICIARY b "
+			+ "    where r.CONFIRMATION_NUMBER = P_CONFIRMATION_NUMBER and a.NUMBER = r.ACCOUNT_NUMBER and b.ACCOUNT_ID = a.ID "
+			+ "    for read only; "
+			+ "  set V_ACCOUNT_ID = (select min(ACCOUNT_ID) from T_ACCOUNT_CREDIT_CARD where NUMBER = P_CREDIT_CARD_NUMBER); "
+			+ "  if V_ACCOUNT_ID is null then "
+			+ "    signal sqlstate '45001' set message_text = 'No account for credit card'; "
+			+ "  end if; "
+			+ "  set V_TOTAL_ALLOCATION = (select coalesce(sum(ALLOCATION_PERCENTAGE), 0) from T_ACCOUNT_BENEFICIARY "
+			+ "    where ACCOUNT_ID = V_ACCOUNT_ID); "
+			+ "  set V_BENEFIT_PERCENTAGE = (select BENEFIT_PERCENTAGE from T_RESTAURANT where MERCHANT_NUMBER = P_MERCHANT_NUMBER); "
+			+ "  set V_POLICY = (select BENEFIT_AVAILABILITY_POLICY from T_RESTAURANT where MERCHANT_NUMBER = P_MERCHANT_NUMBER); "
+			+ "  if V_POLICY is null then "
+			+ "    signal sqlstate '45002' set message_text = 'No restaurant with merchant number'; "
+			+ "  end if; "
+			+ "  if V_POLICY = 'A' then "
+			+ "    set V_REWARD_AMOUNT = REWARD_ROUND_CENTS(P_DINING_AMOUNT * V_BENEFIT_PERCENTAGE); "
+			+ "  elseif V_POLICY = 'N' then "
+			+ "    set V_REWARD_AMOUNT = 0; "
+			+ "  else "
+			+ "    signal sqlstate '45004' set message_text = 'Not a supported policy code'; "
+			+ "  end if; "
+			+ "  if V_TOTAL_ALLOCATION <> 1 then "
+			+ "    signal sqlstate '45003' set message_text = 'Invalid beneficiary allocations'; "
+			+ "  end if; "
+			+ "  set V_ACCOUNT_NUMBER = (select NUMBER from T_ACCOUNT where ID = V_ACCOUNT_ID); "
+			+ "  update T_ACCOUNT_BENEFICIARY set SAVINGS = SAVINGS + REWARD_ROUND_CENTS(V_REWARD_AMOUNT * ALLOCATION_PERCENTAGE) "
+			+ "    where ACCOUNT_ID = V_ACCOUNT_ID; "
+			+ "  insert into T_REWARD (CONFIRMATION_NUMBER, REWARD_AMOUNT, REWARD_DATE, ACCOUNT_NUMBER, DINING_MERCHANT_NUMBER, DINING_DATE, DINING_AMOUNT) "
+			+ "    values (P_CONFIRMATION_NUMBER, V_REWARD_AMOUNT, P_REWARD_DATE, V_ACCOUNT_NUMBER, P_MERCHANT_NUMBER, P_DINING_DATE, P_DINING_AMOUNT); "
+			+ "  open RESULT; "
+			+ "end";
+
+	private static final String CALL_SQL = "{call REWARD_ACCOUNT_FOR(?, ?, ?, ?, ?, ?)}";
+
+	private JdbcTemplate jdbcTemplate;
+
+	private RewardNetwork fallback;
+
+	private boolean procedureInstalled;
+
+	private ConfirmationNumberAllocator confirmationNumberAllocator;
+
+	private DayClock dayClock = DayClock.system();
+
+	/**
+	 * Creates a new reward network, installing the stored procedure if the database supports it and does not have it
+	 * yet.
+	 * @param dataSource the rewards database
+	 * @param fallback the reward network for batches, and for every reward if the database has no stored procedure
+	 */
+	public StoredProcedureRewardNetwork(DataSource dataSource, RewardNetwork fallback) {
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.fallback = fallback;
+		this.confirmationNumberAllocator = new ConfirmationNumberAllocator(jdbcTemplate,
+				JdbcRewardRepository.DEFAULT_CONFIRMATION_NUMBER_BLOCK_SIZE);
+		if (HSQLDB_PRODUCT_NAME.equals(databaseProductName(dataSource))) {
+			// the procedure calls the function, so the function goes first
+			createIfMissing(FUNCTION_NAME, CREATE_FUNCTION_SQL);
+			createIfMissing(PROCEDURE_NAME, CREATE_PROCEDURE_SQL);
+			this.procedureInstalled = true;
+		}
+	}
+
+	/**
+	 * Creates a routine unless the database has it already. Another instance may create it between the check and the
+	 * creation, so a failed creation is only rethrown if the routine is still missing.
+	 */
+	private void createIfMissing(String routineName, String createSql) {
+		if (routineExists(routineName)) {
+			return;
+		}
+		try {
+			jdbcTemplate.execute(createSql);
+		} catch (DataAccessException e) {
+			if (!routineExists(routineName)) {
+				throw e;
+			}
+		}
+	}
+
+	private boolean routineExists(String routineName) {
+		return jdbcTemplate.queryForObject(ROUTINE_COUNT_SQL, Integer.class, routineName) > 0;
+	}
+
+	private static String databaseProductName(DataSource dataSource) {
+		try {
+			return JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+		} catch (MetaDataAccessException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Sets how many confirmation numbers are reserved with each query of the confirmation number sequence. Must be the
+	 * block size of every {@link JdbcRewardRepository} sharing the database, see {@link ConfirmationNumberAllocator}.
+	 * @param confirmationNumberBlockSize the block size
+	 */
+	public void setConfirmationNumberBlockSize(int confirmationNumberBlockSize) {
+		this.confirmationNumberAllocator = new ConfirmationNumberAllocator(jdbcTemplate, confirmationNumberBlockSize);
+	}
+
+	/**
+	 * Sets the clock that provides the reward date. Defaults to today's date in the default time zone.
+	 * @param dayClock the day clock
+	 */
+	public void setDayClock(DayClock dayClock) {
+		this.dayClock = dayClock;
+	}
+
+	/**
+	 * Returns whether rewards are made by the stored procedure rather than by the fallback reward network.
+	 */
+	public boolean isProcedureInstalled() {
+		return procedureInstalled;
+	}
+
+	@Transactional
+	public RewardConfirmation rewardAccountFor(Dining dining) {
+		if (!procedureInstalled) {
+			return fallback.rewardAccountFor(dining);
+		}
+		String confirmationNumber = confirmationNumberAllocator.nextConfirmationNumber();
+		AccountContribution contribution = jdbcTemplate.execute(CALL_SQL,
+				(CallableStatementCallback<AccountContribution>) call -> {
+					call.setString(1, dining.getCreditCardNumber());
+					call.setString(2, dining.getMerchantNumber());
+					call.setBigDecimal(3, dining.getAmount().asBigDecimal());
+					call.setObject(4, SimpleDateCodec.toJdbcValue(dining.getDate()));
+					call.setObject(5, SimpleDateCodec.toJdbcValue(dayClock.today()));
+					call.setString(6, confirmationNumber);
+					try {
+						call.execute();
+					} catch (SQLException e) {
+						throw translate(e, dining);
+					}
+					try (ResultSet rs = resultSetOf(call)) {
+						return mapContribution(rs);
+					}
+				});
+		return new RewardConfirmation(confirmationNumber, contribution);
+	}
+
+	/**
+	 * Delegates to the fallback reward network.
+	 */
+	public List<RewardResult> rewardAccountsFor(List<Dining> dinings) {
+		return fallback.rewardAccountsFor(dinings);
+	}
+
+	/**
+	 * Returns the result set opened by the procedure, skipping any update counts before it.
+	 */
+	private static ResultSet resultSetOf(CallableStatement call) throws SQLException {
+		ResultSet rs = call.getResultSet();
+		while (rs == null && (call.getMoreResults() || call.getUpdateCount() != -1)) {
+			rs = call.getResultSet();
+		}
+		if (rs == null) {
+			throw new SQLException("The reward procedure returned no result set");
+		}
+		return rs;
+	}
+
+	/**
+	 * Maps the beneficiary rows returned by the procedure to the contribution the account made.
+	 */
+	private static AccountContribution mapContribution(ResultSet rs) throws SQLException {
+		String accountNumber = null;
+		MonetaryAmount amount = null;
+		Set<Distribution> distributions = new HashSet<Distribution>();
+		while (rs.next()) {
+			accountNumber = rs.getString("ACCOUNT_NUMBER");
+			amount = new MonetaryAmount(rs.getBigDecimal("REWARD_AMOUNT"));
+			distributions.add(new Distribution(rs.getString("BENEFICIARY_NAME"),
+					new MonetaryAmount(rs.getBigDecimal("DISTRIBUTION_AMOUNT")),
+					Percentage.valueOf(rs.getBigDecimal("BENEFICIARY_ALLOCATION_PERCENTAGE")),
+					new MonetaryAmount(rs.getBigDecimal("BENEFICIARY_SAVINGS"))));
+		}
+		return new AccountContribution(accountNumber, amount, distributions);
+	}
+
+	/**
+	 * Translates a condition signalled by the procedure to the exception RewardNetworkImpl would have thrown. Other
+	 * failures are left to the JDBC template to translate.
+	 */
+	private static RuntimeException translate(SQLException e, Dining dining) throws SQLException {
+		String state = e.getSQLState();
+		if ("45001".equals(state)) {
+			return new EmptyResultDataAccessException("No account for credit card " + dining.getCreditCardNumber(), 1);
+		} else if ("45002".equals(state)) {
+			return new EmptyResultDataAccessException("No restaurant with merchant number "
+					+ dining.getMerchantNumber(), 1);
+		} else if ("45003".equals(state)) {
+			return new IllegalStateException(
+					"Cannot make contributions to this account: it has invalid beneficiary allocations");
+		} else if ("45004".equals(state)) {
+			return new IllegalArgumentException("Not a supported policy code for merchant number "
+					+ dining.getMerchantNumber());
+		}
+		throw e;
+	}
+}
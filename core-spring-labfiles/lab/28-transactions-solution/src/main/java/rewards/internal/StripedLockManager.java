@@ -0,0 +1,167 @@
+package rewards.internal;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Serializes work by key, such as rewards by credit card number, without a global lock. Keys are hashed onto a fixed
+ * number of fair locks ("stripes"): work for the same key runs one at a time in arrival order, while work for keys on
+ * different stripes runs in parallel. Two keys may share a stripe, so more stripes mean fewer unrelated keys waiting
+ * for each other.
+ *
+ * Counts how often a lock had to be waited for and keeps a histogram of the wait times for monitoring. Contention is
+ * sampled just before locking, so the counts are approximate under heavy load.
+ */
+public class StripedLockManager {
+
+	/**
+	 * The number of stripes when none is specified.
+	 */
+	public static final int DEFAULT_STRIPES = 256;
+
+	/**
+	 * The number of wait time histogram buckets: bucket 0 counts waits under a microsecond, bucket <code>i</code>
+	 * waits of at least 2<sup>i-1</sup> but under 2<sup>i</sup> microseconds, and the last bucket all longer waits.
+	 */
+	public static final int WAIT_TIME_BUCKETS = 24;
+
+	private final ReentrantLock[] locks;
+
+	private final int mask;
+
+	private final LongAdder acquisitions = new LongAdder();
+
+	private final LongAdder contendedAcquisitions = new LongAdder();
+
+	private final LongAdder totalWaitNanos = new LongAdder();
+
+	private final AtomicLongArray waitTimeHistogram = new AtomicLongArray(WAIT_TIME_BUCKETS);
+
+	/**
+	 * Creates a lock manager with the default number of stripes.
+	 */
+	public StripedLockManager() {
+		this(DEFAULT_STRIPES);
+	}
+
+	/**
+	 * Creates a lock manager.
+	 * @param stripes the least number of stripes, rounded up to a power of two
+	 */
+	public StripedLockManager(int stripes) {
+		if (stripes < 1 || stripes > 1 << 30) {
+			throw new IllegalArgumentException("The number of stripes must be between 1 and 2^30; it was " + stripes);
+		}
+		int size = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+		this.locks = new ReentrantLock[size];
+		for (int i = 0; i < size; i++) {
+			locks[i] = new ReentrantLock(true);
+		}
+		this.mask = size - 1;
+	}
+
+	/**
+	 * Runs the action holding the lock of the key.
+	 * @param key the key to serialize on, e.g. a credit card number
+	 * @param action the action to run
+	 * @return the result of the action
+	 */
+	public <T> T withLock(String key, Supplier<T> action) {
+		ReentrantLock lock = locks[stripeOf(key)];
+		acquire(lock);
+		try {
+			return action.get();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Runs the action holding the locks of all the keys. The stripes are always locked in the same order, so callers
+	 * locking overlapping keys can never wait for each other.
+	 * @param keys the keys to serialize on
+	 * @param action the action to run
+	 * @return the result of the action
+	 */
+	public <T> T withLocks(Collection<String> keys, Supplier<T> action) {
+		int[] stripes = keys.stream().mapToInt(this::stripeOf).distinct().sorted().toArray();
+		int locked = 0;
+		try {
+			for (; locked < stripes.length; locked++) {
+				acquire(locks[stripes[locked]]);
+			}
+			return action.get();
+		} finally {
+			for (int i = locked - 1; i >= 0; i--) {
+				locks[stripes[i]].unlock();
+			}
+		}
+	}
+
+	int stripeOf(String key) {
+		int hash = key.hashCode();
+		// spread the high bits down, as string hashes of similar keys differ mostly in the low bits
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+
+	private void acquire(ReentrantLock lock) {
+		acquisitions.increment();
+		if (!lock.isLocked() || lock.isHeldByCurrentThread()) {
+			lock.lock();
+			return;
+		}
+		long start = System.nanoTime();
+		lock.lock();
+		long waitNanos = System.nanoTime() - start;
+		contendedAcquisitions.increment();
+		totalWaitNanos.add(waitNanos);
+		long waitMicros = TimeUnit.NANOSECONDS.toMicros(waitNanos);
+		waitTimeHistogram.incrementAndGet(Math.min(WAIT_TIME_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(waitMicros)));
+	}
+
+	/**
+	 * Returns the number of stripes.
+	 */
+	public int getStripeCount() {
+		return locks.length;
+	}
+
+	/**
+	 * Returns the number of times a lock was acquired.
+	 */
+	public long getAcquisitions() {
+		return acquisitions.sum();
+	}
+
+	/**
+	 * Returns the number of times a lock was held by another thread and had to be waited for.
+	 */
+	public long getContendedAcquisitions() {
+		return contendedAcquisitions.sum();
+	}
+
+	/**
+	 * Returns the total time spent waiting for locks.
+	 * @param unit the unit of the result
+	 * @return the total wait time
+	 */
+	public long getTotalWaitTime(TimeUnit unit) {
+		return unit.convert(totalWaitNanos.sum(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Returns a snapshot of the wait time histogram of contended acquisitions.
+	 * @return the count of each of the {@link #WAIT_TIME_BUCKETS} buckets
+	 */
+	public long[] getWaitTimeHistogram() {
+		long[] histogram = new long[WAIT_TIME_BUCKETS];
+		for (int i = 0; i < histogram.length; i++) {
+			histogram[i] = waitTimeHistogram.get(i);
+		}
+		return histogram;
+	}
+}
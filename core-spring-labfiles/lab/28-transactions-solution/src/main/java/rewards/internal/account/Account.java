@@ -1,12 +1,15 @@
 package rewards.internal.account;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import rewards.AccountContribution;
 import rewards.AccountContribution.Distribution;
 
+import common.money.MonetaryAccumulator;
 import common.money.MonetaryAmount;
 import common.money.Percentage;
 import common.repository.Entity;
@@ -148,6 +151,33 @@ public class Account extends Entity {
 		throw new IllegalArgumentException("No such beneficiary with name '" + name + "'");
 	}
 
+	/**
+	 * Returns the total savings of all beneficiaries of this account, for example for an account statement.
+	 * @return the total savings
+	 */
+	public MonetaryAmount getTotalSavings() {
+		MonetaryAccumulator total = new MonetaryAccumulator();
+		for (Beneficiary b : beneficiaries) {
+			total.add(b.getSavings());
+		}
+		return total.total();
+	}
+
+	/**
+	 * Returns the beneficiaries whose savings were changed by a contribution since this account was restored or its
+	 * savings were last written and committed. Should only be called by the repository responsible for writing this account.
+	 * @return the changed beneficiaries, possibly none
+	 */
+	List<Beneficiary> getDirtyBeneficiaries() {
+		List<Beneficiary> dirty = new ArrayList<Beneficiary>(beneficiaries.size());
+		for (Beneficiary b : beneficiaries) {
+			if (b.isDirty()) {
+				dirty.add(b);
+			}
+		}
+		return dirty;
+	}
+
 	/**
 	 * Used to restore an allocated beneficiary. Should only be called by the repository responsible for reconstituting
 	 * this account.
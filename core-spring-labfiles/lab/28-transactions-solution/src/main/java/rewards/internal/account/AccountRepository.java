@@ -1,5 +1,11 @@
 package rewards.internal.account;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import rewards.AccountContribution;
+
 /**
  * Loads account aggregates. Called by the reward network to find and reconstitute Account entities from an external
  * form such as a set of RDMS rows.
@@ -15,9 +21,18 @@ public interface AccountRepository {
 	 */
 	public Account findByCreditCard(String creditCardNumber);
 
+	/**
+	 * Load the accounts of several credit cards at once. Credit cards of the same account map to the same account
+	 * object.
+	 * @param creditCardNumbers the credit card numbers
+	 * @return the accounts by credit card number; unknown credit cards are left out
+	 */
+	public Map<String, Account> findByCreditCards(Collection<String> creditCardNumbers);
+
 	/**
 	 * Updates the 'savings' of each account beneficiary. The new savings balance contains the amount distributed for a
-	 * contribution made during a reward transaction.
+	 * contribution made during a reward transaction. Beneficiaries whose savings no contribution changed since the
+	 * account was loaded may be skipped.
 	 * <p>
 	 * Note: use of an object-relational mapper (ORM) with support for transparent-persistence like Hibernate (or the
 	 * new Java Persistence API (JPA)) would remove the need for this explicit update operation as the ORM would take
@@ -26,4 +41,30 @@ public interface AccountRepository {
 	 */
 	public void updateBeneficiaries(Account account);
 
+	/**
+	 * Updates the 'savings' of each beneficiary of several accounts at once, for example after a batch of rewards.
+	 * @param accounts the accounts whose beneficiary savings have changed
+	 * @see #updateBeneficiaries(Account)
+	 */
+	public void updateBeneficiaries(Collection<Account> accounts);
+
+	/**
+	 * Adds the amounts distributed by a contribution to the stored 'savings' of the account's beneficiaries. Unlike
+	 * {@link #updateBeneficiaries(Account)}, which overwrites the savings with the balance computed in memory, this
+	 * increments the savings in place, so contributions made to the same account by concurrent transactions are all
+	 * kept without having to serialize those transactions. Distributions of nothing may be skipped.
+	 * @param account the account the contribution was made to
+	 * @param contribution the contribution whose distributions to add
+	 */
+	public void creditBeneficiaries(Account account, AccountContribution contribution);
+
+	/**
+	 * Adds the amounts distributed by several contributions to the stored 'savings' of the beneficiaries at once, for
+	 * example after a batch of rewards. An account may appear more than once.
+	 * @param accounts the accounts the contributions were made to, one per contribution
+	 * @param contributions the contributions whose distributions to add
+	 * @see #creditBeneficiaries(Account, AccountContribution)
+	 */
+	public void creditBeneficiaries(List<Account> accounts, List<AccountContribution> contributions);
+
 }
\ No newline at end of file
@@ -0,0 +1,112 @@
+package rewards.internal.account;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import common.money.MonetaryAmount;
+import common.money.Percentage;
+
+/**
+ * Reads accounts and their beneficiaries from the rows of the account join queried by {@link JdbcAccountRepository}.
+ *
+ * The column indexes are resolved by label once, when the reader is created for a result set, and every row is then
+ * read by index. Savings and allocation percentages are read as decimals and converted directly, rather than read as
+ * strings and parsed. A reader is only valid for the result set it was created for, or for another result set of the
+ * same query.
+ */
+public class AccountRowReader {
+
+	private ResultSet resultSet;
+
+	private int id;
+
+	private int accountNumber;
+
+	private int accountName;
+
+	private int creditCardNumber;
+
+	private int beneficiaryName;
+
+	private int beneficiaryAllocationPercentage;
+
+	private int beneficiarySavings;
+
+	/**
+	 * Creates a reader, resolving the column indexes of the result set.
+	 * @param rs the result set of an account join query
+	 * @throws SQLException a column is missing from the result set
+	 */
+	public AccountRowReader(ResultSet rs) throws SQLException {
+		this.resultSet = rs;
+		this.id = rs.findColumn("ID");
+		this.accountNumber = rs.findColumn("ACCOUNT_NUMBER");
+		this.accountName = rs.findColumn("ACCOUNT_NAME");
+		this.creditCardNumber = rs.findColumn("CREDIT_CARD_NUMBER");
+		this.beneficiaryName = rs.findColumn("BENEFICIARY_NAME");
+		this.beneficiaryAllocationPercentage = rs.findColumn("BENEFICIARY_ALLOCATION_PERCENTAGE");
+		this.beneficiarySavings = rs.findColumn("BENEFICIARY_SAVINGS");
+	}
+
+	/**
+	 * Returns a reader for the result set: the given reader if it was created for it, otherwise a new one.
+	 * @param rs the result set of an account join query
+	 * @param reader the reader used so far, or null
+	 */
+	public static AccountRowReader forResultSet(ResultSet rs, AccountRowReader reader) throws SQLException {
+		return reader != null && reader.resultSet == rs ? reader : new AccountRowReader(rs);
+	}
+
+	/**
+	 * Returns the id of the account in the current row.
+	 */
+	public long getAccountId(ResultSet rs) throws SQLException {
+		return rs.getLong(id);
+	}
+
+	/**
+	 * Returns the credit card number in the current row.
+	 */
+	public String getCreditCardNumber(ResultSet rs) throws SQLException {
+		return rs.getString(creditCardNumber);
+	}
+
+	/**
+	 * Maps the account columns of the current row to an account without beneficiaries.
+	 */
+	public Account mapAccount(ResultSet rs) throws SQLException {
+		Account account = new Account(rs.getString(accountNumber), rs.getString(accountName));
+		// set internal entity identifier (primary key)
+		account.setEntityId(rs.getLong(id));
+		return account;
+	}
+
+	/**
+	 * Maps the beneficiary columns of the current row and restores the beneficiary to the account.
+	 */
+	public void restoreBeneficiary(Account account, ResultSet rs) throws SQLException {
+		account.restoreBeneficiary(mapBeneficiary(rs));
+	}
+
+	/**
+	 * Maps the beneficiary columns of the current row to a beneficiary.
+	 */
+	public Beneficiary mapBeneficiary(ResultSet rs) throws SQLException {
+		String name = rs.getString(beneficiaryName);
+		MonetaryAmount savings = toMonetaryAmount(rs.getBigDecimal(beneficiarySavings));
+		Percentage allocationPercentage = Percentage.valueOf(rs.getBigDecimal(beneficiaryAllocationPercentage));
+		return new Beneficiary(name, allocationPercentage, savings);
+	}
+
+	/**
+	 * Converts a decimal column value, taking its unscaled value as the cents when it has the scale of the SAVINGS
+	 * column.
+	 */
+	private static MonetaryAmount toMonetaryAmount(BigDecimal value) {
+		if (value.scale() == 2 && value.unscaledValue().bitLength() < Long.SIZE) {
+			return MonetaryAmount.valueOfCents(value.unscaledValue().longValue());
+		}
+		return new MonetaryAmount(value);
+	}
+}
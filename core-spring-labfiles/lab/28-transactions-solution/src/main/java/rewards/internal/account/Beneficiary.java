@@ -1,5 +1,6 @@
 package rewards.internal.account;
 
+import common.money.MonetaryAccumulator;
 import common.money.MonetaryAmount;
 import common.money.Percentage;
 import common.repository.Entity;
@@ -10,11 +11,32 @@ import common.repository.Entity;
  */
 public class Beneficiary extends Entity {
 
+	private static final MonetaryAmount ZERO = MonetaryAmount.zero();
+
 	private String name;
 
 	private Percentage allocationPercentage;
 
-	private MonetaryAmount savings = MonetaryAmount.valueOf("0.00");
+	/**
+	 * The savings balance, updated in place by each credit rather than replaced by a new immutable amount.
+	 */
+	private final MonetaryAccumulator savings = new MonetaryAccumulator();
+
+	/**
+	 * The savings balance as an immutable amount, built from the accumulator the first time it is asked for after a
+	 * credit; null until then. Keeps repeated reads of the balance from allocating a new amount each time.
+	 */
+	private MonetaryAmount savingsSnapshot;
+
+	/**
+	 * The number of credits that changed the savings balance since this beneficiary was restored.
+	 */
+	private int changes;
+
+	/**
+	 * The number of those changes whose savings balance has been written and committed.
+	 */
+	private int writtenChanges;
 
 	@SuppressWarnings("unused")
 	private Beneficiary() {
@@ -41,7 +63,8 @@ public class Beneficiary extends Entity {
 	Beneficiary(String name, Percentage allocationPercentage, MonetaryAmount savings) {
 		this.name = name;
 		this.allocationPercentage = allocationPercentage;
-		this.savings = savings;
+		this.savings.add(savings);
+		this.savingsSnapshot = savings;
 	}
 
 	/**
@@ -62,7 +85,12 @@ public class Beneficiary extends Entity {
 	 * Returns the amount of savings this beneficiary has accrued.
 	 */
 	public MonetaryAmount getSavings() {
-		return savings;
+		MonetaryAmount snapshot = savingsSnapshot;
+		if (snapshot == null) {
+			snapshot = savings.total();
+			savingsSnapshot = snapshot;
+		}
+		return snapshot;
 	}
 
 	/**
@@ -70,7 +98,34 @@ public class Beneficiary extends Entity {
 	 * @param amount the amount to credit
 	 */
 	public void credit(MonetaryAmount amount) {
-		savings = savings.add(amount);
+		savings.add(amount);
+		if (!amount.equals(ZERO)) {
+			savingsSnapshot = null;
+			changes++;
+		}
+	}
+
+	/**
+	 * Returns true if a credit changed the savings balance since this beneficiary was restored or last written.
+	 */
+	boolean isDirty() {
+		return changes != writtenChanges;
+	}
+
+	/**
+	 * Returns the number of credits that changed the savings balance since this beneficiary was restored.
+	 */
+	int getChanges() {
+		return changes;
+	}
+
+	/**
+	 * Marks the savings balance as written as of the given number of changes, so credits made since are still
+	 * written. Should only be called by the repository that wrote it, once the write is committed.
+	 * @param changes the number of changes when the savings balance was written
+	 */
+	void markWritten(int changes) {
+		writtenChanges = Math.max(writtenChanges, changes);
 	}
 
 	public String toString() {
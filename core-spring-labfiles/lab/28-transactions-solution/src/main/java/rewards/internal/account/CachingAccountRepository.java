@@ -0,0 +1,539 @@
+package rewards.internal.account;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import rewards.AccountContribution;
+import rewards.AccountContribution.Distribution;
+
+import common.money.MonetaryAmount;
+import common.money.Percentage;
+
+/**
+ * A near cache in front of another account repository, keeping the accounts most recently looked up by credit card in
+ * memory so a reward usually skips the join of the account tables.
+ *
+ * The cache holds at most about the given number of credit cards and evicts those least recently used, judged by the
+ * time each was last looked up; once full, it evicts a few more than needed at a time so loads do not each scan the
+ * cache. Credit cards of the same account share one cached copy of the account. Every lookup returns a new Account
+ * object built from that copy, so callers may contribute to it as usual without affecting the cache or each other.
+ *
+ * Savings writes go through to the other repository and are then applied to the cached copy in place, once the
+ * transaction they were made in has committed; a rolled back write leaves the cache alone. Savings overwritten by
+ * {@link #updateBeneficiaries(Account)} evict the account instead, once committed. An account loaded while a write to
+ * it may be in progress is returned but not cached, since it could include that write or not. Changes to
+ * accounts made other than through this repository, such as adding or removing beneficiaries, or writes made by
+ * another application instance, are not seen until the account is evicted: call {@link #evictAccount(Long)} or
+ * {@link #evictAll()} after making them.
+ *
+ * Lookups that hit take no lock, so the cache adds no contention point to the reward path. Writes and loads lock a
+ * stripe of accounts by account id, and only evictions to stay within the maximum size take a lock of their own.
+ *
+ * Exports hit, miss, eviction and load time metrics when bound to a {@link MeterRegistry}. Thread-safe.
+ */
+public class CachingAccountRepository implements AccountRepository, MeterBinder {
+
+	/**
+	 * The number of stripes writes in progress are tracked by. Accounts sharing a stripe are not cached while any one
+	 * of them is written, so more stripes mean fewer loads discarded.
+	 */
+	private static final int WRITE_STRIPES = 64;
+
+	/**
+	 * Once the cache is full, each eviction scan evicts this share of the maximum size beyond the credit cards it must.
+	 */
+	private static final int EXTRA_EVICTIONS_DIVISOR = 16;
+
+	private AccountRepository accountRepository;
+
+	private int maximumSize;
+
+	private final ConcurrentHashMap<String, CreditCardEntry> accountsByCreditCard =
+			new ConcurrentHashMap<String, CreditCardEntry>();
+
+	/**
+	 * The cached accounts by id, changed only holding the lock of the account's stripe. Every account a credit card
+	 * entry refers to is in here, so a committed write always finds the cached copy to apply itself to.
+	 */
+	private final ConcurrentHashMap<Long, CachedAccount> accountsById = new ConcurrentHashMap<Long, CachedAccount>();
+
+	private final Object[] stripeLocks = new Object[WRITE_STRIPES];
+
+	/**
+	 * The number of writes in progress per stripe, guarded by the stripe's lock.
+	 */
+	private final int[] writesInProgress = new int[WRITE_STRIPES];
+
+	/**
+	 * The sequence number of the last write completed per stripe, guarded by the stripe's lock.
+	 */
+	private final long[] lastWriteCompleted = new long[WRITE_STRIPES];
+
+	private final AtomicLong sequence = new AtomicLong();
+
+	private final Object evictionLock = new Object();
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	private final LongAdder loads = new LongAdder();
+
+	private final LongAdder loadNanos = new LongAdder();
+
+	/**
+	 * Creates a new near cache.
+	 * @param accountRepository the repository to load accounts from and write savings to
+	 * @param maximumSize the most credit cards to cache accounts for
+	 */
+	public CachingAccountRepository(AccountRepository accountRepository, int maximumSize) {
+		if (maximumSize < 1) {
+			throw new IllegalArgumentException("The maximum size must be positive; it was " + maximumSize);
+		}
+		this.accountRepository = accountRepository;
+		this.maximumSize = maximumSize;
+		for (int i = 0; i < WRITE_STRIPES; i++) {
+			stripeLocks[i] = new Object();
+		}
+	}
+
+	public Account findByCreditCard(String creditCardNumber) {
+		CreditCardEntry entry = accountsByCreditCard.get(creditCardNumber);
+		if (entry != null) {
+			entry.lastUsed = System.nanoTime();
+			hits.increment();
+			return entry.account.toAccount();
+		}
+		misses.increment();
+		long loadStart = sequence.get();
+		long start = System.nanoTime();
+		Account account = accountRepository.findByCreditCard(creditCardNumber);
+		loadNanos.add(System.nanoTime() - start);
+		loads.increment();
+		cache(creditCardNumber, account, loadStart);
+		evictIfFull();
+		return account;
+	}
+
+	public Map<String, Account> findByCreditCards(Collection<String> creditCardNumbers) {
+		Map<String, Account> accounts = new HashMap<String, Account>();
+		// credit cards of the same account map to the same account object
+		Map<Long, Account> found = new HashMap<Long, Account>();
+		List<String> missing = new ArrayList<String>();
+		for (String creditCardNumber : creditCardNumbers) {
+			CreditCardEntry entry = accountsByCreditCard.get(creditCardNumber);
+			if (entry == null) {
+				misses.increment();
+				missing.add(creditCardNumber);
+			} else {
+				entry.lastUsed = System.nanoTime();
+				hits.increment();
+				CachedAccount cached = entry.account;
+				accounts.put(creditCardNumber, found.computeIfAbsent(cached.id, id -> cached.toAccount()));
+			}
+		}
+		if (missing.isEmpty()) {
+			return accounts;
+		}
+		long loadStart = sequence.get();
+		long start = System.nanoTime();
+		Map<String, Account> loaded = accountRepository.findByCreditCards(missing);
+		loadNanos.add(System.nanoTime() - start);
+		loads.increment();
+		for (Map.Entry<String, Account> entry : loaded.entrySet()) {
+			cache(entry.getKey(), entry.getValue(), loadStart);
+		}
+		evictIfFull();
+		for (Map.Entry<String, Account> entry : loaded.entrySet()) {
+			Account account = entry.getValue();
+			accounts.put(entry.getKey(), found.computeIfAbsent(account.getEntityId(), id -> account));
+		}
+		return accounts;
+	}
+
+	/**
+	 * Writes the savings through and evicts the account once the write commits. The other repository may skip
+	 * beneficiaries whose savings are unchanged, so the cached copy cannot tell which balances were written.
+	 */
+	public void updateBeneficiaries(Account account) {
+		write(account.getEntityId(), () -> accountRepository.updateBeneficiaries(account), this::evict);
+	}
+
+	public void updateBeneficiaries(Collection<Account> accounts) {
+		// one database batch, but each account is evicted on its own
+		for (Account account : accounts) {
+			beginWrite(account.getEntityId());
+		}
+		try {
+			accountRepository.updateBeneficiaries(accounts);
+		} catch (RuntimeException e) {
+			for (Account account : accounts) {
+				completeWrite(account.getEntityId(), null);
+			}
+			throw e;
+		}
+		for (Account account : accounts) {
+			onCommit(account.getEntityId(), this::evict);
+		}
+	}
+
+	public void creditBeneficiaries(Account account, AccountContribution contribution) {
+		write(account.getEntityId(), () -> accountRepository.creditBeneficiaries(account, contribution),
+				cached -> cached.credit(contribution));
+	}
+
+	public void creditBeneficiaries(List<Account> accounts, List<AccountContribution> contributions) {
+		for (Account account : accounts) {
+			beginWrite(account.getEntityId());
+		}
+		try {
+			accountRepository.creditBeneficiaries(accounts, contributions);
+		} catch (RuntimeException e) {
+			for (Account account : accounts) {
+				completeWrite(account.getEntityId(), null);
+			}
+			throw e;
+		}
+		for (int i = 0; i < accounts.size(); i++) {
+			AccountContribution contribution = contributions.get(i);
+			onCommit(accounts.get(i).getEntityId(), cached -> cached.credit(contribution));
+		}
+	}
+
+	/**
+	 * Removes an account from the cache, under all of its credit cards, for example after its beneficiaries changed.
+	 * @param accountId the entity id of the account
+	 */
+	public void evictAccount(Long accountId) {
+		synchronized (stripeLocks[stripeOf(accountId)]) {
+			CachedAccount cached = accountsById.get(accountId);
+			if (cached != null) {
+				evict(cached);
+			}
+		}
+	}
+
+	/**
+	 * Removes all accounts from the cache.
+	 */
+	public void evictAll() {
+		for (Long accountId : accountsById.keySet()) {
+			evictAccount(accountId);
+		}
+	}
+
+	private void evict(CachedAccount cached) {
+		synchronized (stripeLocks[stripeOf(cached.id)]) {
+			accountsById.remove(cached.id, cached);
+			for (String creditCardNumber : cached.creditCardNumbers) {
+				accountsByCreditCard.computeIfPresent(creditCardNumber,
+						(number, entry) -> entry.account == cached ? null : entry);
+			}
+			cached.creditCardNumbers.clear();
+		}
+	}
+
+	private void write(Long accountId, Runnable write, SavingsUpdate update) {
+		beginWrite(accountId);
+		try {
+			write.run();
+		} catch (RuntimeException e) {
+			completeWrite(accountId, null);
+			throw e;
+		}
+		onCommit(accountId, update);
+	}
+
+	/**
+	 * Applies the savings update to the cached account once the current transaction commits, or right away if there is
+	 * no transaction.
+	 */
+	private void onCommit(Long accountId, SavingsUpdate update) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			completeWrite(accountId, update);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			public void afterCompletion(int status) {
+				completeWrite(accountId, status == STATUS_COMMITTED ? update : null);
+			}
+		});
+	}
+
+	private void beginWrite(Long accountId) {
+		int stripe = stripeOf(accountId);
+		synchronized (stripeLocks[stripe]) {
+			writesInProgress[stripe]++;
+		}
+	}
+
+	private void completeWrite(Long accountId, SavingsUpdate update) {
+		int stripe = stripeOf(accountId);
+		synchronized (stripeLocks[stripe]) {
+			writesInProgress[stripe]--;
+			lastWriteCompleted[stripe] = sequence.incrementAndGet();
+			if (update != null) {
+				CachedAccount cached = accountsById.get(accountId);
+				if (cached != null) {
+					update.apply(cached);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Caches a loaded account, unless a write to its stripe was in progress or completed while it was loaded.
+	 */
+	private void cache(String creditCardNumber, Account account, long loadStart) {
+		int stripe = stripeOf(account.getEntityId());
+		CreditCardEntry previous;
+		synchronized (stripeLocks[stripe]) {
+			if (writesInProgress[stripe] > 0 || lastWriteCompleted[stripe] > loadStart) {
+				return;
+			}
+			CachedAccount cached = accountsById.computeIfAbsent(account.getEntityId(),
+					id -> new CachedAccount(account));
+			cached.creditCardNumbers.add(creditCardNumber);
+			previous = accountsByCreditCard.put(creditCardNumber, new CreditCardEntry(cached));
+			if (previous == null || previous.account == cached) {
+				return;
+			}
+		}
+		// the credit card moved to another account, whose stripe may be another one
+		forgetCreditCard(previous.account, creditCardNumber);
+	}
+
+	/**
+	 * Evicts the credit cards least recently looked up if the cache has grown beyond its maximum size.
+	 */
+	private void evictIfFull() {
+		if (accountsByCreditCard.size() <= maximumSize) {
+			return;
+		}
+		synchronized (evictionLock) {
+			int excess = accountsByCreditCard.size() - maximumSize;
+			if (excess <= 0) {
+				return;
+			}
+			int count = excess + maximumSize / EXTRA_EVICTIONS_DIVISOR;
+			// the least recently used entries seen so far, the most recently used of them first
+			PriorityQueue<Map.Entry<String, CreditCardEntry>> oldest =
+					new PriorityQueue<Map.Entry<String, CreditCardEntry>>(count + 1,
+							(a, b) -> Long.compare(b.getValue().lastUsed, a.getValue().lastUsed));
+			for (Map.Entry<String, CreditCardEntry> entry : accountsByCreditCard.entrySet()) {
+				oldest.add(new AbstractMap.SimpleImmutableEntry<String, CreditCardEntry>(entry));
+				if (oldest.size() > count) {
+					oldest.poll();
+				}
+			}
+			for (Map.Entry<String, CreditCardEntry> entry : oldest) {
+				if (accountsByCreditCard.remove(entry.getKey(), entry.getValue())) {
+					evictions.increment();
+					forgetCreditCard(entry.getValue().account, entry.getKey());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Forgets that the account is cached under a credit card that no longer refers to it, dropping the account once it
+	 * is cached under none.
+	 */
+	private void forgetCreditCard(CachedAccount cached, String creditCardNumber) {
+		synchronized (stripeLocks[stripeOf(cached.id)]) {
+			CreditCardEntry current = accountsByCreditCard.get(creditCardNumber);
+			if (current != null && current.account == cached) {
+				return;
+			}
+			cached.creditCardNumbers.remove(creditCardNumber);
+			if (cached.creditCardNumbers.isEmpty()) {
+				accountsById.remove(cached.id, cached);
+			}
+		}
+	}
+
+	private static int stripeOf(Long accountId) {
+		return Math.floorMod(accountId.hashCode(), WRITE_STRIPES);
+	}
+
+	/**
+	 * Returns the number of credit cards accounts are cached for.
+	 */
+	public int getSize() {
+		return accountsByCreditCard.size();
+	}
+
+	/**
+	 * Returns the number of lookups answered from the cache.
+	 */
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of lookups that had to load the account.
+	 */
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * Returns the share of lookups answered from the cache.
+	 */
+	public double getHitRate() {
+		long hitCount = hits.sum();
+		long lookups = hitCount + misses.sum();
+		return lookups == 0 ? 0 : (double) hitCount / lookups;
+	}
+
+	/**
+	 * Returns the number of credit cards evicted to stay within the maximum size.
+	 */
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	/**
+	 * Returns the number of loads from the other repository, a batch lookup counting as one.
+	 */
+	public long getLoadCount() {
+		return loads.sum();
+	}
+
+	/**
+	 * Returns the total time spent loading, in nanoseconds.
+	 */
+	public long getTotalLoadTime() {
+		return loadNanos.sum();
+	}
+
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("rewards.account.cache.gets", this, CachingAccountRepository::getHitCount)
+				.tag("result", "hit")
+				.description("The number of account lookups answered from the cache")
+				.register(registry);
+		FunctionCounter.builder("rewards.account.cache.gets", this, CachingAccountRepository::getMissCount)
+				.tag("result", "miss")
+				.description("The number of account lookups that loaded the account")
+				.register(registry);
+		FunctionCounter.builder("rewards.account.cache.evictions", this, CachingAccountRepository::getEvictionCount)
+				.description("The number of credit cards evicted from the account cache")
+				.register(registry);
+		Gauge.builder("rewards.account.cache.size", this, CachingAccountRepository::getSize)
+				.description("The number of credit cards accounts are cached for")
+				.register(registry);
+		FunctionTimer.builder("rewards.account.cache.loads", this, CachingAccountRepository::getLoadCount,
+				CachingAccountRepository::getTotalLoadTime, TimeUnit.NANOSECONDS)
+				.description("The time spent loading accounts missing from the cache")
+				.register(registry);
+	}
+
+	private interface SavingsUpdate {
+
+		void apply(CachedAccount cached);
+	}
+
+	/**
+	 * A credit card in the cache, with the time it was last looked up.
+	 */
+	private static class CreditCardEntry {
+
+		private final CachedAccount account;
+
+		private volatile long lastUsed = System.nanoTime();
+
+		CreditCardEntry(CachedAccount account) {
+			this.account = account;
+		}
+	}
+
+	/**
+	 * The cached copy of an account, with the credit cards it is cached under. The savings are replaced as a whole by
+	 * each credit, made holding the lock of the account's stripe, so lookups can read them without locking.
+	 */
+	private static class CachedAccount {
+
+		private Long id;
+
+		private String number;
+
+		private String name;
+
+		private String[] beneficiaryNames;
+
+		private Percentage[] allocationPercentages;
+
+		private volatile MonetaryAmount[] savings;
+
+		private Set<String> creditCardNumbers = ConcurrentHashMap.newKeySet(1);
+
+		CachedAccount(Account account) {
+			this.id = account.getEntityId();
+			this.number = account.getNumber();
+			this.name = account.getName();
+			int size = account.getBeneficiaries().size();
+			this.beneficiaryNames = new String[size];
+			this.allocationPercentages = new Percentage[size];
+			MonetaryAmount[] savings = new MonetaryAmount[size];
+			int i = 0;
+			for (Beneficiary beneficiary : account.getBeneficiaries()) {
+				beneficiaryNames[i] = beneficiary.getName();
+				allocationPercentages[i] = beneficiary.getAllocationPercentage();
+				savings[i] = beneficiary.getSavings();
+				i++;
+			}
+			this.savings = savings;
+		}
+
+		Account toAccount() {
+			MonetaryAmount[] savings = this.savings;
+			Account account = new Account(number, name);
+			account.setEntityId(id);
+			for (int i = 0; i < beneficiaryNames.length; i++) {
+				account.restoreBeneficiary(new Beneficiary(beneficiaryNames[i], allocationPercentages[i], savings[i]));
+			}
+			return account;
+		}
+
+		void credit(AccountContribution contribution) {
+			MonetaryAmount[] credited = savings.clone();
+			for (Distribution distribution : contribution.getDistributions()) {
+				int i = indexOf(distribution.getBeneficiary());
+				if (i >= 0) {
+					credited[i] = credited[i].add(distribution.getAmount());
+				}
+			}
+			savings = credited;
+		}
+
+		private int indexOf(String beneficiaryName) {
+			for (int i = 0; i < beneficiaryNames.length; i++) {
+				if (beneficiaryNames[i].equals(beneficiaryName)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+	}
+}
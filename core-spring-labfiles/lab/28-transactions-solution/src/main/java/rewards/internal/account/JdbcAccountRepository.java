@@ -2,6 +2,14 @@ package rewards.internal.account;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.sql.DataSource;
 
@@ -9,17 +17,38 @@ import org.springframework.dao.DataAccessException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import rewards.AccountContribution;
+import rewards.AccountContribution.Distribution;
+
+import common.money.MonetaryAccumulator;
 import common.money.MonetaryAmount;
-import common.money.Percentage;
 
 /**
  * Loads accounts from a data source using the JDBC API.
  */
 public class JdbcAccountRepository implements AccountRepository {
-	
+
+	/**
+	 * The most credit card numbers bound to a single IN list; larger lookups are split into several queries.
+	 */
+	private static final int MAX_IN_LIST_SIZE = 1000;
+
+	private static final MonetaryAmount ZERO = MonetaryAmount.zero();
+
 	private JdbcTemplate jdbcTemplate;
 
+	private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+	/**
+	 * The beneficiary updates and credits skipped so far because the savings had not changed or were written together.
+	 */
+	private final AtomicLong statementsSaved = new AtomicLong();
+
 	/**
 	 * Extracts an Account object from rows returned from a join of T_ACCOUNT and T_ACCOUNT_BENEFICIARY.
 	 */
@@ -27,6 +56,7 @@ public class JdbcAccountRepository implements AccountRepository {
 
 	public void setDataSource(DataSource dataSource) {
 		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
 	}
 	
 	public Account findByCreditCard(String creditCardNumber) {
@@ -34,11 +64,124 @@ public class JdbcAccountRepository implements AccountRepository {
 		return jdbcTemplate.query(sql, accountExtractor, creditCardNumber);
 	}
 
+	public Map<String, Account> findByCreditCards(Collection<String> creditCardNumbers) {
+		String sql = "select a.ID as ID, a.NUMBER as ACCOUNT_NUMBER, a.NAME as ACCOUNT_NAME, c.NUMBER as CREDIT_CARD_NUMBER, b.NAME as BENEFICIARY_NAME, b.ALLOCATION_PERCENTAGE as BENEFICIARY_ALLOCATION_PERCENTAGE, b.SAVINGS as BENEFICIARY_SAVINGS from T_ACCOUNT a, T_ACCOUNT_BENEFICIARY b, T_ACCOUNT_CREDIT_CARD c where ID = b.ACCOUNT_ID and ID = c.ACCOUNT_ID and c.NUMBER in (:creditCardNumbers)";
+		AccountsByCreditCardHandler handler = new AccountsByCreditCardHandler();
+		List<String> numbers = new ArrayList<String>(creditCardNumbers);
+		for (int start = 0; start < numbers.size(); start += MAX_IN_LIST_SIZE) {
+			List<String> chunk = numbers.subList(start, Math.min(start + MAX_IN_LIST_SIZE, numbers.size()));
+			namedParameterJdbcTemplate.query(sql, Collections.singletonMap("creditCardNumbers", chunk), handler);
+		}
+		return handler.accountsByCreditCard;
+	}
+
+	/**
+	 * Writes the savings of the beneficiaries a contribution changed since the account was loaded or last written, in
+	 * a single batch. Beneficiaries whose savings are unchanged are not written.
+	 */
 	public void updateBeneficiaries(Account account) {
+		updateBeneficiaries(Collections.singletonList(account));
+	}
+
+	public void updateBeneficiaries(Collection<Account> accounts) {
 		String sql = "update T_ACCOUNT_BENEFICIARY SET SAVINGS = ? where ACCOUNT_ID = ? and NAME = ?";
-		for (Beneficiary b : account.getBeneficiaries()) {
-			jdbcTemplate.update(sql, b.getSavings().asBigDecimal(), account.getEntityId(), b.getName());
+		List<Beneficiary> written = new ArrayList<Beneficiary>();
+		List<Object[]> batchArgs = new ArrayList<Object[]>();
+		long skipped = 0;
+		for (Account account : accounts) {
+			List<Beneficiary> dirty = account.getDirtyBeneficiaries();
+			skipped += account.getBeneficiaries().size() - dirty.size();
+			for (Beneficiary b : dirty) {
+				written.add(b);
+				batchArgs.add(new Object[] { b.getSavings().asBigDecimal(), account.getEntityId(), b.getName() });
+			}
+		}
+		statementsSaved.addAndGet(skipped);
+		if (batchArgs.isEmpty()) {
+			return;
+		}
+		int[] writtenChanges = new int[written.size()];
+		for (int i = 0; i < written.size(); i++) {
+			writtenChanges[i] = written.get(i).getChanges();
+		}
+		jdbcTemplate.batchUpdate(sql, batchArgs);
+		markWrittenAfterCommit(written, writtenChanges);
+	}
+
+	/**
+	 * Marks the beneficiaries written as of the given numbers of changes once the current transaction commits, or
+	 * right away outside of a transaction. A rolled back write leaves its beneficiaries dirty, so writing the account
+	 * again still writes them.
+	 */
+	private static void markWrittenAfterCommit(List<Beneficiary> written, int[] writtenChanges) {
+		Runnable action = () -> {
+			for (int i = 0; i < written.size(); i++) {
+				written.get(i).markWritten(writtenChanges[i]);
+			}
+		};
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			public void afterCommit() {
+				action.run();
+			}
+		});
+	}
+
+	/**
+	 * Returns the number of beneficiary update statements not executed so far, because the beneficiary's savings had
+	 * not changed or were credited in the same statement as another distribution.
+	 */
+	public long getStatementsSaved() {
+		return statementsSaved.get();
+	}
+
+	/**
+	 * Adds the distributed amounts to the stored savings in a single batch. Distributions that leave the savings
+	 * unchanged are not written, and the distributions of contributions made to the same account are added up so each
+	 * beneficiary is written once. The credited beneficiaries count as written once the credit commits.
+	 */
+	public void creditBeneficiaries(Account account, AccountContribution contribution) {
+		creditBeneficiaries(Collections.singletonList(account), Collections.singletonList(contribution));
+	}
+
+	public void creditBeneficiaries(List<Account> accounts, List<AccountContribution> contributions) {
+		if (accounts.size() != contributions.size()) {
+			throw new IllegalArgumentException("Expected one account per contribution but got " + accounts.size()
+					+ " accounts for " + contributions.size() + " contributions");
 		}
+		String sql = "update T_ACCOUNT_BENEFICIARY SET SAVINGS = SAVINGS + ? where ACCOUNT_ID = ? and NAME = ?";
+		Map<Beneficiary, MonetaryAccumulator> credits = new LinkedHashMap<Beneficiary, MonetaryAccumulator>();
+		Map<Beneficiary, Long> accountIds = new HashMap<Beneficiary, Long>();
+		long distributions = 0;
+		for (int i = 0; i < contributions.size(); i++) {
+			Account account = accounts.get(i);
+			for (Distribution d : contributions.get(i).getDistributions()) {
+				distributions++;
+				if (d.getAmount().equals(ZERO)) {
+					continue;
+				}
+				Beneficiary beneficiary = account.getBeneficiary(d.getBeneficiary());
+				credits.computeIfAbsent(beneficiary, b -> new MonetaryAccumulator()).add(d.getAmount());
+				accountIds.put(beneficiary, account.getEntityId());
+			}
+		}
+		statementsSaved.addAndGet(distributions - credits.size());
+		if (credits.isEmpty()) {
+			return;
+		}
+		List<Beneficiary> written = new ArrayList<Beneficiary>(credits.keySet());
+		List<Object[]> batchArgs = new ArrayList<Object[]>(written.size());
+		int[] writtenChanges = new int[written.size()];
+		for (int i = 0; i < written.size(); i++) {
+			Beneficiary b = written.get(i);
+			batchArgs.add(new Object[] { credits.get(b).total().asBigDecimal(), accountIds.get(b), b.getName() });
+			writtenChanges[i] = b.getChanges();
+		}
+		jdbcTemplate.batchUpdate(sql, batchArgs);
+		markWrittenAfterCommit(written, writtenChanges);
 	}
 
 	/**
@@ -50,16 +193,13 @@ public class JdbcAccountRepository implements AccountRepository {
 	 * @throws SQLException an exception occurred extracting data from the result set
 	 */
 	private Account mapAccount(ResultSet rs) throws SQLException {
+		AccountRowReader reader = new AccountRowReader(rs);
 		Account account = null;
 		while (rs.next()) {
 			if (account == null) {
-				String number = rs.getString("ACCOUNT_NUMBER");
-				String name = rs.getString("ACCOUNT_NAME");
-				account = new Account(number, name);
-				// set internal entity identifier (primary key)
-				account.setEntityId(rs.getLong("ID"));
+				account = reader.mapAccount(rs);
 			}
-			account.restoreBeneficiary(mapBeneficiary(rs));
+			reader.restoreBeneficiary(account, rs);
 		}
 		if (account == null) {
 			// no rows returned - throw an empty result exception
@@ -68,20 +208,6 @@ public class JdbcAccountRepository implements AccountRepository {
 		return account;
 	}
 
-	/**
-	 * Maps the beneficiary columns in a single row to an AllocatedBeneficiary object.
-	 * 
-	 * @param rs the result set with its cursor positioned at the current row
-	 * @return an allocated beneficiary
-	 * @throws SQLException an exception occurred extracting data from the result set
-	 */
-	private Beneficiary mapBeneficiary(ResultSet rs) throws SQLException {
-		String name = rs.getString("BENEFICIARY_NAME");
-		MonetaryAmount savings = MonetaryAmount.valueOf(rs.getString("BENEFICIARY_SAVINGS"));
-		Percentage allocationPercentage = Percentage.valueOf(rs.getString("BENEFICIARY_ALLOCATION_PERCENTAGE"));
-		return new Beneficiary(name, allocationPercentage, savings);
-	}
-
 	private class AccountExtractor implements ResultSetExtractor<Account> {
 
 		public Account extractData(ResultSet rs) throws SQLException, DataAccessException {
@@ -89,4 +215,38 @@ public class JdbcAccountRepository implements AccountRepository {
 		}
 
 	}
+
+	/**
+	 * Maps rows of several accounts, one row per credit card and beneficiary, to accounts by credit card number. Each
+	 * account is mapped once, with the beneficiaries of the first of its credit card numbers seen.
+	 */
+	private class AccountsByCreditCardHandler implements RowCallbackHandler {
+
+		private Map<String, Account> accountsByCreditCard = new HashMap<String, Account>();
+
+		private Map<Long, String> firstCreditCardByAccountId = new HashMap<Long, String>();
+
+		private Map<Long, Account> accountsById = new HashMap<Long, Account>();
+
+		/**
+		 * The reader for the result set of the current query; each chunk of credit card numbers is a query of its own.
+		 */
+		private AccountRowReader reader;
+
+		public void processRow(ResultSet rs) throws SQLException {
+			reader = AccountRowReader.forResultSet(rs, reader);
+			Long id = reader.getAccountId(rs);
+			String creditCardNumber = reader.getCreditCardNumber(rs);
+			Account account = accountsById.get(id);
+			if (account == null) {
+				account = reader.mapAccount(rs);
+				accountsById.put(id, account);
+				firstCreditCardByAccountId.put(id, creditCardNumber);
+			}
+			accountsByCreditCard.put(creditCardNumber, account);
+			if (creditCardNumber.equals(firstCreditCardByAccountId.get(id))) {
+				reader.restoreBeneficiary(account, rs);
+			}
+		}
+	}
 }
\ No newline at end of file
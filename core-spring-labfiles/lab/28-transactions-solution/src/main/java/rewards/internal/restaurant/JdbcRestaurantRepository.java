@@ -2,11 +2,18 @@ package rewards.internal.restaurant;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import javax.sql.DataSource;
 
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 
 import rewards.Dining;
 import rewards.internal.account.Account;
@@ -18,8 +25,15 @@ import common.money.Percentage;
  */
 public class JdbcRestaurantRepository implements RestaurantRepository {
 
+	/**
+	 * The most merchant numbers bound to a single IN list; larger lookups are split into several queries.
+	 */
+	private static final int MAX_IN_LIST_SIZE = 1000;
+
 	private JdbcTemplate jdbcTemplate;
 
+	private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
 	/**
 	 * Maps a row returned from a query of T_RESTAURANT to a Restaurant object.
 	 */
@@ -27,6 +41,7 @@ public class JdbcRestaurantRepository implements RestaurantRepository {
 
 	public void setDataSource(DataSource dataSource) {
 		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
 	}
 	
 	public Restaurant findByMerchantNumber(String merchantNumber) {
@@ -34,6 +49,20 @@ public class JdbcRestaurantRepository implements RestaurantRepository {
 		return jdbcTemplate.queryForObject(sql, rowMapper, merchantNumber);
 	}
 
+	public Map<String, Restaurant> findByMerchantNumbers(Collection<String> merchantNumbers) {
+		String sql = "select MERCHANT_NUMBER, NAME, BENEFIT_PERCENTAGE, BENEFIT_AVAILABILITY_POLICY from T_RESTAURANT where MERCHANT_NUMBER in (:merchantNumbers)";
+		Map<String, Restaurant> restaurants = new HashMap<String, Restaurant>();
+		List<String> numbers = new ArrayList<String>(merchantNumbers);
+		for (int start = 0; start < numbers.size(); start += MAX_IN_LIST_SIZE) {
+			List<String> chunk = numbers.subList(start, Math.min(start + MAX_IN_LIST_SIZE, numbers.size()));
+			for (Restaurant restaurant : namedParameterJdbcTemplate.query(sql,
+					Collections.singletonMap("merchantNumbers", chunk), rowMapper)) {
+				restaurants.put(restaurant.getNumber(), restaurant);
+			}
+		}
+		return restaurants;
+	}
+
 	/**
 	 * Maps a row returned from a query of T_RESTAURANT to a Restaurant object.
 	 * 
@@ -0,0 +1,95 @@
+package rewards.internal.reward;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Hands out reward confirmation numbers from blocks reserved with a single sequence query, using the hi/lo scheme:
+ * each value <code>hi</code> of the confirmation number sequence reserves the block of numbers from
+ * <code>hi * blockSize</code> up to, but not including, <code>(hi + 1) * blockSize</code>. Numbers within the block are
+ * handed out in memory, so only one reward in every block size pays the extra round trip.
+ *
+ * No sequence value is ever returned twice, not after a restart and not to another application instance sharing the
+ * database, so blocks never overlap and numbers are unique. Numbers left in a block when the application stops are
+ * skipped, not reused. This holds only while every allocator sharing the sequence uses the same block size: an
+ * instance reserving blocks of 100 would map sequence value 60 onto the numbers 6000 to 6099, which another instance
+ * reserving blocks of 1000 already handed out with sequence value 6. The block size must therefore never differ
+ * between running instances, not even during a rolling deploy. It may be increased only once every instance sharing
+ * the sequence has stopped, and never decreased: a smaller block size would map new sequence values onto numbers
+ * already handed out.
+ *
+ * Numbers handed out before blocks were introduced were plain sequence values, i.e. a block size of 1, so they never
+ * collide with the blocks either.
+ */
+public class ConfirmationNumberAllocator {
+
+	private static final String NEXT_HI_SQL = "select next value for S_REWARD_CONFIRMATION_NUMBER from DUAL_REWARD_CONFIRMATION_NUMBER";
+
+	private JdbcTemplate jdbcTemplate;
+
+	private int blockSize;
+
+	private volatile Block block = new Block(0, 0);
+
+	/**
+	 * Creates a new allocator.
+	 * @param jdbcTemplate the template to query the confirmation number sequence with
+	 * @param blockSize the number of confirmation numbers reserved per sequence value
+	 */
+	public ConfirmationNumberAllocator(JdbcTemplate jdbcTemplate, int blockSize) {
+		if (blockSize < 1) {
+			throw new IllegalArgumentException("The block size must be positive; it was " + blockSize);
+		}
+		this.jdbcTemplate = jdbcTemplate;
+		this.blockSize = blockSize;
+	}
+
+	/**
+	 * Returns the next confirmation number, reserving a new block first when the current one is used up.
+	 * @return a confirmation number never returned before
+	 */
+	public String nextConfirmationNumber() {
+		while (true) {
+			Block current = block;
+			long number = current.next.getAndIncrement();
+			if (number < current.end) {
+				return String.valueOf(number);
+			}
+			synchronized (this) {
+				// only the first thread to find the block used up reserves the next one
+				if (block == current) {
+					block = reserveBlock();
+				}
+			}
+		}
+	}
+
+	private Block reserveBlock() {
+		long hi = jdbcTemplate.queryForObject(NEXT_HI_SQL, Long.class);
+		long start = Math.multiplyExact(hi, blockSize);
+		return new Block(start, start + blockSize);
+	}
+
+	/**
+	 * Returns the number of confirmation numbers reserved per sequence value.
+	 */
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	/**
+	 * A reserved range of confirmation numbers and the next one to hand out.
+	 */
+	private static class Block {
+
+		private final AtomicLong next;
+
+		private final long end;
+
+		Block(long start, long end) {
+			this.next = new AtomicLong(start);
+			this.end = end;
+		}
+	}
+}
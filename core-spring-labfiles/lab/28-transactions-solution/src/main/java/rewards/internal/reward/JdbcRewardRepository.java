@@ -1,5 +1,9 @@
 package rewards.internal.reward;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.sql.DataSource;
 
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -8,7 +12,8 @@ import rewards.AccountContribution;
 import rewards.Dining;
 import rewards.RewardConfirmation;
 
-import common.datetime.SimpleDate;
+import common.datetime.DayClock;
+import common.datetime.SimpleDateCodec;
 
 /**
  * JDBC implementation of a reward repository that records the result of a reward transaction by inserting a reward
@@ -16,23 +21,79 @@ import common.datetime.SimpleDate;
  */
 public class JdbcRewardRepository implements RewardRepository {
 
+	/**
+	 * The number of confirmation numbers reserved per sequence query when none is specified.
+	 */
+	public static final int DEFAULT_CONFIRMATION_NUMBER_BLOCK_SIZE = 100;
+
 	private JdbcTemplate jdbcTemplate;
+
+	private DayClock dayClock = DayClock.system();
+
+	private int confirmationNumberBlockSize = DEFAULT_CONFIRMATION_NUMBER_BLOCK_SIZE;
+
+	private ConfirmationNumberAllocator confirmationNumberAllocator;
 	
 	public void setDataSource(DataSource dataSource) {
 		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.confirmationNumberAllocator = new ConfirmationNumberAllocator(jdbcTemplate, confirmationNumberBlockSize);
+	}
+
+	/**
+	 * Sets how many confirmation numbers are reserved with each query of the confirmation number sequence. Larger
+	 * blocks save more round trips but skip more numbers on restart. Must be the same for every instance sharing the
+	 * database, and may only be increased while all of them are stopped, see {@link ConfirmationNumberAllocator}.
+	 * @param confirmationNumberBlockSize the block size, 1 to query the sequence for every reward
+	 */
+	public void setConfirmationNumberBlockSize(int confirmationNumberBlockSize) {
+		this.confirmationNumberBlockSize = confirmationNumberBlockSize;
+		if (jdbcTemplate != null) {
+			this.confirmationNumberAllocator = new ConfirmationNumberAllocator(jdbcTemplate,
+					confirmationNumberBlockSize);
+		}
+	}
+
+	/**
+	 * Sets the clock that provides the reward date. Defaults to today's date in the default time zone.
+	 * @param dayClock the day clock
+	 */
+	public void setDayClock(DayClock dayClock) {
+		this.dayClock = dayClock;
 	}
 
 	public RewardConfirmation confirmReward(AccountContribution contribution, Dining dining) {
 		String sql = "insert into T_REWARD (CONFIRMATION_NUMBER, REWARD_AMOUNT, REWARD_DATE, ACCOUNT_NUMBER, DINING_MERCHANT_NUMBER, DINING_DATE, DINING_AMOUNT) values (?, ?, ?, ?, ?, ?, ?)";
 		String confirmationNumber = nextConfirmationNumber();
 		jdbcTemplate.update(sql, confirmationNumber, contribution.getAmount().asBigDecimal(),
-				SimpleDate.today().asDate(), contribution.getAccountNumber(), dining.getMerchantNumber(),
-				dining.getDate().asDate(), dining.getAmount().asBigDecimal());
+				SimpleDateCodec.toJdbcValue(dayClock.today()), contribution.getAccountNumber(),
+				dining.getMerchantNumber(), SimpleDateCodec.toJdbcValue(dining.getDate()),
+				dining.getAmount().asBigDecimal());
 		return new RewardConfirmation(confirmationNumber, contribution);
 	}
 
+	public List<RewardConfirmation> confirmRewards(List<AccountContribution> contributions, List<Dining> dinings) {
+		if (contributions.size() != dinings.size()) {
+			throw new IllegalArgumentException("Expected one dining per contribution but got " + dinings.size()
+					+ " dinings for " + contributions.size() + " contributions");
+		}
+		String sql = "insert into T_REWARD (CONFIRMATION_NUMBER, REWARD_AMOUNT, REWARD_DATE, ACCOUNT_NUMBER, DINING_MERCHANT_NUMBER, DINING_DATE, DINING_AMOUNT) values (?, ?, ?, ?, ?, ?, ?)";
+		LocalDate rewardDate = SimpleDateCodec.toJdbcValue(dayClock.today());
+		List<RewardConfirmation> confirmations = new ArrayList<RewardConfirmation>(contributions.size());
+		List<Object[]> batchArgs = new ArrayList<Object[]>(contributions.size());
+		for (int i = 0; i < contributions.size(); i++) {
+			AccountContribution contribution = contributions.get(i);
+			Dining dining = dinings.get(i);
+			String confirmationNumber = nextConfirmationNumber();
+			batchArgs.add(new Object[] { confirmationNumber, contribution.getAmount().asBigDecimal(), rewardDate,
+					contribution.getAccountNumber(), dining.getMerchantNumber(),
+					SimpleDateCodec.toJdbcValue(dining.getDate()), dining.getAmount().asBigDecimal() });
+			confirmations.add(new RewardConfirmation(confirmationNumber, contribution));
+		}
+		jdbcTemplate.batchUpdate(sql, batchArgs);
+		return confirmations;
+	}
+
 	private String nextConfirmationNumber() {
-		String sql = "select next value for S_REWARD_CONFIRMATION_NUMBER from DUAL_REWARD_CONFIRMATION_NUMBER";
-		return jdbcTemplate.queryForObject(sql, String.class);
+		return confirmationNumberAllocator.nextConfirmationNumber();
 	}
 }
\ No newline at end of file
@@ -0,0 +1,291 @@
+package rewards.internal.reward;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of opaque entries in a memory-mapped file of fixed capacity. Used by the
+ * {@link WriteBehindRewardRepository} to make rewards durable before they reach the database.
+ *
+ * Appending only copies the entry into the mapped file; {@link #awaitDurable(long)} then waits until it has been
+ * forced to disk. Forcing is done with group commit: one caller forces everything appended so far while concurrent
+ * callers wait, so many appends share a single fsync.
+ *
+ * The journal tracks which entries have been flushed to their final destination. Once all of them have been, the
+ * journal is truncated and writing starts over at the beginning of the file; when the file fills up before that
+ * happens, appends wait for it. On opening, the entries that were appended but not flushed before the last shutdown
+ * or crash are recovered. Each entry carries a checksum, so an entry torn by a crash ends the recovery.
+ *
+ * Positions are logical: they keep growing across truncations. Thread-safe.
+ */
+public class RewardJournal implements Closeable {
+
+	private static final int MAGIC = 0x524A524E;
+
+	/**
+	 * The file header: the magic number, followed by the file offset of the first entry not yet flushed.
+	 */
+	private static final int HEADER_SIZE = 16;
+
+	private static final int FLUSHED_OFFSET = 8;
+
+	/**
+	 * Each entry is preceded by its length and checksum; a zero length marks the end of the entries.
+	 */
+	private static final int ENTRY_HEADER_SIZE = 8;
+
+	private final FileChannel channel;
+
+	private final MappedByteBuffer buffer;
+
+	private final ByteBuffer writer;
+
+	private final Object lock = new Object();
+
+	private final List<byte[]> recoveredEntries = new ArrayList<byte[]>();
+
+	private long recoveredPosition;
+
+	/**
+	 * The logical position of file offset zero.
+	 */
+	private long base;
+
+	private long appended;
+
+	private long durable;
+
+	private long flushed;
+
+	private boolean syncing;
+
+	/**
+	 * Opens the journal in the specified file, creating the file if it does not exist, and recovers the entries not
+	 * flushed when it was last used.
+	 * @param file the journal file
+	 * @param capacity the size of the file in bytes, which limits the total size of the entries not yet flushed
+	 * @throws IOException the file could not be opened or mapped
+	 */
+	public RewardJournal(Path file, int capacity) throws IOException {
+		if (capacity < HEADER_SIZE + ENTRY_HEADER_SIZE + 4) {
+			throw new IllegalArgumentException("The journal capacity of " + capacity + " bytes is too small");
+		}
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+		this.writer = buffer.duplicate();
+		if (buffer.getInt(0) != MAGIC) {
+			buffer.putInt(HEADER_SIZE, 0);
+			buffer.putLong(FLUSHED_OFFSET, HEADER_SIZE);
+			buffer.putInt(0, MAGIC);
+			buffer.force();
+		}
+		recover();
+	}
+
+	private void recover() {
+		long flushedOffset = buffer.getLong(FLUSHED_OFFSET);
+		int offset = flushedOffset >= HEADER_SIZE && flushedOffset < buffer.capacity() ? (int) flushedOffset
+				: HEADER_SIZE;
+		flushed = offset;
+		while (offset + ENTRY_HEADER_SIZE <= buffer.capacity()) {
+			int length = buffer.getInt(offset);
+			if (length <= 0 || length > buffer.capacity() - offset - ENTRY_HEADER_SIZE) {
+				break;
+			}
+			byte[] entry = new byte[length];
+			ByteBuffer reader = buffer.duplicate();
+			reader.position(offset + ENTRY_HEADER_SIZE);
+			reader.get(entry);
+			if (checksum(entry) != buffer.getInt(offset + 4)) {
+				// torn by a crash: nothing after it was acknowledged
+				break;
+			}
+			recoveredEntries.add(entry);
+			offset += ENTRY_HEADER_SIZE + length;
+		}
+		appended = offset;
+		durable = offset;
+		recoveredPosition = offset;
+	}
+
+	/**
+	 * Returns the entries recovered when the journal was opened, in the order they were appended. They are not
+	 * flushed until {@link #markFlushed(long)} is called with a position at or after {@link #getRecoveredPosition()}.
+	 */
+	public List<byte[]> getRecoveredEntries() {
+		return Collections.unmodifiableList(recoveredEntries);
+	}
+
+	/**
+	 * Returns the position after the last recovered entry.
+	 */
+	public long getRecoveredPosition() {
+		return recoveredPosition;
+	}
+
+	/**
+	 * Appends an entry, waiting for space if the journal is full. The entry is not durable until
+	 * {@link #awaitDurable(long)} returns for the returned position. Only durable entries can be flushed, so while
+	 * waiting for space, the entries appended but not forced yet are forced first.
+	 * @param entry the entry
+	 * @return the position after the entry
+	 * @throws IllegalArgumentException if the entry can never fit in the journal
+	 */
+	public long append(byte[] entry) {
+		int size = ENTRY_HEADER_SIZE + entry.length;
+		if (entry.length == 0 || HEADER_SIZE + size + 4 > buffer.capacity()) {
+			throw new IllegalArgumentException("An entry of " + entry.length + " bytes does not fit in the journal");
+		}
+		int checksum = checksum(entry);
+		synchronized (lock) {
+			boolean interrupted = false;
+			while (offsetOf(appended) + size + 4 > buffer.capacity()) {
+				if (durable < appended && !syncing) {
+					// the caller may hold back the awaitDurable() that would have let these entries be flushed
+					buffer.force();
+					durable = appended;
+					lock.notifyAll();
+				} else {
+					interrupted |= await();
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+			int offset = offsetOf(appended);
+			buffer.putInt(offset + ENTRY_HEADER_SIZE + entry.length, 0);
+			writer.position(offset + ENTRY_HEADER_SIZE);
+			writer.put(entry);
+			buffer.putInt(offset + 4, checksum);
+			buffer.putInt(offset, entry.length);
+			appended += size;
+			return appended;
+		}
+	}
+
+	/**
+	 * Waits until everything up to the specified position has been forced to disk, forcing it unless another caller
+	 * already is.
+	 * @param position a position returned by {@link #append(byte[])}
+	 */
+	public void awaitDurable(long position) {
+		long target;
+		boolean interrupted = false;
+		try {
+			synchronized (lock) {
+				while (true) {
+					if (durable >= position) {
+						return;
+					}
+					if (!syncing) {
+						syncing = true;
+						target = appended;
+						break;
+					}
+					interrupted |= await();
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		boolean forced = false;
+		try {
+			buffer.force();
+			forced = true;
+		} finally {
+			synchronized (lock) {
+				syncing = false;
+				if (forced) {
+					durable = Math.max(durable, target);
+				}
+				truncateIfFlushed();
+				lock.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Records that all entries up to the specified position have reached their final destination, truncating the
+	 * journal once no entry is left.
+	 * @param position the position after the last flushed entry
+	 */
+	public void markFlushed(long position) {
+		synchronized (lock) {
+			flushed = Math.max(flushed, position);
+			truncateIfFlushed();
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * Starts writing over at the beginning of the file if every entry has been flushed and no force is in progress, to
+	 * be called holding the lock. A truncation skipped because of a force is done when the force completes.
+	 */
+	private void truncateIfFlushed() {
+		if (flushed == appended && !syncing) {
+			base = appended - HEADER_SIZE;
+			buffer.putInt(HEADER_SIZE, 0);
+		}
+		buffer.putLong(FLUSHED_OFFSET, offsetOf(flushed));
+	}
+
+	/**
+	 * Returns the position up to which entries are durable.
+	 */
+	public long getDurablePosition() {
+		synchronized (lock) {
+			return durable;
+		}
+	}
+
+	/**
+	 * Returns the number of bytes of entries appended but not yet flushed.
+	 */
+	public long getUnflushedBytes() {
+		synchronized (lock) {
+			return appended - flushed;
+		}
+	}
+
+	public void close() throws IOException {
+		synchronized (lock) {
+			buffer.force();
+			channel.close();
+		}
+	}
+
+	private int offsetOf(long position) {
+		return (int) (position - base);
+	}
+
+	/**
+	 * Waits for a change of the journal state, to be called holding the lock.
+	 * @return whether the wait was interrupted
+	 */
+	private boolean await() {
+		try {
+			lock.wait();
+			return false;
+		} catch (InterruptedException e) {
+			return true;
+		}
+	}
+
+	private static int checksum(byte[] entry) {
+		CRC32 crc = new CRC32();
+		crc.update(entry);
+		return (int) crc.getValue();
+	}
+}
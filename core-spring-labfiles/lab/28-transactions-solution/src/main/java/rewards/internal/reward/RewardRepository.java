@@ -1,5 +1,7 @@
 package rewards.internal.reward;
 
+import java.util.List;
+
 import rewards.AccountContribution;
 import rewards.Dining;
 import rewards.RewardConfirmation;
@@ -17,4 +19,12 @@ public interface RewardRepository {
 	 * date
 	 */
 	public RewardConfirmation confirmReward(AccountContribution contribution, Dining dining);
+
+	/**
+	 * Create records of several rewards at once, for example for a batch of dinings.
+	 * @param contributions the account contributions that were made
+	 * @param dinings the dining events that resulted in the contributions, in the same order
+	 * @return a reward confirmation for each contribution, in the same order
+	 */
+	public List<RewardConfirmation> confirmRewards(List<AccountContribution> contributions, List<Dining> dinings);
 }
\ No newline at end of file
@@ -0,0 +1,404 @@
+package rewards.internal.reward;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import rewards.AccountContribution;
+import rewards.Dining;
+import rewards.RewardConfirmation;
+
+import common.datetime.DayClock;
+import common.datetime.SimpleDateCodec;
+
+/**
+ * A reward repository that records rewards write-behind: a reward is confirmed as soon as it is durable in a local
+ * {@link RewardJournal}, and a background flusher later inserts the journaled rewards into T_REWARD in batches.
+ * Rewards share journal fsyncs and database round trips, so confirming one is much cheaper than a synchronous insert.
+ *
+ * {@link #start()} first replays the rewards left in the journal by a crash, then starts the flusher; {@link #stop()}
+ * flushes what is left. Flushing skips rewards already in T_REWARD, so a reward replayed after it had been inserted is
+ * not inserted twice. When a reward transaction rolls back after its reward was journaled, a cancellation is
+ * journaled too and the flusher removes the reward again.
+ *
+ * The journal and the database are not updated atomically: a reward journaled by a transaction that a crash prevents
+ * from committing, or from journaling its cancellation, is still recorded. Use {@link JdbcRewardRepository} where
+ * rewards must be recorded in the reward transaction itself.
+ */
+public class WriteBehindRewardRepository implements RewardRepository {
+
+	private static final byte REWARD = 'R';
+
+	private static final byte CANCELLATION = 'C';
+
+	/**
+	 * The most journal entries written to the database in one batch.
+	 */
+	private static final int MAX_BATCH_SIZE = 500;
+
+	private static final int MAX_IN_LIST_SIZE = 1000;
+
+	private JdbcTemplate jdbcTemplate;
+
+	private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+	private RewardJournal journal;
+
+	private ConfirmationNumberAllocator confirmationNumberAllocator;
+
+	private DayClock dayClock = DayClock.system();
+
+	private long flushIntervalMillis = 100;
+
+	/**
+	 * Journaled entries in journal order, waiting to be flushed.
+	 */
+	private ConcurrentLinkedQueue<JournalEntry> pending = new ConcurrentLinkedQueue<JournalEntry>();
+
+	private Object appendLock = new Object();
+
+	private Object flushLock = new Object();
+
+	private Thread flusher;
+
+	private volatile boolean running;
+
+	private AtomicLong flushedCount = new AtomicLong();
+
+	private AtomicLong flushFailureCount = new AtomicLong();
+
+	/**
+	 * Creates a new write-behind reward repository.
+	 * @param dataSource the database holding T_REWARD and the confirmation number sequence
+	 * @param journal the journal to make rewards durable in
+	 * @param confirmationNumberBlockSize the number of confirmation numbers reserved per sequence query
+	 */
+	public WriteBehindRewardRepository(DataSource dataSource, RewardJournal journal, int confirmationNumberBlockSize) {
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+		this.journal = journal;
+		this.confirmationNumberAllocator = new ConfirmationNumberAllocator(jdbcTemplate, confirmationNumberBlockSize);
+	}
+
+	/**
+	 * Sets the clock that provides the reward date. Defaults to today's date in the default time zone.
+	 * @param dayClock the day clock
+	 */
+	public void setDayClock(DayClock dayClock) {
+		this.dayClock = dayClock;
+	}
+
+	/**
+	 * Sets how long the flusher waits between flushes. Defaults to 100 milliseconds.
+	 * @param flushIntervalMillis the flush interval in milliseconds
+	 */
+	public void setFlushIntervalMillis(long flushIntervalMillis) {
+		this.flushIntervalMillis = flushIntervalMillis;
+	}
+
+	/**
+	 * Replays the rewards left in the journal into the database, then starts the background flusher.
+	 */
+	public void start() {
+		List<byte[]> recovered = journal.getRecoveredEntries();
+		if (!recovered.isEmpty()) {
+			List<JournalEntry> entries = new ArrayList<JournalEntry>(recovered.size());
+			for (byte[] entry : recovered) {
+				entries.add(JournalEntry.decode(entry));
+			}
+			write(entries);
+			journal.markFlushed(journal.getRecoveredPosition());
+		}
+		running = true;
+		flusher = new Thread(this::runFlusher, "reward-journal-flusher");
+		flusher.setDaemon(true);
+		flusher.start();
+	}
+
+	/**
+	 * Stops the background flusher and flushes the rewards still pending.
+	 */
+	public void stop() {
+		running = false;
+		if (flusher != null) {
+			flusher.interrupt();
+			try {
+				flusher.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		flushAll();
+	}
+
+	public RewardConfirmation confirmReward(AccountContribution contribution, Dining dining) {
+		String confirmationNumber = confirmationNumberAllocator.nextConfirmationNumber();
+		JournalEntry entry = new JournalEntry(REWARD, confirmationNumber, contribution.getAmount().asBigDecimal(),
+				SimpleDateCodec.toJdbcValue(dayClock.today()), contribution.getAccountNumber(),
+				dining.getMerchantNumber(), SimpleDateCodec.toJdbcValue(dining.getDate()),
+				dining.getAmount().asBigDecimal());
+		journal.awaitDurable(append(entry));
+		cancelOnRollback(Collections.singletonList(confirmationNumber));
+		return new RewardConfirmation(confirmationNumber, contribution);
+	}
+
+	public List<RewardConfirmation> confirmRewards(List<AccountContribution> contributions, List<Dining> dinings) {
+		if (contributions.size() != dinings.size()) {
+			throw new IllegalArgumentException("Expected one dining per contribution but got " + dinings.size()
+					+ " dinings for " + contributions.size() + " contributions");
+		}
+		LocalDate rewardDate = SimpleDateCodec.toJdbcValue(dayClock.today());
+		List<RewardConfirmation> confirmations = new ArrayList<RewardConfirmation>(contributions.size());
+		List<String> confirmationNumbers = new ArrayList<String>(contributions.size());
+		long position = 0;
+		for (int i = 0; i < contributions.size(); i++) {
+			AccountContribution contribution = contributions.get(i);
+			Dining dining = dinings.get(i);
+			String confirmationNumber = confirmationNumberAllocator.nextConfirmationNumber();
+			position = append(new JournalEntry(REWARD, confirmationNumber, contribution.getAmount().asBigDecimal(),
+					rewardDate, contribution.getAccountNumber(), dining.getMerchantNumber(),
+					SimpleDateCodec.toJdbcValue(dining.getDate()), dining.getAmount().asBigDecimal()));
+			confirmationNumbers.add(confirmationNumber);
+			confirmations.add(new RewardConfirmation(confirmationNumber, contribution));
+		}
+		// one fsync for the whole batch, plus one each time the journal fills up before it is appended
+		journal.awaitDurable(position);
+		cancelOnRollback(confirmationNumbers);
+		return confirmations;
+	}
+
+	/**
+	 * Appends the entry to the journal and queues it for flushing, keeping the queue in journal order.
+	 */
+	private long append(JournalEntry entry) {
+		byte[] bytes = entry.encode();
+		synchronized (appendLock) {
+			entry.position = journal.append(bytes);
+			pending.add(entry);
+			return entry.position;
+		}
+	}
+
+	/**
+	 * Journals cancellations of the rewards if the current transaction rolls back.
+	 */
+	private void cancelOnRollback(List<String> confirmationNumbers) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			public void afterCompletion(int status) {
+				if (status == STATUS_ROLLED_BACK) {
+					long position = 0;
+					for (String confirmationNumber : confirmationNumbers) {
+						position = append(new JournalEntry(CANCELLATION, confirmationNumber, null, null, null, null,
+								null, null));
+					}
+					journal.awaitDurable(position);
+				}
+			}
+		});
+	}
+
+	private void runFlusher() {
+		while (running) {
+			try {
+				Thread.sleep(flushIntervalMillis);
+			} catch (InterruptedException e) {
+				return;
+			}
+			try {
+				flushAll();
+			} catch (RuntimeException e) {
+				// the entries stay pending and are retried on the next flush
+				flushFailureCount.incrementAndGet();
+			}
+		}
+	}
+
+	private void flushAll() {
+		int flushed;
+		do {
+			flushed = flush();
+		} while (flushed == MAX_BATCH_SIZE);
+	}
+
+	/**
+	 * Writes a batch of durable journaled entries to the database and marks them flushed in the journal.
+	 * @return the number of entries flushed
+	 */
+	public int flush() {
+		synchronized (flushLock) {
+			long durable = journal.getDurablePosition();
+			List<JournalEntry> batch = new ArrayList<JournalEntry>();
+			for (JournalEntry entry : pending) {
+				if (entry.position > durable || batch.size() == MAX_BATCH_SIZE) {
+					break;
+				}
+				batch.add(entry);
+			}
+			if (batch.isEmpty()) {
+				return 0;
+			}
+			write(batch);
+			for (int i = 0; i < batch.size(); i++) {
+				pending.poll();
+			}
+			journal.markFlushed(batch.get(batch.size() - 1).position);
+			flushedCount.addAndGet(batch.size());
+			return batch.size();
+		}
+	}
+
+	/**
+	 * Inserts the journaled rewards not in T_REWARD yet and deletes the cancelled ones, in journal order.
+	 */
+	private void write(List<JournalEntry> entries) {
+		Set<String> existing = existingConfirmationNumbers(entries);
+		String insertSql = "insert into T_REWARD (CONFIRMATION_NUMBER, REWARD_AMOUNT, REWARD_DATE, ACCOUNT_NUMBER, DINING_MERCHANT_NUMBER, DINING_DATE, DINING_AMOUNT) values (?, ?, ?, ?, ?, ?, ?)";
+		String deleteSql = "delete from T_REWARD where CONFIRMATION_NUMBER = ?";
+		List<Object[]> inserts = new ArrayList<Object[]>();
+		List<Object[]> deletes = new ArrayList<Object[]>();
+		for (JournalEntry entry : entries) {
+			if (entry.type == CANCELLATION) {
+				deletes.add(new Object[] { entry.confirmationNumber });
+			} else if (existing.add(entry.confirmationNumber)) {
+				inserts.add(new Object[] { entry.confirmationNumber, entry.rewardAmount, entry.rewardDate,
+						entry.accountNumber, entry.merchantNumber, entry.diningDate, entry.diningAmount });
+			}
+		}
+		// a cancellation always follows its reward, so inserting first keeps the journal order
+		jdbcTemplate.batchUpdate(insertSql, inserts);
+		jdbcTemplate.batchUpdate(deleteSql, deletes);
+	}
+
+	private Set<String> existingConfirmationNumbers(List<JournalEntry> entries) {
+		String sql = "select CONFIRMATION_NUMBER from T_REWARD where CONFIRMATION_NUMBER in (:confirmationNumbers)";
+		List<String> numbers = new ArrayList<String>(entries.size());
+		for (JournalEntry entry : entries) {
+			if (entry.type == REWARD) {
+				numbers.add(entry.confirmationNumber);
+			}
+		}
+		Set<String> existing = new HashSet<String>();
+		for (int start = 0; start < numbers.size(); start += MAX_IN_LIST_SIZE) {
+			List<String> chunk = numbers.subList(start, Math.min(start + MAX_IN_LIST_SIZE, numbers.size()));
+			existing.addAll(namedParameterJdbcTemplate.queryForList(sql,
+					Collections.singletonMap("confirmationNumbers", chunk), String.class));
+		}
+		return existing;
+	}
+
+	/**
+	 * Returns the number of journal entries written to the database so far.
+	 */
+	public long getFlushedCount() {
+		return flushedCount.get();
+	}
+
+	/**
+	 * Returns the number of journal entries waiting to be written to the database.
+	 */
+	public int getPendingCount() {
+		return pending.size();
+	}
+
+	/**
+	 * Returns how many times the background flusher failed to write to the database.
+	 */
+	public long getFlushFailureCount() {
+		return flushFailureCount.get();
+	}
+
+	/**
+	 * A reward, or the cancellation of one, as written to the journal.
+	 */
+	private static class JournalEntry {
+
+		private byte type;
+
+		private String confirmationNumber;
+
+		private BigDecimal rewardAmount;
+
+		private LocalDate rewardDate;
+
+		private String accountNumber;
+
+		private String merchantNumber;
+
+		private LocalDate diningDate;
+
+		private BigDecimal diningAmount;
+
+		/**
+		 * The journal position after this entry.
+		 */
+		private long position;
+
+		JournalEntry(byte type, String confirmationNumber, BigDecimal rewardAmount, LocalDate rewardDate,
+				String accountNumber, String merchantNumber, LocalDate diningDate, BigDecimal diningAmount) {
+			this.type = type;
+			this.confirmationNumber = confirmationNumber;
+			this.rewardAmount = rewardAmount;
+			this.rewardDate = rewardDate;
+			this.accountNumber = accountNumber;
+			this.merchantNumber = merchantNumber;
+			this.diningDate = diningDate;
+			this.diningAmount = diningAmount;
+		}
+
+		byte[] encode() {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+			try (DataOutputStream out = new DataOutputStream(bytes)) {
+				out.writeByte(type);
+				out.writeUTF(confirmationNumber);
+				if (type == REWARD) {
+					out.writeUTF(rewardAmount.toPlainString());
+					out.writeLong(rewardDate.toEpochDay());
+					out.writeUTF(accountNumber);
+					out.writeUTF(merchantNumber);
+					out.writeLong(diningDate.toEpochDay());
+					out.writeUTF(diningAmount.toPlainString());
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return bytes.toByteArray();
+		}
+
+		static JournalEntry decode(byte[] entry) {
+			try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(entry))) {
+				byte type = in.readByte();
+				String confirmationNumber = in.readUTF();
+				if (type == CANCELLATION) {
+					return new JournalEntry(type, confirmationNumber, null, null, null, null, null, null);
+				}
+				return new JournalEntry(type, confirmationNumber, new BigDecimal(in.readUTF()),
+						LocalDate.ofEpochDay(in.readLong()), in.readUTF(), in.readUTF(),
+						LocalDate.ofEpochDay(in.readLong()), new BigDecimal(in.readUTF()));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package rewards;
+
+import common.money.MonetaryAmount;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.sql.DataSource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A system test that rewards the same account from many threads at once, each reward in its own transaction, and
+ * verifies no contribution is lost.
+ */
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = { SystemTestConfig.class })
+public class RewardNetworkConcurrencyTests {
+
+	private static final String SAVINGS_SQL = "select SAVINGS from T_ACCOUNT_BENEFICIARY where ACCOUNT_ID = 0 and NAME = ?";
+
+	private static final int THREADS = 8;
+
+	private static final int REWARDS_PER_THREAD = 25;
+
+	@Autowired
+	private RewardNetwork rewardNetwork;
+
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	public void initJdbcTemplate(DataSource dataSource) {
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+	}
+
+	@Test
+	public void testConcurrentRewardsForTheSameAccount() throws Exception {
+		BigDecimal annabelleSavings = savingsOf("Annabelle");
+		BigDecimal corganSavings = savingsOf("Corgan");
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<MonetaryAmount>> rewarded = new ArrayList<Future<MonetaryAmount>>();
+		try {
+			for (int i = 0; i < THREADS; i++) {
+				rewarded.add(executor.submit(new Callable<MonetaryAmount>() {
+					public MonetaryAmount call() throws Exception {
+						start.await();
+						MonetaryAmount total = MonetaryAmount.zero();
+						for (int j = 0; j < REWARDS_PER_THREAD; j++) {
+							Dining dining = Dining.createDining("100.00", "1234123412341234", "1234567890");
+							total = total.add(rewardNetwork.rewardAccountFor(dining).getAccountContribution()
+									.getAmount());
+						}
+						return total;
+					}
+				}));
+			}
+			start.countDown();
+			MonetaryAmount total = MonetaryAmount.zero();
+			for (Future<MonetaryAmount> amount : rewarded) {
+				total = total.add(amount.get(30, TimeUnit.SECONDS));
+			}
+			int rewards = THREADS * REWARDS_PER_THREAD;
+
+			// every 8% of 100.00 reward was split evenly, and none was overwritten by another
+			assertEquals(MonetaryAmount.valueOfCents(800L * rewards), total);
+			MonetaryAmount expectedShare = MonetaryAmount.valueOfCents(400L * rewards);
+			assertEquals(expectedShare, new MonetaryAmount(savingsOf("Annabelle").subtract(annabelleSavings)));
+			assertEquals(expectedShare, new MonetaryAmount(savingsOf("Corgan").subtract(corganSavings)));
+		} finally {
+			executor.shutdown();
+			assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+		}
+	}
+
+	private BigDecimal savingsOf(String beneficiary) {
+		return jdbcTemplate.queryForObject(SAVINGS_SQL, BigDecimal.class, beneficiary);
+	}
+}
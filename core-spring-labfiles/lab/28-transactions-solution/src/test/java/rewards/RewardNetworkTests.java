@@ -14,8 +14,14 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import javax.sql.DataSource;
 
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * A system test that verifies the components of the RewardNetwork application
@@ -86,4 +92,30 @@ public class RewardNetworkTests {
 		assertEquals(MonetaryAmount.valueOf("4.00"), contribution.getDistribution("Annabelle").getAmount());
 		assertEquals(MonetaryAmount.valueOf("4.00"), contribution.getDistribution("Corgan").getAmount());
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testRewardForDinings() {
+		// two dinings on the same account, and one at a restaurant that is not in the network
+		List<Dining> dinings = Arrays.asList(Dining.createDining("100.00", "1234123412340003", "1234567890"),
+				Dining.createDining("100.00", "1234123412340003", "1234567890"),
+				Dining.createDining("100.00", "1234123412340003", "9999999999"));
+
+		List<RewardResult> results = rewardNetwork.rewardAccountsFor(dinings);
+
+		assertEquals(3, results.size());
+		assertTrue(results.get(0).isRewarded());
+		assertTrue(results.get(1).isRewarded());
+		assertFalse(results.get(2).isRewarded());
+
+		// each confirmed reward is on the table
+		String sql = "SELECT COUNT(*) FROM T_REWARD WHERE CONFIRMATION_NUMBER = ?";
+		for (RewardResult result : results.subList(0, 2)) {
+			assertEquals(1, jdbcTemplate.queryForObject(sql, Integer.class,
+					result.getConfirmation().getConfirmationNumber()));
+		}
+
+		// each of the four beneficiaries got 25% of both 8.00 rewards
+		sql = "SELECT SAVINGS FROM T_ACCOUNT_BENEFICIARY WHERE ACCOUNT_ID = 3 AND NAME = ?";
+		assertEquals(0, new BigDecimal("4.00").compareTo(jdbcTemplate.queryForObject(sql, BigDecimal.class, "Antolin")));
+	}
+}
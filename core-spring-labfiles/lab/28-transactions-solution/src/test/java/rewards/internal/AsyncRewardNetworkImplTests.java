@@ -0,0 +1,229 @@
+package rewards.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.EmptyResultDataAccessException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import rewards.Dining;
+import rewards.RewardConfirmation;
+import rewards.RewardNetwork;
+import rewards.RewardResult;
+
+import common.money.MonetaryAmount;
+
+/**
+ * Unit tests for the AsyncRewardNetworkImpl, run against the reward network with stub repositories.
+ */
+public class AsyncRewardNetworkImplTests {
+
+	private AsyncRewardNetworkImpl asyncRewardNetwork;
+
+	@AfterEach
+	public void tearDown() {
+		asyncRewardNetwork.shutdown();
+	}
+
+	@Test
+	public void testRewardForDining() throws Exception {
+		asyncRewardNetwork = new AsyncRewardNetworkImpl(new RewardNetworkImpl(new StubAccountRepository(),
+				new StubRestaurantRepository(), new StubRewardRepository()), 2);
+		Dining dining = Dining.createDining("100.00", "1234123412341234", "1234567890");
+
+		RewardConfirmation confirmation = asyncRewardNetwork.rewardAccountFor(dining).get(5, TimeUnit.SECONDS);
+
+		assertEquals(MonetaryAmount.valueOf("8.00"), confirmation.getAccountContribution().getAmount());
+	}
+
+	@Test
+	public void testRewardForIneligibleDiningCompletesExceptionally() {
+		asyncRewardNetwork = new AsyncRewardNetworkImpl(new RewardNetworkImpl(new StubAccountRepository(),
+				new StubRestaurantRepository(), new StubRewardRepository()), 2);
+		Dining dining = Dining.createDining("100.00", "9999999999999999", "1234567890");
+
+		ExecutionException e = assertThrows(ExecutionException.class, () -> {
+			asyncRewardNetwork.rewardAccountFor(dining).get(5, TimeUnit.SECONDS);
+		});
+		assertTrue(e.getCause() instanceof EmptyResultDataAccessException);
+	}
+
+	@Test
+	public void testConcurrencyAndQueueAreBounded() throws Exception {
+		BlockingRewardNetwork blockingNetwork = new BlockingRewardNetwork();
+		asyncRewardNetwork = new AsyncRewardNetworkImpl(blockingNetwork, 2, 1);
+		Dining dining = Dining.createDining("100.00", "1234123412341234", "1234567890");
+
+		List<CompletableFuture<RewardConfirmation>> futures = new ArrayList<CompletableFuture<RewardConfirmation>>();
+		for (int i = 0; i < 3; i++) {
+			futures.add(asyncRewardNetwork.rewardAccountFor(dining));
+		}
+		assertTrue(blockingNetwork.started.await(5, TimeUnit.SECONDS));
+		assertEquals(2, asyncRewardNetwork.getInFlight());
+		assertEquals(1, asyncRewardNetwork.getQueueDepth());
+
+		// two running and one waiting: the next one is rejected
+		ExecutionException e = assertThrows(ExecutionException.class, () -> {
+			asyncRewardNetwork.rewardAccountFor(dining).get(5, TimeUnit.SECONDS);
+		});
+		assertTrue(e.getCause() instanceof RejectedExecutionException);
+
+		blockingNetwork.release.countDown();
+		for (CompletableFuture<RewardConfirmation> future : futures) {
+			future.get(5, TimeUnit.SECONDS);
+		}
+		assertEquals(2, blockingNetwork.maxConcurrent.get());
+		assertEquals(0, asyncRewardNetwork.getInFlight());
+	}
+
+	@Test
+	public void testMetersTrackQueueAndInFlight() throws Exception {
+		BlockingRewardNetwork blockingNetwork = new BlockingRewardNetwork();
+		asyncRewardNetwork = new AsyncRewardNetworkImpl(blockingNetwork, 2);
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		asyncRewardNetwork.bindTo(registry);
+		Dining dining = Dining.createDining("100.00", "1234123412341234", "1234567890");
+
+		List<CompletableFuture<RewardConfirmation>> futures = new ArrayList<CompletableFuture<RewardConfirmation>>();
+		for (int i = 0; i < 3; i++) {
+			futures.add(asyncRewardNetwork.rewardAccountFor(dining));
+		}
+		assertTrue(blockingNetwork.started.await(5, TimeUnit.SECONDS));
+		assertEquals(2, registry.get("rewards.async.in.flight").gauge().value());
+		assertEquals(1, registry.get("rewards.async.queue.depth").gauge().value());
+		assertEquals(2, registry.get("rewards.async.max.concurrency").gauge().value());
+
+		blockingNetwork.release.countDown();
+		for (CompletableFuture<RewardConfirmation> future : futures) {
+			future.get(5, TimeUnit.SECONDS);
+		}
+		assertEquals(3, registry.get("rewards.async.completed").functionCounter().count());
+		assertEquals(0, registry.get("rewards.async.in.flight").gauge().value());
+	}
+
+	@Test
+	public void testRewardsForTheSameCreditCardRunInSubmissionOrder() throws Exception {
+		List<String> rewarded = Collections.synchronizedList(new ArrayList<String>());
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxConcurrent = new AtomicInteger();
+		asyncRewardNetwork = new AsyncRewardNetworkImpl(new RecordingRewardNetwork(dining -> {
+			maxConcurrent.accumulateAndGet(running.incrementAndGet(), Math::max);
+			Thread.yield();
+			rewarded.add(dining.getAmount().toString());
+			running.decrementAndGet();
+		}), 4, Integer.MAX_VALUE, new StripedLockManager());
+
+		List<String> submitted = new ArrayList<String>();
+		List<CompletableFuture<RewardConfirmation>> futures = new ArrayList<CompletableFuture<RewardConfirmation>>();
+		for (int i = 1; i <= 200; i++) {
+			Dining dining = Dining.createDining(i + ".00", "1234123412341234", "1234567890");
+			submitted.add(dining.getAmount().toString());
+			futures.add(asyncRewardNetwork.rewardAccountFor(dining));
+		}
+		for (CompletableFuture<RewardConfirmation> future : futures) {
+			future.get(5, TimeUnit.SECONDS);
+		}
+		assertEquals(submitted, rewarded);
+		assertEquals(1, maxConcurrent.get());
+	}
+
+	@Test
+	public void testHotCreditCardHoldsOneWorker() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		asyncRewardNetwork = new AsyncRewardNetworkImpl(new RecordingRewardNetwork(dining -> {
+			if (dining.getCreditCardNumber().equals("1234123412341234")) {
+				started.countDown();
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}), 2, Integer.MAX_VALUE, new StripedLockManager());
+
+		List<CompletableFuture<RewardConfirmation>> hot = new ArrayList<CompletableFuture<RewardConfirmation>>();
+		for (int i = 0; i < 10; i++) {
+			hot.add(asyncRewardNetwork.rewardAccountFor(Dining.createDining("100.00", "1234123412341234",
+					"1234567890")));
+		}
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		// the hot card's rewards wait in its stripe, leaving the other worker to other cards
+		asyncRewardNetwork.rewardAccountFor(Dining.createDining("100.00", "1234123412340001", "1234567890"))
+			.get(5, TimeUnit.SECONDS);
+		assertEquals(1, asyncRewardNetwork.getInFlight());
+		assertEquals(9, asyncRewardNetwork.getQueueDepth());
+
+		release.countDown();
+		for (CompletableFuture<RewardConfirmation> future : hot) {
+			future.get(5, TimeUnit.SECONDS);
+		}
+		assertEquals(0, asyncRewardNetwork.getQueueDepth());
+	}
+
+	/**
+	 * A reward network that hands each dining to a callback before confirming it.
+	 */
+	private static class RecordingRewardNetwork implements RewardNetwork {
+
+		private Consumer<Dining> callback;
+
+		RecordingRewardNetwork(Consumer<Dining> callback) {
+			this.callback = callback;
+		}
+
+		public RewardConfirmation rewardAccountFor(Dining dining) {
+			callback.accept(dining);
+			return new RewardConfirmation("1", null);
+		}
+
+		public List<RewardResult> rewardAccountsFor(List<Dining> dinings) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * A reward network that blocks every reward until released, recording how many rewards ran at once.
+	 */
+	private static class BlockingRewardNetwork implements RewardNetwork {
+
+		private CountDownLatch started = new CountDownLatch(2);
+
+		private CountDownLatch release = new CountDownLatch(1);
+
+		private AtomicInteger running = new AtomicInteger();
+
+		private AtomicInteger maxConcurrent = new AtomicInteger();
+
+		public RewardConfirmation rewardAccountFor(Dining dining) {
+			maxConcurrent.accumulateAndGet(running.incrementAndGet(), Math::max);
+			started.countDown();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			running.decrementAndGet();
+			return new RewardConfirmation("1", null);
+		}
+
+		public List<RewardResult> rewardAccountsFor(List<Dining> dinings) {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
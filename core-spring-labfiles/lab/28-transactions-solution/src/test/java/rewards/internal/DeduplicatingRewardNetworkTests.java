@@ -0,0 +1,65 @@
+package rewards.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.EmptyResultDataAccessException;
+
+import rewards.Dining;
+import rewards.DuplicateDiningException;
+import rewards.RewardResult;
+
+/**
+ * Unit tests for the DeduplicatingRewardNetwork, run against the reward network with stub repositories.
+ */
+public class DeduplicatingRewardNetworkTests {
+
+	private DeduplicatingRewardNetwork rewardNetwork;
+
+	@BeforeEach
+	public void setUp() {
+		rewardNetwork = new DeduplicatingRewardNetwork(new RewardNetworkImpl(new StubAccountRepository(),
+				new StubRestaurantRepository(), new StubRewardRepository()), new DiningDeduplicator(
+				Duration.ofMinutes(10), 1024 * 1024));
+	}
+
+	@Test
+	public void testResentDiningIsRejected() {
+		Dining dining = Dining.createDining("100.00", "1234123412341234", "1234567890");
+		rewardNetwork.rewardAccountFor(dining);
+
+		assertThrows(DuplicateDiningException.class, () -> {
+			rewardNetwork.rewardAccountFor(Dining.createDining("100.00", "1234123412341234", "1234567890"));
+		});
+	}
+
+	@Test
+	public void testDiningThatFailedCanBeResent() {
+		Dining dining = Dining.createDining("100.00", "9999999999999999", "1234567890");
+		assertThrows(EmptyResultDataAccessException.class, () -> {
+			rewardNetwork.rewardAccountFor(dining);
+		});
+		assertThrows(EmptyResultDataAccessException.class, () -> {
+			rewardNetwork.rewardAccountFor(dining);
+		});
+	}
+
+	@Test
+	public void testDuplicatesInABatchFail() {
+		Dining dining = Dining.createDining("100.00", "1234123412341234", "1234567890");
+		List<RewardResult> results = rewardNetwork.rewardAccountsFor(Arrays.asList(dining, dining));
+
+		assertEquals(2, results.size());
+		assertTrue(results.get(0).isRewarded());
+		assertFalse(results.get(1).isRewarded());
+		assertTrue(results.get(1).getFailure() instanceof DuplicateDiningException);
+	}
+}
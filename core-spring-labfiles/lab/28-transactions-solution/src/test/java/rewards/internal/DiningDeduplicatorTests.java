@@ -0,0 +1,88 @@
+package rewards.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.Test;
+
+import rewards.Dining;
+
+/**
+ * Unit tests for the DiningDeduplicator, sliding its window with a clock the tests control.
+ */
+public class DiningDeduplicatorTests {
+
+	private TestClock clock = new TestClock();
+
+	private DiningDeduplicator deduplicator = new DiningDeduplicator(Duration.ofMinutes(10), 1024 * 1024, clock);
+
+	@Test
+	public void testResentDiningIsDuplicate() {
+		assertFalse(deduplicator.isDuplicate(Dining.createDining("100.00", "1234123412341234", "1234567890")));
+		assertTrue(deduplicator.isDuplicate(Dining.createDining("100.00", "1234123412341234", "1234567890")));
+		assertFalse(deduplicator.isDuplicate(Dining.createDining("100.01", "1234123412341234", "1234567890")));
+		assertEquals(3, deduplicator.getCheckedCount());
+		assertEquals(1, deduplicator.getDuplicateCount());
+	}
+
+	@Test
+	public void testDiningIsForgottenAfterTheWindow() {
+		Dining dining = Dining.createDining("100.00", "1234123412341234", "1234567890");
+		assertFalse(deduplicator.isDuplicate(dining));
+		clock.advance(Duration.ofMinutes(5));
+		assertTrue(deduplicator.isDuplicate(dining));
+		clock.advance(Duration.ofMinutes(11));
+		assertFalse(deduplicator.isDuplicate(dining));
+	}
+
+	@Test
+	public void testForgottenDiningIsNotDuplicate() {
+		Dining dining = Dining.createDining("100.00", "1234123412341234", "1234567890");
+		assertFalse(deduplicator.isDuplicate(dining));
+		deduplicator.forget(dining);
+		// the Bloom filter still matches; the exact set clears it
+		assertFalse(deduplicator.isDuplicate(dining));
+		assertEquals(1, deduplicator.getFalsePositiveCount());
+	}
+
+	@Test
+	public void testNewDiningsAreNeverRejected() {
+		for (int i = 0; i < 2000; i++) {
+			String amount = (i / 100) + "." + (i % 100 < 10 ? "0" : "") + (i % 100);
+			assertFalse(deduplicator.isDuplicate(Dining.createDining(amount, "1234123412341234", "1234567890")));
+		}
+		assertEquals(0, deduplicator.getDuplicateCount());
+		assertTrue(deduplicator.getFalsePositiveRate() < 0.01, "false positive rate too high");
+	}
+
+	/**
+	 * A clock that only moves when told to.
+	 */
+	private static class TestClock extends Clock {
+
+		private Instant now = Instant.parse("2020-01-01T12:00:00Z");
+
+		void advance(Duration duration) {
+			now = now.plus(duration);
+		}
+
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		public Clock withZone(ZoneId zone) {
+			throw new UnsupportedOperationException();
+		}
+
+		public Instant instant() {
+			return now;
+		}
+	}
+}
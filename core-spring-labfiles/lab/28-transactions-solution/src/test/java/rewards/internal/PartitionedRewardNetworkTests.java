@@ -0,0 +1,146 @@
+package rewards.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.EmptyResultDataAccessException;
+
+import rewards.Dining;
+import rewards.RewardConfirmation;
+import rewards.RewardNetwork;
+import rewards.RewardResult;
+
+import common.money.MonetaryAmount;
+
+/**
+ * Unit tests for the PartitionedRewardNetwork, run against the reward network with stub repositories.
+ */
+public class PartitionedRewardNetworkTests {
+
+	private PartitionedRewardNetwork partitionedRewardNetwork;
+
+	@AfterEach
+	public void tearDown() {
+		partitionedRewardNetwork.shutdown();
+	}
+
+	@Test
+	public void testRewardForDining() throws Exception {
+		partitionedRewardNetwork = new PartitionedRewardNetwork(new RewardNetworkImpl(new StubAccountRepository(),
+				new StubRestaurantRepository(), new StubRewardRepository()), 2, 16, 10);
+		Dining dining = Dining.createDining("100.00", "1234123412341234", "1234567890");
+
+		RewardConfirmation confirmation = partitionedRewardNetwork.rewardAccountFor(dining).get(5, TimeUnit.SECONDS);
+
+		assertEquals(MonetaryAmount.valueOf("8.00"), confirmation.getAccountContribution().getAmount());
+	}
+
+	@Test
+	public void testRewardForIneligibleDiningCompletesExceptionally() {
+		partitionedRewardNetwork = new PartitionedRewardNetwork(new RewardNetworkImpl(new StubAccountRepository(),
+				new StubRestaurantRepository(), new StubRewardRepository()), 2, 16, 10);
+		Dining dining = Dining.createDining("100.00", "9999999999999999", "1234567890");
+
+		ExecutionException e = assertThrows(ExecutionException.class, () -> {
+			partitionedRewardNetwork.rewardAccountFor(dining).get(5, TimeUnit.SECONDS);
+		});
+		assertTrue(e.getCause() instanceof EmptyResultDataAccessException);
+	}
+
+	@Test
+	public void testDiningsOfACreditCardAreRewardedInOrderByOnePartitionInBatches() throws Exception {
+		RecordingRewardNetwork recordingNetwork = new RecordingRewardNetwork();
+		partitionedRewardNetwork = new PartitionedRewardNetwork(recordingNetwork, 4, 64, 10);
+
+		List<CompletableFuture<RewardConfirmation>> futures = new ArrayList<CompletableFuture<RewardConfirmation>>();
+		List<Dining> dinings = new ArrayList<Dining>();
+		for (int i = 1; i <= 30; i++) {
+			Dining dining = Dining.createDining(i + ".00", "1234123412341234", "1234567890");
+			dinings.add(dining);
+			futures.add(partitionedRewardNetwork.rewardAccountFor(dining));
+		}
+		// the first batch holds up the partition, so the other dinings pile up into full batches
+		recordingNetwork.release.countDown();
+		for (CompletableFuture<RewardConfirmation> future : futures) {
+			future.get(5, TimeUnit.SECONDS);
+		}
+
+		assertEquals(dinings, recordingNetwork.rewarded);
+		assertEquals(1, recordingNetwork.threads.size());
+		assertEquals(30, partitionedRewardNetwork.getCompletedCount());
+		assertTrue(partitionedRewardNetwork.getBatchCount() <= 4, "dinings were not batched");
+		assertEquals(0, partitionedRewardNetwork.getQueueDepth());
+	}
+
+	@Test
+	public void testRewardsSubmittedWhileShuttingDownAllComplete() throws Exception {
+		partitionedRewardNetwork = new PartitionedRewardNetwork(new RewardNetworkImpl(new StubAccountRepository(),
+				new StubRestaurantRepository(), new StubRewardRepository()), 2, 1024, 10);
+		List<CompletableFuture<RewardConfirmation>> futures = new ArrayList<CompletableFuture<RewardConfirmation>>();
+		Thread submitter = new Thread(() -> {
+			for (int i = 0; i < 10000; i++) {
+				futures.add(partitionedRewardNetwork.rewardAccountFor(Dining.createDining("1.00", "1234123412341234",
+						"1234567890")));
+			}
+		});
+		submitter.start();
+		partitionedRewardNetwork.shutdown();
+		submitter.join();
+
+		// every reward was either made or rejected, none is left pending
+		for (CompletableFuture<RewardConfirmation> future : futures) {
+			try {
+				future.get(5, TimeUnit.SECONDS);
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof RejectedExecutionException, e.getCause().toString());
+			}
+		}
+	}
+
+	/**
+	 * A reward network that records the dinings it rewards and the threads it rewards them on. Holds up the first batch
+	 * until released.
+	 */
+	private static class RecordingRewardNetwork implements RewardNetwork {
+
+		private CountDownLatch release = new CountDownLatch(1);
+
+		private List<Dining> rewarded = Collections.synchronizedList(new ArrayList<Dining>());
+
+		private Set<String> threads = Collections.synchronizedSet(new HashSet<String>());
+
+		public RewardConfirmation rewardAccountFor(Dining dining) {
+			throw new UnsupportedOperationException();
+		}
+
+		public List<RewardResult> rewardAccountsFor(List<Dining> dinings) {
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			threads.add(Thread.currentThread().getName());
+			List<RewardResult> results = new ArrayList<RewardResult>();
+			for (Dining dining : dinings) {
+				rewarded.add(dining);
+				results.add(RewardResult.confirmed(dining, new RewardConfirmation(String.valueOf(rewarded.size()),
+						null)));
+			}
+			return results;
+		}
+	}
+}
@@ -1,18 +1,39 @@
 package rewards.internal;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
 
 import rewards.AccountContribution;
 import rewards.Dining;
 import rewards.RewardConfirmation;
+import rewards.RewardResult;
 import rewards.internal.account.AccountRepository;
+import rewards.internal.account.JdbcAccountRepository;
+import rewards.internal.restaurant.JdbcRestaurantRepository;
 import rewards.internal.restaurant.RestaurantRepository;
+import rewards.internal.reward.JdbcRewardRepository;
 import rewards.internal.reward.RewardRepository;
 
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 import common.money.MonetaryAmount;
 
 /**
@@ -69,4 +90,129 @@ public class RewardNetworkImplTests {
 		assertEquals(MonetaryAmount.valueOf("4.00"), contribution.getDistribution("Annabelle").getAmount());
 		assertEquals(MonetaryAmount.valueOf("4.00"), contribution.getDistribution("Corgan").getAmount());
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testRewardForDinings() {
+		Dining first = Dining.createDining("100.00", "1234123412341234", "1234567890");
+		Dining unknownCreditCard = Dining.createDining("100.00", "9999999999999999", "1234567890");
+		Dining second = Dining.createDining("50.00", "1234123412341234", "1234567890");
+
+		List<RewardResult> results = rewardNetwork.rewardAccountsFor(Arrays.asList(first, unknownCreditCard, second));
+
+		// one result per dining, in order, with the unknown credit card failing on its own
+		assertEquals(3, results.size());
+		assertTrue(results.get(0).isRewarded());
+		assertFalse(results.get(1).isRewarded());
+		assertEquals(unknownCreditCard, results.get(1).getDining());
+		assertTrue(results.get(1).getFailure() instanceof EmptyResultDataAccessException);
+		assertTrue(results.get(2).isRewarded());
+
+		// both rewards went to the same account, so the second distribution includes the first one's savings
+		AccountContribution contribution = results.get(2).getConfirmation().getAccountContribution();
+		assertEquals(MonetaryAmount.valueOf("4.00"), contribution.getAmount());
+		assertEquals(MonetaryAmount.valueOf("6.00"), contribution.getDistribution("Annabelle").getTotalSavings());
+	}
+
+	@Test
+	public void testRewardsCreditEachChangedBeneficiaryOnceInTheDatabase() {
+		EmbeddedDatabase dataSource = new EmbeddedDatabaseBuilder()
+			.generateUniqueName(true)
+			.addScript("/rewards/testdb/schema.sql")
+			.addScript("/rewards/testdb/data.sql")
+			.build();
+		try {
+			JdbcAccountRepository accountRepo = new JdbcAccountRepository();
+			accountRepo.setDataSource(dataSource);
+			JdbcRestaurantRepository restaurantRepo = new JdbcRestaurantRepository();
+			restaurantRepo.setDataSource(dataSource);
+			JdbcRewardRepository rewardRepo = new JdbcRewardRepository();
+			rewardRepo.setDataSource(dataSource);
+			RewardNetworkImpl jdbcRewardNetwork = new RewardNetworkImpl(accountRepo, restaurantRepo, rewardRepo);
+
+			// two dinings on the same card: each beneficiary is credited once with both distributions
+			jdbcRewardNetwork.rewardAccountsFor(Arrays.asList(
+					Dining.createDining("100.00", "1234123412341234", "1234567890"),
+					Dining.createDining("50.00", "1234123412341234", "1234567890")));
+			assertEquals(2, accountRepo.getStatementsSaved());
+
+			// a reward of nothing leaves both savings unchanged, so neither is written
+			jdbcRewardNetwork.rewardAccountFor(Dining.createDining("0.00", "1234123412341234", "1234567890"));
+			assertEquals(4, accountRepo.getStatementsSaved());
+
+			JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+			String sql = "select SAVINGS from T_ACCOUNT_BENEFICIARY where ACCOUNT_ID = 0 and NAME = ?";
+			assertEquals(0, new BigDecimal("6.00").compareTo(jdbcTemplate.queryForObject(sql, BigDecimal.class,
+					"Annabelle")));
+			assertEquals(0, new BigDecimal("6.00").compareTo(jdbcTemplate.queryForObject(sql, BigDecimal.class,
+					"Corgan")));
+		} finally {
+			dataSource.shutdown();
+		}
+	}
+
+	@Test
+	public void testRewardForDiningWithConcurrentLookups() {
+		ExecutorService lookupExecutor = Executors.newSingleThreadExecutor();
+		try {
+			rewardNetwork.setLookupExecutor(lookupExecutor);
+			Dining dining = Dining.createDining("100.00", "1234123412341234", "1234567890");
+			RewardConfirmation confirmation = rewardNetwork.rewardAccountFor(dining);
+			assertEquals(MonetaryAmount.valueOf("8.00"), confirmation.getAccountContribution().getAmount());
+
+			// a failed lookup on the executor surfaces just like a failed lookup made sequentially
+			Dining unknownRestaurant = Dining.createDining("100.00", "1234123412341234", "9999999999");
+			assertThrows(EmptyResultDataAccessException.class, () -> {
+				rewardNetwork.rewardAccountFor(unknownRestaurant);
+			});
+		} finally {
+			lookupExecutor.shutdown();
+		}
+	}
+
+	@Test
+	public void testRewardForDiningTakesBackUnstartedLookup() {
+		// an executor busy with other work: lookups queue up and are only run when the test says so
+		List<Runnable> queued = new ArrayList<Runnable>();
+		rewardNetwork.setLookupExecutor(queued::add);
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		rewardNetwork.setMeterRegistry(meterRegistry);
+		Timer restaurantLookups = meterRegistry.get(RewardNetworkImpl.STAGE_TIMER).tag("stage", "findRestaurant").timer();
+
+		// the reward does not wait for the executor, it looks the restaurant up itself
+		Dining dining = Dining.createDining("100.00", "1234123412341234", "1234567890");
+		RewardConfirmation confirmation = rewardNetwork.rewardAccountFor(dining);
+		assertEquals(MonetaryAmount.valueOf("8.00"), confirmation.getAccountContribution().getAmount());
+		assertEquals(1, restaurantLookups.count());
+
+		// when the account lookup fails, the queued restaurant lookup is cancelled
+		Dining unknownAccount = Dining.createDining("100.00", "bogus", "1234567890");
+		assertThrows(EmptyResultDataAccessException.class, () -> {
+			rewardNetwork.rewardAccountFor(unknownAccount);
+		});
+		assertEquals(2, queued.size());
+		queued.forEach(Runnable::run);
+		assertEquals(1, restaurantLookups.count());
+	}
+
+	@Test
+	public void testRewardForDiningTimesEachStage() {
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		rewardNetwork.setMeterRegistry(meterRegistry);
+		rewardNetwork.rewardAccountFor(Dining.createDining("100.00", "1234123412341234", "1234567890"));
+		rewardNetwork.rewardAccountsFor(Arrays.asList(Dining.createDining("100.00", "1234123412341234", "1234567890")));
+
+		for (String stage : new String[] { "findAccount", "findRestaurant", "calculateBenefitFor", "makeContribution",
+				"creditBeneficiaries", "confirmReward" }) {
+			Timer timer = meterRegistry.find(RewardNetworkImpl.STAGE_TIMER).tag("stage", stage).timer();
+			assertNotNull(timer, stage);
+			assertEquals(2, timer.count(), stage);
+			assertEquals("stub", timer.getId().getTag("repository"), stage);
+		}
+	}
+
+	@Test
+	public void testRepositoryType() {
+		assertEquals("stub", RewardNetworkImpl.repositoryType(new StubAccountRepository()));
+		assertEquals("jdbc", RewardNetworkImpl.repositoryType(new JdbcAccountRepository()));
+	}
+}
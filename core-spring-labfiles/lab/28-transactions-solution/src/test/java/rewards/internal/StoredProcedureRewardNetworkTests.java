@@ -0,0 +1,140 @@
+package rewards.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+
+import rewards.AccountContribution;
+import rewards.AccountContribution.Distribution;
+import rewards.Dining;
+import rewards.RewardConfirmation;
+import rewards.internal.account.JdbcAccountRepository;
+import rewards.internal.restaurant.JdbcRestaurantRepository;
+import rewards.internal.reward.JdbcRewardRepository;
+
+import common.money.MonetaryAmount;
+
+/**
+ * Tests the stored procedure reward network against the reward network it replaces, with a test data source.
+ */
+public class StoredProcedureRewardNetworkTests {
+
+	private EmbeddedDatabase dataSource;
+
+	private JdbcTemplate jdbcTemplate;
+
+	private RewardNetworkImpl rewardNetworkImpl;
+
+	private StoredProcedureRewardNetwork rewardNetwork;
+
+	@BeforeEach
+	public void setUp() {
+		dataSource = new EmbeddedDatabaseBuilder()
+			.setName("rewards")
+			.addScript("/rewards/testdb/schema.sql")
+			.addScript("/rewards/testdb/data.sql")
+			.build();
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		JdbcAccountRepository accountRepository = new JdbcAccountRepository();
+		accountRepository.setDataSource(dataSource);
+		JdbcRestaurantRepository restaurantRepository = new JdbcRestaurantRepository();
+		restaurantRepository.setDataSource(dataSource);
+		JdbcRewardRepository rewardRepository = new JdbcRewardRepository();
+		rewardRepository.setDataSource(dataSource);
+		rewardNetworkImpl = new RewardNetworkImpl(accountRepository, restaurantRepository, rewardRepository);
+		rewardNetwork = new StoredProcedureRewardNetwork(dataSource, rewardNetworkImpl);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		// the procedure depends on the tables, so the next test's schema script could not drop them
+		dataSource.shutdown();
+	}
+
+	@Test
+	public void testProcedureIsInstalled() {
+		assertTrue(rewardNetwork.isProcedureInstalled());
+	}
+
+	@Test
+	public void testSameContributionAsRewardNetworkImpl() {
+		// 100.13 and 100.38 give rewards of an odd number of cents, so the 50% distributions round half even
+		for (String amount : new String[] { "100.00", "100.13", "100.38", "7.77" }) {
+			Dining dining = Dining.createDining(amount, "1234123412341234", "1234567890");
+			AccountContribution expected = rewardNetworkImpl.rewardAccountFor(dining).getAccountContribution();
+			AccountContribution actual = rewardNetwork.rewardAccountFor(dining).getAccountContribution();
+
+			assertEquals(expected.getAccountNumber(), actual.getAccountNumber());
+			assertEquals(expected.getAmount(), actual.getAmount(), amount);
+			assertEquals(expected.getDistributions().size(), actual.getDistributions().size());
+			for (Distribution distribution : expected.getDistributions()) {
+				Distribution other = actual.getDistribution(distribution.getBeneficiary());
+				assertEquals(distribution.getAmount(), other.getAmount(), amount);
+				assertEquals(distribution.getPercentage(), other.getPercentage());
+				// the second reward adds to the savings of the first
+				assertEquals(distribution.getTotalSavings().add(other.getAmount()), other.getTotalSavings());
+			}
+		}
+	}
+
+	@Test
+	public void testRewardIsWritten() {
+		BigDecimal savings = savingsOf("Annabelle");
+		Dining dining = Dining.createDining("100.00", "1234123412341234", "1234567890");
+		RewardConfirmation confirmation = rewardNetwork.rewardAccountFor(dining);
+
+		assertEquals(savings.add(new BigDecimal("4.00")), savingsOf("Annabelle"));
+		BigDecimal rewardAmount = jdbcTemplate.queryForObject(
+				"select REWARD_AMOUNT from T_REWARD where CONFIRMATION_NUMBER = ?", BigDecimal.class,
+				confirmation.getConfirmationNumber());
+		assertEquals(MonetaryAmount.valueOf("8.00"), new MonetaryAmount(rewardAmount));
+	}
+
+	@Test
+	public void testUnknownCreditCardOrMerchant() {
+		assertThrows(EmptyResultDataAccessException.class, () -> {
+			rewardNetwork.rewardAccountFor(Dining.createDining("100.00", "9999999999999999", "1234567890"));
+		});
+		assertThrows(EmptyResultDataAccessException.class, () -> {
+			rewardNetwork.rewardAccountFor(Dining.createDining("100.00", "1234123412341234", "9999999999"));
+		});
+		assertEquals(0, jdbcTemplate.queryForObject("select count(*) from T_REWARD", Integer.class));
+	}
+
+	@Test
+	public void testAccountWithoutBeneficiaries() {
+		// account 1 exists, but has no beneficiaries to allocate a reward to
+		assertThrows(IllegalStateException.class, () -> {
+			rewardNetwork.rewardAccountFor(Dining.createDining("100.00", "1234123412340001", "1234567890"));
+		});
+		assertEquals(0, jdbcTemplate.queryForObject("select count(*) from T_REWARD", Integer.class));
+	}
+
+	@Test
+	public void testProcedureIsInstalledOnce() {
+		// a second network, as another application instance would create, finds the procedure installed already
+		StoredProcedureRewardNetwork other = new StoredProcedureRewardNetwork(dataSource, rewardNetworkImpl);
+
+		assertTrue(other.isProcedureInstalled());
+		assertEquals(1, jdbcTemplate.queryForObject("select count(*) from INFORMATION_SCHEMA.ROUTINES "
+				+ "where ROUTINE_NAME = 'REWARD_ACCOUNT_FOR'", Integer.class));
+		Dining dining = Dining.createDining("100.00", "1234123412341234", "1234567890");
+		assertEquals(MonetaryAmount.valueOf("8.00"), other.rewardAccountFor(dining).getAccountContribution().getAmount());
+	}
+
+	private BigDecimal savingsOf(String beneficiary) {
+		return jdbcTemplate.queryForObject(
+				"select SAVINGS from T_ACCOUNT_BENEFICIARY where ACCOUNT_ID = 0 and NAME = ?", BigDecimal.class,
+				beneficiary);
+	}
+}
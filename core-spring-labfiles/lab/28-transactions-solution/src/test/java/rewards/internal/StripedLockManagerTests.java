@@ -0,0 +1,100 @@
+package rewards.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the StripedLockManager.
+ */
+public class StripedLockManagerTests {
+
+	private StripedLockManager lockManager = new StripedLockManager();
+
+	@Test
+	public void testStripesAreRoundedUpToAPowerOfTwo() {
+		assertEquals(1, new StripedLockManager(1).getStripeCount());
+		assertEquals(8, new StripedLockManager(5).getStripeCount());
+		assertEquals(8, new StripedLockManager(8).getStripeCount());
+		assertEquals(StripedLockManager.DEFAULT_STRIPES, lockManager.getStripeCount());
+	}
+
+	@Test
+	public void testSameKeyIsSerialized() throws Exception {
+		CountDownLatch holding = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<Object> first = CompletableFuture.supplyAsync(() -> lockManager.withLock("1234123412341234",
+				() -> {
+					holding.countDown();
+					await(release);
+					return null;
+				}));
+		assertTrue(holding.await(5, TimeUnit.SECONDS));
+
+		CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> lockManager.withLock(
+				"1234123412341234", () -> "second"));
+		Thread.sleep(100);
+		assertFalse(second.isDone(), "the second reward ran while the first held the lock");
+
+		release.countDown();
+		assertEquals("second", second.get(5, TimeUnit.SECONDS));
+		first.get(5, TimeUnit.SECONDS);
+		assertEquals(2, lockManager.getAcquisitions());
+		assertEquals(1, lockManager.getContendedAcquisitions());
+		assertEquals(1, LongStream.of(lockManager.getWaitTimeHistogram()).sum());
+		assertTrue(lockManager.getTotalWaitTime(TimeUnit.MILLISECONDS) >= 50);
+	}
+
+	@Test
+	public void testDifferentKeysRunInParallel() throws Exception {
+		assertNotEquals(lockManager.stripeOf("1234123412341234"), lockManager.stripeOf("1234123412340001"));
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch holding = new CountDownLatch(1);
+		CompletableFuture<Object> first = CompletableFuture.supplyAsync(() -> lockManager.withLock("1234123412341234",
+				() -> {
+					holding.countDown();
+					await(release);
+					return null;
+				}));
+		assertTrue(holding.await(5, TimeUnit.SECONDS));
+
+		assertEquals("second", CompletableFuture.supplyAsync(() -> lockManager.withLock("1234123412340001",
+				() -> "second")).get(5, TimeUnit.SECONDS));
+		release.countDown();
+		first.get(5, TimeUnit.SECONDS);
+		assertEquals(0, lockManager.getContendedAcquisitions());
+	}
+
+	@Test
+	public void testOverlappingKeysLockedInAnyOrderDoNotDeadlock() throws Exception {
+		CompletableFuture<?>[] batches = new CompletableFuture<?>[8];
+		for (int i = 0; i < batches.length; i++) {
+			String[] keys = i % 2 == 0 ? new String[] { "1234123412341234", "1234123412340001" }
+					: new String[] { "1234123412340001", "1234123412341234" };
+			batches[i] = CompletableFuture.runAsync(() -> {
+				for (int j = 0; j < 100; j++) {
+					lockManager.withLocks(Arrays.asList(keys), () -> null);
+				}
+			});
+		}
+		CompletableFuture.allOf(batches).get(10, TimeUnit.SECONDS);
+		assertEquals(2 * 8 * 100, lockManager.getAcquisitions());
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -1,10 +1,13 @@
 package rewards.internal;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.dao.EmptyResultDataAccessException;
 
+import rewards.AccountContribution;
 import rewards.internal.account.Account;
 import rewards.internal.account.AccountRepository;
 
@@ -37,7 +40,30 @@ public class StubAccountRepository implements AccountRepository {
 		return account;
 	}
 
+	public Map<String, Account> findByCreditCards(Collection<String> creditCardNumbers) {
+		Map<String, Account> accounts = new HashMap<String, Account>();
+		for (String creditCardNumber : creditCardNumbers) {
+			Account account = accountsByCreditCard.get(creditCardNumber);
+			if (account != null) {
+				accounts.put(creditCardNumber, account);
+			}
+		}
+		return accounts;
+	}
+
 	public void updateBeneficiaries(Account account) {
 		// nothing to do, everything is in memory
 	}
-}
\ No newline at end of file
+
+	public void updateBeneficiaries(Collection<Account> accounts) {
+		// nothing to do, everything is in memory
+	}
+
+	public void creditBeneficiaries(Account account, AccountContribution contribution) {
+		// nothing to do, everything is in memory
+	}
+
+	public void creditBeneficiaries(List<Account> accounts, List<AccountContribution> contributions) {
+		// nothing to do, everything is in memory
+	}
+}
@@ -2,6 +2,7 @@ package rewards.internal.account;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.Test;
@@ -54,4 +55,47 @@ public class AccountTests {
 		assertEquals(MonetaryAmount.valueOf("50.00"), contribution.getDistribution("Annabelle").getAmount());
 		assertEquals(MonetaryAmount.valueOf("50.00"), contribution.getDistribution("Corgan").getAmount());
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void makeContributionsAccumulatesSavings() {
+		account.addBeneficiary("Annabelle", Percentage.valueOf("50%"));
+		account.addBeneficiary("Corgan", Percentage.valueOf("50%"));
+		account.makeContribution(MonetaryAmount.valueOf("100.00"));
+		AccountContribution contribution = account.makeContribution(MonetaryAmount.valueOf("8.00"));
+		assertEquals(MonetaryAmount.valueOf("54.00"), contribution.getDistribution("Annabelle").getTotalSavings());
+		assertEquals(MonetaryAmount.valueOf("54.00"), account.getBeneficiary("Corgan").getSavings());
+		assertEquals(MonetaryAmount.valueOf("108.00"), account.getTotalSavings());
+	}
+
+	@Test
+	public void savingsAreOnlyRebuiltAfterACredit() {
+		account.addBeneficiary("Annabelle", Percentage.valueOf("100%"));
+		Beneficiary annabelle = account.getBeneficiary("Annabelle");
+		MonetaryAmount savings = annabelle.getSavings();
+		assertSame(savings, annabelle.getSavings());
+		account.makeContribution(MonetaryAmount.valueOf("8.00"));
+		assertEquals(MonetaryAmount.valueOf("8.00"), annabelle.getSavings());
+		assertSame(annabelle.getSavings(), annabelle.getSavings());
+	}
+
+	@Test
+	public void makeContributionMarksChangedBeneficiariesDirty() {
+		account.addBeneficiary("Annabelle", Percentage.valueOf("50%"));
+		account.addBeneficiary("Corgan", Percentage.valueOf("50%"));
+		assertTrue(account.getDirtyBeneficiaries().isEmpty());
+		// half a cent each rounds to nothing, so no savings change
+		account.makeContribution(MonetaryAmount.valueOf("0.01"));
+		assertTrue(account.getDirtyBeneficiaries().isEmpty());
+		account.makeContribution(MonetaryAmount.valueOf("8.00"));
+		assertEquals(2, account.getDirtyBeneficiaries().size());
+		Beneficiary annabelle = account.getBeneficiary("Annabelle");
+		int written = annabelle.getChanges();
+		annabelle.markWritten(written);
+		assertEquals(1, account.getDirtyBeneficiaries().size());
+		assertEquals("Corgan", account.getDirtyBeneficiaries().get(0).getName());
+		// a credit made after the write is still to be written
+		annabelle.credit(MonetaryAmount.valueOf("1.00"));
+		annabelle.markWritten(written);
+		assertEquals(2, account.getDirtyBeneficiaries().size());
+	}
+}
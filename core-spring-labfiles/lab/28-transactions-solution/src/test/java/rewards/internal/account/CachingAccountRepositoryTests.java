@@ -0,0 +1,194 @@
+package rewards.internal.account;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import common.money.MonetaryAmount;
+
+/**
+ * Tests the account near cache in front of the JDBC account repository with a test data source.
+ */
+public class CachingAccountRepositoryTests {
+
+	private DataSource dataSource;
+
+	private JdbcAccountRepository jdbcRepository;
+
+	private CachingAccountRepository repository;
+
+	@BeforeEach
+	public void setUp() {
+		dataSource = new EmbeddedDatabaseBuilder()
+			.setName("rewards")
+			.addScript("/rewards/testdb/schema.sql")
+			.addScript("/rewards/testdb/data.sql")
+			.build();
+		jdbcRepository = new JdbcAccountRepository();
+		jdbcRepository.setDataSource(dataSource);
+		repository = new CachingAccountRepository(jdbcRepository, 10);
+	}
+
+	@Test
+	public void testLookupIsCached() {
+		Account first = repository.findByCreditCard("1234123412341234");
+		Account second = repository.findByCreditCard("1234123412341234");
+		assertNotSame(first, second);
+		assertEquals("123456789", second.getNumber());
+		assertEquals(Long.valueOf(0), second.getEntityId());
+		assertEquals(2, second.getBeneficiaries().size());
+		assertEquals(1, repository.getHitCount());
+		assertEquals(1, repository.getMissCount());
+		assertEquals(1, repository.getLoadCount());
+
+		// contributing to a returned account leaves the cached copy alone
+		second.makeContribution(MonetaryAmount.valueOf("8.00"));
+		Account third = repository.findByCreditCard("1234123412341234");
+		assertEquals(MonetaryAmount.valueOf("0.00"), third.getBeneficiary("Annabelle").getSavings());
+	}
+
+	@Test
+	public void testCreditIsWrittenThrough() {
+		Account account = repository.findByCreditCard("1234123412341234");
+		repository.creditBeneficiaries(account, account.makeContribution(MonetaryAmount.valueOf("8.00")));
+
+		Account cached = repository.findByCreditCard("1234123412341234");
+		assertEquals(MonetaryAmount.valueOf("4.00"), cached.getBeneficiary("Annabelle").getSavings());
+		assertEquals(1, repository.getLoadCount());
+		Account stored = jdbcRepository.findByCreditCard("1234123412341234");
+		assertEquals(MonetaryAmount.valueOf("4.00"), stored.getBeneficiary("Annabelle").getSavings());
+	}
+
+	@Test
+	public void testRolledBackCreditLeavesCacheAlone() {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		transactionTemplate.executeWithoutResult(status -> {
+			Account account = repository.findByCreditCard("1234123412341234");
+			repository.creditBeneficiaries(account, account.makeContribution(MonetaryAmount.valueOf("8.00")));
+			status.setRollbackOnly();
+		});
+
+		Account cached = repository.findByCreditCard("1234123412341234");
+		assertEquals(MonetaryAmount.valueOf("0.00"), cached.getBeneficiary("Annabelle").getSavings());
+		assertEquals(1, repository.getHitCount());
+	}
+
+	@Test
+	public void testUpdateBeneficiariesEvictsAccount() {
+		Account account = repository.findByCreditCard("1234123412341234");
+		account.getBeneficiary("Annabelle").credit(MonetaryAmount.valueOf("4.00"));
+		// a change to Corgan's savings that the update leaves alone, since Corgan's in-memory savings are unchanged
+		new JdbcTemplate(dataSource).update(
+				"update T_ACCOUNT_BENEFICIARY set SAVINGS = 4.00 where ACCOUNT_ID = 0 and NAME = 'Corgan'");
+		repository.updateBeneficiaries(account);
+
+		Account reloaded = repository.findByCreditCard("1234123412341234");
+		assertEquals(2, repository.getLoadCount());
+		assertEquals(MonetaryAmount.valueOf("4.00"), reloaded.getBeneficiary("Annabelle").getSavings());
+		assertEquals(MonetaryAmount.valueOf("4.00"), reloaded.getBeneficiary("Corgan").getSavings());
+	}
+
+	@Test
+	public void testBatchLookupSharesAccounts() {
+		repository.findByCreditCard("1234123412341234");
+		Map<String, Account> accounts = repository.findByCreditCards(
+				Arrays.asList("1234123412341234", "1234123412340003", "bogus"));
+		assertEquals(2, accounts.size());
+		assertEquals("123456789", accounts.get("1234123412341234").getNumber());
+		assertEquals(4, accounts.get("1234123412340003").getBeneficiaries().size());
+		assertEquals(1, repository.getHitCount());
+		assertEquals(2, repository.getSize());
+
+		Map<String, Account> again = repository.findByCreditCards(
+				Arrays.asList("1234123412341234", "1234123412341234"));
+		assertSame(again.get("1234123412341234"), again.get("1234123412341234"));
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted() {
+		repository = new CachingAccountRepository(jdbcRepository, 2);
+		repository.findByCreditCard("1234123412341234");
+		repository.findByCreditCard("1234123412340008");
+		repository.findByCreditCard("1234123412341234");
+		repository.findByCreditCard("1234123412340012");
+		assertEquals(2, repository.getSize());
+		assertEquals(1, repository.getEvictionCount());
+
+		repository.findByCreditCard("1234123412341234");
+		assertEquals(2, repository.getHitCount());
+		repository.findByCreditCard("1234123412340008");
+		assertEquals(2, repository.getHitCount());
+	}
+
+	@Test
+	public void testConcurrentLookupsStayWithinMaximumSize() throws Exception {
+		// six accounts with beneficiaries, more than the cache holds
+		long[] accountIds = { 0, 3, 8, 12, 15, 17 };
+		repository = new CachingAccountRepository(jdbcRepository, 4);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> lookups = new ArrayList<Future<?>>();
+			for (int i = 0; i < 4; i++) {
+				int offset = i;
+				lookups.add(executor.submit(() -> {
+					for (int j = 0; j < 200; j++) {
+						long accountId = accountIds[(offset + j) % accountIds.length];
+						String creditCardNumber = accountId == 0 ? "1234123412341234"
+								: String.format("12341234123400%02d", accountId);
+						assertEquals(Long.valueOf(accountId),
+								repository.findByCreditCard(creditCardNumber).getEntityId());
+					}
+				}));
+			}
+			for (Future<?> lookup : lookups) {
+				lookup.get(30, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(800, repository.getHitCount() + repository.getMissCount());
+		assertTrue(repository.getSize() <= 4);
+	}
+
+	@Test
+	public void testEvictAccount() {
+		repository.findByCreditCard("1234123412341234");
+		repository.evictAccount(0L);
+		assertEquals(0, repository.getSize());
+		repository.findByCreditCard("1234123412341234");
+		assertEquals(2, repository.getLoadCount());
+	}
+
+	@Test
+	public void testMetrics() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		repository.bindTo(registry);
+		repository.findByCreditCard("1234123412341234");
+		repository.findByCreditCard("1234123412341234");
+		assertEquals(1, registry.get("rewards.account.cache.gets").tag("result", "hit").functionCounter().count());
+		assertEquals(1, registry.get("rewards.account.cache.gets").tag("result", "miss").functionCounter().count());
+		assertEquals(1, registry.get("rewards.account.cache.size").gauge().value());
+		assertEquals(1, registry.get("rewards.account.cache.loads").functionTimer().count());
+	}
+}
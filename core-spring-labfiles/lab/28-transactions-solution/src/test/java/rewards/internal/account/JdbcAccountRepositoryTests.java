@@ -5,12 +5,19 @@ import common.money.Percentage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import rewards.AccountContribution;
 
 import javax.sql.DataSource;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -59,6 +66,27 @@ public class JdbcAccountRepositoryTests {
 		});
 	}
 
+	@Test
+	public void testFindAccountsByCreditCards() {
+		Account credited = repository.findByCreditCard("1234123412341234");
+		repository.creditBeneficiaries(credited, credited.makeContribution(MonetaryAmount.valueOf("8.25")));
+
+		Map<String, Account> accounts = repository.findByCreditCards(
+				Arrays.asList("1234123412341234", "1234123412340003", "bogus"));
+		assertEquals(2, accounts.size(), "wrong number of accounts");
+		Account account = accounts.get("1234123412341234");
+		assertEquals(Long.valueOf(0), account.getEntityId(), "wrong entity id");
+		assertEquals("123456789", account.getNumber(), "wrong account number");
+		assertEquals(MonetaryAmount.valueOf("4.12"), account.getBeneficiary("Annabelle").getSavings(), "wrong savings");
+		assertEquals(Percentage.valueOf("50%"), account.getBeneficiary("Corgan").getAllocationPercentage(),
+				"wrong allocation percentage");
+
+		Account other = accounts.get("1234123412340003");
+		assertEquals(4, other.getBeneficiaries().size(), "wrong beneficiary collection size");
+		assertEquals(Percentage.valueOf("25%"), other.getBeneficiary("Argus").getAllocationPercentage(),
+				"wrong allocation percentage");
+	}
+
 	@Test
 	public void testUpdateBeneficiaries() throws SQLException {
 		Account account = repository.findByCreditCard("1234123412341234");
@@ -67,6 +95,62 @@ public class JdbcAccountRepositoryTests {
 		verifyBeneficiaryTableUpdated();
 	}
 
+	@Test
+	public void testUpdateBeneficiariesWritesOnlyChangedSavings() throws SQLException {
+		Account account = repository.findByCreditCard("1234123412341234");
+		account.getBeneficiary("Annabelle").credit(MonetaryAmount.valueOf("4.00"));
+		// a concurrent change to Corgan's savings that writing the unchanged in-memory balance would overwrite
+		new JdbcTemplate(dataSource).update(
+				"update T_ACCOUNT_BENEFICIARY set SAVINGS = 4.00 where ACCOUNT_ID = 0 and NAME = 'Corgan'");
+		repository.updateBeneficiaries(account);
+		verifyBeneficiaryTableUpdated();
+		assertEquals(1, repository.getStatementsSaved(), "wrong number of statements saved");
+
+		// nothing changed since the last write
+		repository.updateBeneficiaries(Arrays.asList(account));
+		assertEquals(3, repository.getStatementsSaved(), "wrong number of statements saved");
+	}
+
+	@Test
+	public void testRolledBackUpdateLeavesSavingsDirty() throws SQLException {
+		Account account = repository.findByCreditCard("1234123412341234");
+		account.makeContribution(MonetaryAmount.valueOf("8.00"));
+		TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		transactionTemplate.executeWithoutResult(status -> {
+			repository.updateBeneficiaries(account);
+			status.setRollbackOnly();
+		});
+		assertEquals(2, account.getDirtyBeneficiaries().size(), "rolled back savings should still be dirty");
+
+		// the retry writes the savings again
+		repository.updateBeneficiaries(account);
+		verifyBeneficiaryTableUpdated();
+		assertTrue(account.getDirtyBeneficiaries().isEmpty(), "written savings should be clean");
+	}
+
+	@Test
+	public void testCreditBeneficiariesKeepsConcurrentContributions() throws SQLException {
+		// two transactions load the account before either one writes
+		Account first = repository.findByCreditCard("1234123412341234");
+		Account second = repository.findByCreditCard("1234123412341234");
+		AccountContribution firstContribution = first.makeContribution(MonetaryAmount.valueOf("4.00"));
+		AccountContribution secondContribution = second.makeContribution(MonetaryAmount.valueOf("4.00"));
+		repository.creditBeneficiaries(first, firstContribution);
+		repository.creditBeneficiaries(second, secondContribution);
+		// both contributions are kept, where writing the in-memory balances would have lost the first one
+		verifyBeneficiaryTableUpdated();
+	}
+
+	@Test
+	public void testCreditBeneficiariesForSeveralContributions() throws SQLException {
+		Account account = repository.findByCreditCard("1234123412341234");
+		AccountContribution firstContribution = account.makeContribution(MonetaryAmount.valueOf("6.00"));
+		AccountContribution secondContribution = account.makeContribution(MonetaryAmount.valueOf("2.00"));
+		repository.creditBeneficiaries(Arrays.asList(account, account),
+				Arrays.asList(firstContribution, secondContribution));
+		verifyBeneficiaryTableUpdated();
+	}
+
 	private void verifyBeneficiaryTableUpdated() throws SQLException {
 		String sql = "select SAVINGS from T_ACCOUNT_BENEFICIARY where NAME = ? and ACCOUNT_ID = ?";
 		PreparedStatement stmt = dataSource.getConnection().prepareStatement(sql);
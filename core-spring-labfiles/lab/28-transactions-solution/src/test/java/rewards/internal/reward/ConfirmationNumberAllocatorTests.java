@@ -0,0 +1,84 @@
+package rewards.internal.reward;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+
+/**
+ * Tests the hi/lo confirmation number allocator against the confirmation number sequence of a test database.
+ */
+public class ConfirmationNumberAllocatorTests {
+
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	public void setUp() {
+		jdbcTemplate = new JdbcTemplate(new EmbeddedDatabaseBuilder()
+			.setName("rewards")
+			.addScript("/rewards/testdb/schema.sql")
+			.addScript("/rewards/testdb/data.sql")
+			.build());
+	}
+
+	@Test
+	public void testBlockIsReservedWithOneSequenceValue() {
+		ConfirmationNumberAllocator allocator = new ConfirmationNumberAllocator(jdbcTemplate, 10);
+		for (int i = 10; i < 20; i++) {
+			assertEquals(String.valueOf(i), allocator.nextConfirmationNumber());
+		}
+		// the ten numbers used sequence value 1; the next block is the one of sequence value 3
+		assertEquals(Long.valueOf(2), nextSequenceValue());
+		assertEquals("30", allocator.nextConfirmationNumber());
+	}
+
+	@Test
+	public void testBlockSizeOneHandsOutSequenceValues() {
+		ConfirmationNumberAllocator allocator = new ConfirmationNumberAllocator(jdbcTemplate, 1);
+		assertEquals("1", allocator.nextConfirmationNumber());
+		assertEquals("2", allocator.nextConfirmationNumber());
+	}
+
+	@Test
+	public void testInstancesSharingTheDatabaseNeverHandOutTheSameNumber() throws Exception {
+		// two allocators stand in for two application instances, or for one instance before and after a restart
+		ConfirmationNumberAllocator[] allocators = { new ConfirmationNumberAllocator(jdbcTemplate, 7),
+				new ConfirmationNumberAllocator(jdbcTemplate, 7) };
+		Set<String> numbers = ConcurrentHashMap.newKeySet();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> tasks = new ArrayList<Future<?>>();
+			for (int i = 0; i < 4; i++) {
+				ConfirmationNumberAllocator allocator = allocators[i % 2];
+				tasks.add(executor.submit(() -> {
+					for (int j = 0; j < 250; j++) {
+						assertTrue(numbers.add(allocator.nextConfirmationNumber()), "duplicate confirmation number");
+					}
+				}));
+			}
+			for (Future<?> task : tasks) {
+				task.get(10, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(1000, numbers.size());
+	}
+
+	private Long nextSequenceValue() {
+		return jdbcTemplate.queryForObject(
+				"select next value for S_REWARD_CONFIRMATION_NUMBER from DUAL_REWARD_CONFIRMATION_NUMBER", Long.class);
+	}
+}
@@ -5,6 +5,7 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 import java.math.BigDecimal;
 import java.sql.SQLException;
+import java.util.Date;
 import java.util.Map;
 
 import javax.sql.DataSource;
@@ -19,6 +20,7 @@ import rewards.Dining;
 import rewards.RewardConfirmation;
 import rewards.internal.account.Account;
 
+import common.datetime.DayClock;
 import common.datetime.SimpleDate;
 import common.money.MonetaryAmount;
 import common.money.Percentage;
@@ -60,6 +62,22 @@ public class JdbcRewardRepositoryTests {
 		verifyRewardInserted(confirmation, dining);
 	}
 
+	@Test
+	public void testCreateRewardUsesDayClock() {
+		SimpleDate rewardDate = new SimpleDate(12, 29, 1977);
+		repository.setDayClock(DayClock.fixed(rewardDate));
+		Dining dining = Dining.createDining("100.00", "1234123412341234", "0123456789");
+
+		Account account = new Account("1", "Keith and Keri Donald");
+		account.addBeneficiary("Annabelle", Percentage.valueOf("100%"));
+
+		RewardConfirmation confirmation = repository.confirmReward(account.makeContribution(MonetaryAmount
+				.valueOf("8.00")), dining);
+		String sql = "select REWARD_DATE from T_REWARD where CONFIRMATION_NUMBER = ?";
+		assertEquals(rewardDate.asDate(), jdbcTemplate.queryForObject(sql, Date.class, confirmation
+				.getConfirmationNumber()));
+	}
+
 	private void verifyRewardInserted(RewardConfirmation confirmation, Dining dining) throws SQLException {
 		assertEquals(1, getRewardCount());
 		String sql = "select * from T_REWARD where CONFIRMATION_NUMBER = ?";
@@ -0,0 +1,93 @@
+package rewards.internal.reward;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests the reward journal against a file in a temporary directory.
+ */
+public class RewardJournalTests {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void testUnflushedEntriesAreRecovered() throws Exception {
+		Path file = directory.resolve("rewards.journal");
+		try (RewardJournal journal = new RewardJournal(file, 4096)) {
+			journal.awaitDurable(journal.append(bytes("first")));
+			long position = journal.append(bytes("second"));
+			journal.awaitDurable(journal.append(bytes("third")));
+			journal.markFlushed(position);
+		}
+		try (RewardJournal journal = new RewardJournal(file, 4096)) {
+			List<byte[]> recovered = journal.getRecoveredEntries();
+			assertEquals(1, recovered.size());
+			assertArrayEquals(bytes("third"), recovered.get(0));
+		}
+	}
+
+	@Test
+	public void testJournalIsTruncatedOnceEverythingIsFlushed() throws Exception {
+		Path file = directory.resolve("rewards.journal");
+		try (RewardJournal journal = new RewardJournal(file, 64)) {
+			// the entries add up to far more than the capacity, as each one is flushed before the next
+			for (int i = 0; i < 100; i++) {
+				long position = journal.append(bytes("entry " + i));
+				journal.awaitDurable(position);
+				journal.markFlushed(position);
+				assertEquals(0, journal.getUnflushedBytes());
+			}
+		}
+		try (RewardJournal journal = new RewardJournal(file, 64)) {
+			assertTrue(journal.getRecoveredEntries().isEmpty());
+		}
+	}
+
+	@Test
+	public void testFullJournalWaitsForFlush() throws Exception {
+		try (RewardJournal journal = new RewardJournal(directory.resolve("rewards.journal"), 64)) {
+			long position = journal.append(bytes("0123456789012345678901234567890"));
+			CompletableFuture<Long> blocked = CompletableFuture.supplyAsync(() -> journal.append(bytes("next")));
+			Thread.sleep(100);
+			assertTrue(!blocked.isDone(), "appended to a full journal");
+			journal.awaitDurable(position);
+			journal.markFlushed(position);
+			journal.awaitDurable(blocked.get(5, TimeUnit.SECONDS));
+		}
+	}
+
+	@Test
+	public void testRecoveryStopsAtTornEntry() throws Exception {
+		Path file = directory.resolve("rewards.journal");
+		try (RewardJournal journal = new RewardJournal(file, 4096)) {
+			journal.append(bytes("first"));
+			journal.awaitDurable(journal.append(bytes("second")));
+		}
+		// corrupt the last byte of the second entry: header (16), first entry (8 + 5), second entry header (8)
+		try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+			raf.seek(16 + 13 + 8 + 5);
+			raf.write('X');
+		}
+		try (RewardJournal journal = new RewardJournal(file, 4096)) {
+			List<byte[]> recovered = journal.getRecoveredEntries();
+			assertEquals(1, recovered.size());
+			assertArrayEquals(bytes("first"), recovered.get(0));
+		}
+	}
+
+	private static byte[] bytes(String text) {
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,145 @@
+package rewards.internal.reward;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import rewards.AccountContribution;
+import rewards.Dining;
+import rewards.RewardConfirmation;
+import rewards.internal.account.Account;
+
+import common.money.MonetaryAmount;
+import common.money.Percentage;
+
+/**
+ * Tests the write-behind reward repository with a test data source and a journal in a temporary directory.
+ */
+public class WriteBehindRewardRepositoryTests {
+
+	@TempDir
+	Path directory;
+
+	private DataSource dataSource;
+
+	private JdbcTemplate jdbcTemplate;
+
+	private Dining dining = Dining.createDining("100.00", "1234123412341234", "0123456789");
+
+	@BeforeEach
+	public void setUp() {
+		dataSource = new EmbeddedDatabaseBuilder()
+			.setName("rewards")
+			.addScript("/rewards/testdb/schema.sql")
+			.addScript("/rewards/testdb/data.sql")
+			.build();
+		jdbcTemplate = new JdbcTemplate(dataSource);
+	}
+
+	@Test
+	public void testConfirmedRewardIsInsertedOnFlush() throws Exception {
+		try (RewardJournal journal = openJournal()) {
+			WriteBehindRewardRepository repository = new WriteBehindRewardRepository(dataSource, journal, 10);
+			RewardConfirmation confirmation = repository.confirmReward(contribution(), dining);
+			assertEquals(0, getRewardCount(confirmation));
+
+			assertEquals(1, repository.flush());
+			assertEquals(1, getRewardCount(confirmation));
+			assertEquals(0, repository.getPendingCount());
+		}
+	}
+
+	@Test
+	public void testRewardsLeftInTheJournalByACrashAreReplayedOnStart() throws Exception {
+		RewardConfirmation first;
+		RewardConfirmation second;
+		try (RewardJournal journal = openJournal()) {
+			WriteBehindRewardRepository repository = new WriteBehindRewardRepository(dataSource, journal, 10);
+			first = repository.confirmReward(contribution(), dining);
+			second = repository.confirmReward(contribution(), dining);
+			// crash: the journal goes away without the repository ever flushing
+		}
+
+		try (RewardJournal journal = openJournal()) {
+			WriteBehindRewardRepository repository = new WriteBehindRewardRepository(dataSource, journal, 10);
+			repository.start();
+			assertEquals(1, getRewardCount(first));
+			assertEquals(1, getRewardCount(second));
+			repository.stop();
+		}
+		try (RewardJournal journal = openJournal()) {
+			assertEquals(0, journal.getRecoveredEntries().size());
+		}
+	}
+
+	@Test
+	public void testRewardOfRolledBackTransactionIsCancelled() throws Exception {
+		try (RewardJournal journal = openJournal()) {
+			WriteBehindRewardRepository repository = new WriteBehindRewardRepository(dataSource, journal, 10);
+			TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(
+					dataSource));
+			RewardConfirmation confirmation = transactionTemplate.execute(status -> {
+				status.setRollbackOnly();
+				return repository.confirmReward(contribution(), dining);
+			});
+
+			assertEquals(2, repository.flush());
+			assertEquals(0, getRewardCount(confirmation));
+		}
+	}
+
+	@Test
+	public void testBatchLargerThanTheJournalIsConfirmed() throws Exception {
+		// room for a few rewards only, so the batch can only be appended as the flusher empties the journal
+		try (RewardJournal journal = new RewardJournal(directory.resolve("rewards.journal"), 512)) {
+			WriteBehindRewardRepository repository = new WriteBehindRewardRepository(dataSource, journal, 10);
+			repository.setFlushIntervalMillis(1);
+			repository.start();
+			List<AccountContribution> contributions = Collections.nCopies(50, contribution());
+			List<Dining> dinings = Collections.nCopies(50, dining);
+			List<RewardConfirmation> confirmations = CompletableFuture
+				.supplyAsync(() -> repository.confirmRewards(contributions, dinings))
+				.get(10, TimeUnit.SECONDS);
+			repository.stop();
+
+			List<String> confirmationNumbers = new ArrayList<String>();
+			for (RewardConfirmation confirmation : confirmations) {
+				assertEquals(1, getRewardCount(confirmation));
+				confirmationNumbers.add(confirmation.getConfirmationNumber());
+			}
+			assertEquals(50, confirmationNumbers.stream().distinct().count());
+			assertEquals(0, journal.getUnflushedBytes());
+		}
+	}
+
+	private RewardJournal openJournal() throws Exception {
+		return new RewardJournal(directory.resolve("rewards.journal"), 64 * 1024);
+	}
+
+	private AccountContribution contribution() {
+		Account account = new Account("1", "Keith and Keri Donald");
+		account.addBeneficiary("Annabelle", Percentage.valueOf("50%"));
+		account.addBeneficiary("Corgan", Percentage.valueOf("50%"));
+		return account.makeContribution(MonetaryAmount.valueOf("8.00"));
+	}
+
+	private int getRewardCount(RewardConfirmation confirmation) {
+		String sql = "select count(*) from T_REWARD where CONFIRMATION_NUMBER = ?";
+		return jdbcTemplate.queryForObject(sql, Integer.class, confirmation.getConfirmationNumber());
+	}
+}
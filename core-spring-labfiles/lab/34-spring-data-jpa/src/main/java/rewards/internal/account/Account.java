@@ -1,5 +1,6 @@
 package rewards.internal.account;
 
+import common.money.AllocationStatus;
 import common.money.MonetaryAmount;
 import common.money.Percentage;
 import rewards.AccountContribution;
@@ -132,20 +133,23 @@ public class Account {
 	 * adds up to 100%.
 	 */
 	public boolean isValid() {
-		Percentage totalPercentage = Percentage.zero();
+		return checkAllocations().isValid();
+	}
+
+	/**
+	 * Checks the total beneficiary allocation against 100%. The allocations
+	 * are summed as whole hundredths, so no exceptions or intermediate
+	 * percentages are involved.
+	 * 
+	 * @return whether the allocations are valid, under-allocated or
+	 *         over-allocated
+	 */
+	public AllocationStatus checkAllocations() {
+		int totalHundredths = 0;
 		for (Beneficiary b : beneficiaries) {
-			try {
-				totalPercentage = totalPercentage.add(b.getAllocationPercentage());
-			} catch (IllegalArgumentException e) {
-				// total would have been over 100% - return invalid
-				return false;
-			}
-		}
-		if (totalPercentage.equals(Percentage.oneHundred())) {
-			return true;
-		} else {
-			return false;
+			totalHundredths += b.getAllocationPercentage().hundredths();
 		}
+		return AllocationStatus.ofTotal(totalHundredths);
 	}
 
 	/**